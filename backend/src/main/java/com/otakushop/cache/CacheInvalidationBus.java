@@ -0,0 +1,26 @@
+package com.otakushop.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Canal de invalidación de cachés locales (L1) entre instancias.
+ *
+ * Implementaciones:
+ * - {@link LocalCacheInvalidationBus}: una sola instancia, no propaga nada (app.cache.invalidation.type=local)
+ * - {@link RedisCacheInvalidationBus}: Redis pub/sub entre nodos (app.cache.invalidation.type=redis)
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Avisa a las demás instancias que descarten una entrada
+     *
+     * @param cacheName nombre de la caché
+     * @param key clave a descartar, o null para vaciar la caché completa
+     */
+    void publish(String cacheName, String key);
+
+    /**
+     * Registra el receptor de invalidaciones llegadas desde otras instancias
+     */
+    void subscribe(BiConsumer<String, String> listener);
+}
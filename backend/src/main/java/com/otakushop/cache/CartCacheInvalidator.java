@@ -0,0 +1,38 @@
+package com.otakushop.cache;
+
+import com.otakushop.event.ProductChangedEvent;
+import com.otakushop.repository.CartItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Invalida los resúmenes de carrito que muestran un producto editado (nombre, precio, imagen).
+ *
+ * Los cambios solo de stock no invalidan: el stock mostrado en el carrito es informativo
+ * y el TTL de la caché lo acota; invalidar todos los carritos en cada venta sería una tormenta.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartCacheInvalidator {
+
+    private final CartItemRepository cartItemRepository;
+    private final CartSummaryCache cartSummaryCache;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isStockOnly()) {
+            return;
+        }
+        List<Long> userIds = cartItemRepository.findUserIdsByProductId(event.getProductId());
+        userIds.forEach(cartSummaryCache::evict);
+        if (!userIds.isEmpty()) {
+            log.debug("Invalidados {} carritos por cambio en producto {}", userIds.size(), event.getProductId());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.otakushop.cache;
+
+import com.otakushop.dto.CartSummaryDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen del carrito guardado en caché junto con el momento en que se escribió (métrica de antigüedad)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSnapshot {
+    private CartSummaryDTO summary;
+    private long cachedAtMillis;
+}
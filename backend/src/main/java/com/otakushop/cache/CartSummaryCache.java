@@ -0,0 +1,148 @@
+package com.otakushop.cache;
+
+import com.otakushop.config.CacheConfig;
+import com.otakushop.dto.CartSummaryDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caché por usuario del resumen del carrito (L1 Caffeine + L2 Redis), escrita por las mutaciones.
+ *
+ * Consistencia con cart_items con varias pestañas (o nodos) del mismo usuario:
+ * - Cada mutación toma un advisory lock exclusivo de PostgreSQL por usuario ({@link #lockForWrite})
+ *   y escribe el resumen en beforeCommit, todavía con el lock: el orden de escritura en caché es
+ *   el orden de commit. Si el commit falla, la entrada se invalida.
+ * - Una lectura que no encuentra el resumen toma el lock compartido ({@link #lockForRead}) mientras
+ *   consulta y escribe, así nunca pisa el resumen de una mutación posterior con datos anteriores.
+ * - Cada escritura invalida la L1 del resto de nodos por el bus de invalidación.
+ *
+ * Métricas: otaku.cart.cache.requests (result=hit|miss) y otaku.cart.cache.age (segundos desde
+ * que se escribió el resumen servido), además de las métricas L1/L2 de la caché "cart".
+ */
+@Component
+@Slf4j
+public class CartSummaryCache {
+
+    // Espacio de nombres del advisory lock (primer argumento de pg_advisory_xact_lock(int, int))
+    private static final int CART_LOCK_NAMESPACE = 0x43415254;  // "CART"
+
+    private final CacheManager cacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary age;
+
+    public CartSummaryCache(CacheManager cacheManager,
+                            CacheInvalidationBus invalidationBus,
+                            JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.invalidationBus = invalidationBus;
+        this.jdbcTemplate = jdbcTemplate;
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.age = DistributionSummary.builder("otaku.cart.cache.age")
+                .description("Antigüedad del resumen de carrito servido desde caché")
+                .baseUnit("seconds")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Resumen en caché, o null si no está
+     */
+    public CartSummaryDTO get(Long userId) {
+        CartSnapshot snapshot = cache().get(userId, CartSnapshot.class);
+        if (snapshot == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        age.record((System.currentTimeMillis() - snapshot.getCachedAtMillis()) / 1000.0);
+        return snapshot.getSummary();
+    }
+
+    /**
+     * Lock exclusivo del carrito del usuario hasta el fin de la transacción (mutaciones)
+     */
+    public void lockForWrite(Long userId) {
+        jdbcTemplate.queryForObject("SELECT 1 FROM (SELECT pg_advisory_xact_lock(?, ?)) l",
+                Integer.class, CART_LOCK_NAMESPACE, lockKey(userId));
+    }
+
+    /**
+     * Lock compartido hasta el fin de la transacción (lectura que va a poblar la caché)
+     */
+    public void lockForRead(Long userId) {
+        jdbcTemplate.queryForObject("SELECT 1 FROM (SELECT pg_advisory_xact_lock_shared(?, ?)) l",
+                Integer.class, CART_LOCK_NAMESPACE, lockKey(userId));
+    }
+
+    /**
+     * Guarda el resumen leído de la base (requiere {@link #lockForRead} en la transacción)
+     */
+    public void populate(Long userId, CartSummaryDTO summary) {
+        store(userId, summary);
+    }
+
+    /**
+     * Write-through de una mutación (requiere {@link #lockForWrite}): se escribe antes del commit,
+     * mientras se mantiene el lock, y se invalida si la transacción no llega a confirmarse
+     */
+    public void writeThrough(Long userId, CartSummaryDTO summary) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            store(userId, summary);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                store(userId, summary);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    evict(userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Invalida el resumen de un usuario en todos los nodos
+     */
+    public void evict(Long userId) {
+        cache().evict(userId);
+    }
+
+    private void store(Long userId, CartSummaryDTO summary) {
+        cache().put(userId, new CartSnapshot(summary, System.currentTimeMillis()));
+        invalidationBus.publish(CacheConfig.CART, String.valueOf(userId));
+        log.trace("Resumen de carrito en caché: userId={}, items={}", userId, summary.getItemCount());
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.CART);
+    }
+
+    private static int lockKey(Long userId) {
+        return Long.hashCode(userId);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("otaku.cart.cache.requests")
+                .description("Lecturas del resumen de carrito")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.otakushop.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Invalidación para una sola instancia (DEV): la caché local ya se invalidó en el propio
+ * nodo, así que no hay nada que propagar.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "app.cache.invalidation.type",
+    havingValue = "local",
+    matchIfMissing = true  // Por defecto, una sola instancia
+)
+@Slf4j
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+
+    @Override
+    public void publish(String cacheName, String key) {
+        log.trace("Invalidación local de {}::{}", cacheName, key);
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {
+        // Sin otras instancias de las que recibir mensajes
+    }
+}
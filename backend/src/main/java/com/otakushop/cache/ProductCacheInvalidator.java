@@ -0,0 +1,57 @@
+package com.otakushop.cache;
+
+import com.otakushop.config.CacheConfig;
+import com.otakushop.event.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Invalida las cachés del catálogo cuando cambia un producto.
+ *
+ * Se ejecuta tras el commit para que ninguna lectura concurrente vuelva a cachear el estado anterior:
+ * - product::id y productsByCategory::categoría (y la categoría anterior si cambió): entrada exacta
+ * - approvedProducts y productQueries: se vacían, cualquier página puede contener el producto
+ *
+ * Los cambios solo de stock o valoración (carritos, ventas flash, agregados de reseñas) también vacían
+ * los listados: los DTO cacheados incluyen stock y disponibilidad, y servirlos con el TTL de retraso
+ * mostraría como disponible un producto agotado.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(CacheConfig.PRODUCT, event.getProductId());
+        evict(CacheConfig.PRODUCTS_BY_CATEGORY, event.getCategory());
+        if (event.getPreviousCategory() != null) {
+            evict(CacheConfig.PRODUCTS_BY_CATEGORY, event.getPreviousCategory());
+        }
+        clear(CacheConfig.APPROVED_PRODUCTS);
+        clear(CacheConfig.PRODUCT_QUERIES);
+        log.debug("Cachés de catálogo invalidadas por cambio en producto {}{}", event.getProductId(),
+                event.isStockOnly() ? " (stock/valoración)" : "");
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
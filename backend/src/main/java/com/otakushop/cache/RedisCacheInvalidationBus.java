@@ -0,0 +1,85 @@
+package com.otakushop.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Invalidación entre instancias mediante Redis pub/sub (PROD).
+ *
+ * Formato del mensaje: "nodo|caché|clave" o "nodo|caché" para vaciar la caché completa.
+ * Cada nodo ignora sus propios mensajes, porque ya invalidó su L1 al publicar.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.type", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+
+    public static final String CHANNEL = "otaku:cache-invalidation";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+    private RedisMessageListenerContainer container;
+
+    @PostConstruct
+    public void start() {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) ->
+                onMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        log.info("✅ Invalidación de caché por Redis pub/sub activa (canal {}, nodo {})", CHANNEL, nodeId);
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (container != null) {
+            container.destroy();
+        }
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        String message = key == null
+                ? nodeId + "|" + cacheName
+                : nodeId + "|" + cacheName + "|" + key;
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            // Las demás instancias se corregirán al expirar su L1
+            log.warn("No se pudo publicar la invalidación de {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {
+        listeners.add(listener);
+    }
+
+    private void onMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        String key = parts.length == 3 ? parts[2] : null;
+        listeners.forEach(listener -> listener.accept(parts[1], key));
+    }
+}
@@ -0,0 +1,194 @@
+package com.otakushop.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Caché de dos niveles: L1 Caffeine acotada en memoria delante de L2 Redis compartida.
+ *
+ * - Lectura: L1 -> L2 (y se copia a L1) -> método original
+ * - Escritura: L2 y L1
+ * - Invalidación: L1 y L2 locales, y aviso al resto de nodos por el {@link CacheInvalidationBus}
+ *
+ * Si Redis falla la caché sigue funcionando solo con L1; los errores se cuentan en métricas.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;  // null si L2 está deshabilitada
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter remoteErrors;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         Cache remote,
+                         CacheInvalidationBus invalidationBus,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.remoteHits = remoteCounter(meterRegistry, name, "hit");
+        this.remoteMisses = remoteCounter(meterRegistry, name, "miss");
+        this.remoteErrors = remoteCounter(meterRegistry, name, "error");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+
+        value = remoteGet(key);
+        if (value != null) {
+            local.put(localKey, value);
+            return new SimpleValueWrapper(value);
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                "El valor en caché " + name + "::" + key + " no es del tipo " + type.getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // Caffeine garantiza una sola carga concurrente por clave en este nodo
+        return (T) local.get(localKey(key), k -> {
+            Object value = remoteGet(key);
+            if (value != null) {
+                return value;
+            }
+            try {
+                T loaded = valueLoader.call();
+                if (loaded != null) {
+                    remotePut(key, loaded);
+                }
+                return loaded;
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        local.put(localKey(key), value);
+        remotePut(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        if (remote != null) {
+            try {
+                remote.evict(key);
+            } catch (RuntimeException e) {
+                remoteError("evict", key, e);
+            }
+        }
+        invalidationBus.publish(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (remote != null) {
+            try {
+                remote.clear();
+            } catch (RuntimeException e) {
+                remoteError("clear", null, e);
+            }
+        }
+        invalidationBus.publish(name, null);
+    }
+
+    /**
+     * Invalidación recibida de otra instancia: solo afecta a L1 (L2 ya la actualizó el emisor)
+     */
+    void invalidateLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private Object remoteGet(Object key) {
+        if (remote == null) {
+            return null;
+        }
+        try {
+            ValueWrapper wrapper = remote.get(key);
+            Object value = wrapper != null ? wrapper.get() : null;
+            (value != null ? remoteHits : remoteMisses).increment();
+            return value;
+        } catch (RuntimeException e) {
+            remoteError("get", key, e);
+            return null;
+        }
+    }
+
+    private void remotePut(Object key, Object value) {
+        if (remote == null) {
+            return;
+        }
+        try {
+            remote.put(key, value);
+        } catch (RuntimeException e) {
+            remoteError("put", key, e);
+        }
+    }
+
+    private void remoteError(String operation, Object key, RuntimeException e) {
+        remoteErrors.increment();
+        log.warn("Error en caché L2 ({} {}::{}): {}", operation, name, key, e.getMessage());
+    }
+
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private static Counter remoteCounter(MeterRegistry meterRegistry, String cacheName, String result) {
+        return Counter.builder("otaku.cache.l2.requests")
+                .description("Accesos a la caché Redis (L2)")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,82 @@
+package com.otakushop.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CacheManager que crea {@link TwoLevelCache} bajo demanda y aplica las invalidaciones
+ * recibidas de otras instancias.
+ *
+ * Métricas: cache.gets / cache.evictions / cache.size (L1, etiqueta tier=l1),
+ * otaku.cache.l2.requests (L2) y otaku.cache.invalidations.received.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final CacheManager remoteCacheManager;  // null si L2 está deshabilitada
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final long localMaxSize;
+    private final Map<String, Duration> localTtls;
+    private final Duration defaultLocalTtl;
+    private final Counter invalidationsReceived;
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                CacheInvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry,
+                                long localMaxSize,
+                                Duration defaultLocalTtl,
+                                Map<String, Duration> localTtls) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.localMaxSize = localMaxSize;
+        this.defaultLocalTtl = defaultLocalTtl;
+        this.localTtls = localTtls;
+        this.invalidationsReceived = Counter.builder("otaku.cache.invalidations.received")
+                .description("Invalidaciones de L1 recibidas de otras instancias")
+                .register(meterRegistry);
+
+        invalidationBus.subscribe(this::onRemoteInvalidation);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtls.getOrDefault(name, defaultLocalTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, "tier", "l1");
+
+        Cache remote = remoteCacheManager != null ? remoteCacheManager.getCache(name) : null;
+        return new TwoLevelCache(name, local, remote, invalidationBus, meterRegistry);
+    }
+
+    private void onRemoteInvalidation(String cacheName, String key) {
+        TwoLevelCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.invalidateLocal(key);
+            invalidationsReceived.increment();
+        }
+    }
+}
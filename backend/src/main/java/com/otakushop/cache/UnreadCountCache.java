@@ -0,0 +1,63 @@
+package com.otakushop.cache;
+
+import com.otakushop.config.CacheConfig;
+import com.otakushop.repository.NotificationRepository;
+import com.otakushop.repository.NotificationRepository.UnreadCount;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contador de notificaciones no leídas por usuario para el badge de la cabecera.
+ *
+ * El sondeo de /notifications/unread/count se sirve desde la caché de dos niveles. Cada cambio
+ * (notificaciones nuevas, marcar como leída, eliminar) recalcula tras el commit los contadores
+ * afectados con un solo GROUP BY y los reescribe, así las demás instancias reciben la invalidación
+ * por el bus y el valor nuevo se envía al cliente por WebSocket.
+ */
+@Component
+@RequiredArgsConstructor
+public class UnreadCountCache {
+
+    private final CacheManager cacheManager;
+    private final NotificationRepository notificationRepository;
+
+    /**
+     * No leídas del usuario, desde caché o con una consulta
+     */
+    public long get(Long userId) {
+        Cache.ValueWrapper cached = cache().get(userId);
+        if (cached != null && cached.get() instanceof Number count) {
+            return count.longValue();
+        }
+        return reload(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Recalcula y guarda los contadores de los usuarios indicados (0 si no tienen no leídas)
+     */
+    public Map<Long, Long> reload(Collection<Long> userIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        userIds.forEach(userId -> counts.put(userId, 0L));
+        for (UnreadCount row : notificationRepository.countUnreadByUserIds(userIds)) {
+            counts.put(row.getUserId(), row.getTotal());
+        }
+        Cache cache = cache();
+        counts.forEach((userId, count) -> {
+            // evict publica la invalidación para la L1 de las demás instancias; put no lo hace
+            cache.evict(userId);
+            cache.put(userId, count);
+        });
+        return counts;
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.UNREAD_COUNT);
+    }
+}
@@ -0,0 +1,29 @@
+package com.otakushop.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.otakushop.entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado del usuario que decide si un JWT sigue siendo válido: rol actual y si está habilitado.
+ * exists=false marca un usuario eliminado (se cachea igual, para no consultarlo en cada petición).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserState {
+    private boolean exists;
+    private boolean enabled;
+    private Role role;
+
+    public static UserState missing() {
+        return new UserState(false, false, null);
+    }
+
+    @JsonIgnore
+    public boolean isActive() {
+        return exists && enabled;
+    }
+}
@@ -0,0 +1,68 @@
+package com.otakushop.cache;
+
+import com.otakushop.config.CacheConfig;
+import com.otakushop.entity.Role;
+import com.otakushop.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Caché de TTL corto del estado de cada usuario (habilitado y rol) para la autenticación sin estado.
+ *
+ * El filtro JWT construye el principal con los claims del token y solo consulta aquí si el usuario
+ * sigue habilitado y cuál es su rol actual. Así un usuario suspendido o con el rol cambiado pierde
+ * el acceso como mucho al vencer el TTL (app.security.user-state.ttl-seconds), o de inmediato en
+ * todas las instancias cuando el cambio pasa por UserService (evict + bus de invalidación).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserStateCache {
+
+    private final CacheManager cacheManager;
+    private final UserRepository userRepository;
+
+    /**
+     * Estado del usuario, desde caché o con una consulta de dos columnas
+     */
+    public UserState get(Long userId) {
+        return cache().get(userId, () -> load(userId));
+    }
+
+    /**
+     * Invalida el estado del usuario tras el commit (cambio de rol, suspensión, baja)
+     */
+    public void evict(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache().evict(userId);
+                }
+            });
+        } else {
+            cache().evict(userId);
+        }
+    }
+
+    private UserState load(Long userId) {
+        List<Object[]> rows = userRepository.findRoleAndEnabledById(userId);
+        if (rows.isEmpty()) {
+            log.debug("User state not found for userId={}", userId);
+            return UserState.missing();
+        }
+        Object[] row = rows.get(0);
+        return new UserState(true, Boolean.TRUE.equals(row[1]), (Role) row[0]);
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.USER_STATE);
+    }
+}
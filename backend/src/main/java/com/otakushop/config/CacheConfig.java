@@ -0,0 +1,60 @@
+package com.otakushop.config;
+
+import com.otakushop.cache.CacheInvalidationBus;
+import com.otakushop.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Cachés de la aplicación: L1 Caffeine por instancia delante de L2 Redis.
+ *
+ * Con app.cache.l2.enabled=false (DEV sin Redis) solo se usa la L1.
+ * La L1 tiene TTL corto como red de seguridad si se pierde un mensaje de invalidación.
+ */
+@Configuration
+@Slf4j
+public class CacheConfig {
+
+    // Nombres de caché
+    public static final String PRODUCT = "product";                         // ProductDTO por id
+    public static final String PRODUCTS_BY_CATEGORY = "productsByCategory"; // Lista por categoría
+    public static final String APPROVED_PRODUCTS = "approvedProducts";      // Lista de aprobados (admin)
+    public static final String PRODUCT_QUERIES = "productQueries";          // Páginas/filtros del catálogo
+    public static final String CART = "cart";                               // Resumen de carrito por usuario
+    public static final String USER_STATE = "userState";                    // Rol y habilitado por usuario (JWT)
+    public static final String UNREAD_COUNT = "unreadCount";                // Notificaciones no leídas por usuario
+
+    @Bean
+    @Primary
+    public TwoLevelCacheManager cacheManager(
+            RedisCacheManager redisCacheManager,
+            CacheInvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.l2.enabled:false}") boolean l2Enabled,
+            @Value("${app.cache.l1.max-size:10000}") long l1MaxSize,
+            @Value("${app.cache.l1.ttl-seconds:60}") long l1TtlSeconds,
+            @Value("${app.security.user-state.ttl-seconds:30}") long userStateTtlSeconds,
+            @Value("${app.notifications.unread-count.ttl-seconds:300}") long unreadCountTtlSeconds) {
+
+        log.info("✅ Caché de dos niveles: L1 Caffeine (máx {} entradas, TTL {}s), L2 Redis {}",
+                l1MaxSize, l1TtlSeconds, l2Enabled ? "habilitada" : "deshabilitada");
+
+        return new TwoLevelCacheManager(
+                l2Enabled ? redisCacheManager : null,
+                invalidationBus,
+                meterRegistry,
+                l1MaxSize,
+                Duration.ofSeconds(l1TtlSeconds),
+                Map.of(PRODUCT_QUERIES, Duration.ofSeconds(Math.min(l1TtlSeconds, 30)),
+                        USER_STATE, Duration.ofSeconds(userStateTtlSeconds),
+                        UNREAD_COUNT, Duration.ofSeconds(unreadCountTtlSeconds)));
+    }
+}
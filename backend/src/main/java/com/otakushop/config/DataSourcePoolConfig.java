@@ -0,0 +1,45 @@
+package com.otakushop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Tamaño del pool de HikariCP a partir de los núcleos disponibles.
+ *
+ * Con app.datasource.pool.size-from-cores=true el máximo es núcleos * cores-multiplier + spare
+ * (fórmula habitual de PostgreSQL: conexiones ~ 2 x núcleos + discos), acotado por max-size, y el
+ * mínimo de conexiones ociosas es el mismo valor: un pool fijo evita abrir conexiones bajo picos.
+ * Si no, se respetan las spring.datasource.hikari.* configuradas.
+ */
+@Configuration
+@Slf4j
+public class DataSourcePoolConfig implements BeanPostProcessor, EnvironmentAware {
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource
+                && environment.getProperty("app.datasource.pool.size-from-cores", Boolean.class, false)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            int multiplier = environment.getProperty("app.datasource.pool.cores-multiplier", Integer.class, 2);
+            int spare = environment.getProperty("app.datasource.pool.spare", Integer.class, 1);
+            int maxSize = environment.getProperty("app.datasource.pool.max-size", Integer.class, 50);
+
+            int poolSize = Math.max(2, Math.min(maxSize, cores * multiplier + spare));
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setMinimumIdle(poolSize);
+            log.info("✅ Pool de conexiones: {} conexiones ({} núcleos)", poolSize, cores);
+        }
+        return bean;
+    }
+}
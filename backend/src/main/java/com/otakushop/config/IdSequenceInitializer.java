@@ -0,0 +1,52 @@
+package com.otakushop.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Alinea las secuencias de ids (allocationSize = 50) con los ids ya existentes.
+ *
+ * Las tablas de inserción intensiva pasaron de IDENTITY a secuencias pooled. Si una secuencia va por
+ * detrás del MAX(id) de su tabla (secuencia recién creada por Hibernate o por la migración sobre datos
+ * existentes), se adelanta a MAX(id) + 50: el primer bloque de Hibernate empieza justo después del
+ * último id. Es idempotente y corre antes de que arranquen los @Scheduled que insertan.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceInitializer {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "order_items", "order_items_seq",
+            "notifications", "notifications_seq",
+            "stock_reservations", "stock_reservations_seq",
+            "cart_items", "cart_items_seq");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((table, sequence) -> {
+            try {
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+                Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+                if (maxId != null && lastValue != null && maxId >= lastValue) {
+                    jdbcTemplate.queryForObject("SELECT setval(?, ?, false)", Long.class,
+                            sequence, maxId + ALLOCATION_SIZE);
+                    log.info("✅ Secuencia {} alineada con {} (MAX(id) = {})", sequence, table, maxId);
+                }
+            } catch (RuntimeException e) {
+                log.error("❌ No se pudo alinear la secuencia {} con la tabla {}", sequence, table, e);
+            }
+        });
+    }
+}
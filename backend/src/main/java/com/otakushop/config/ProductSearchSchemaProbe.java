@@ -0,0 +1,74 @@
+package com.otakushop.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Comprueba al arrancar si la búsqueda full-text de productos está disponible.
+ *
+ * La función otaku_fold, la columna generada products.search_vector y su índice GIN los crean las
+ * migraciones V9 y V10; este bean solo consulta el catálogo y nunca ejecuta DDL, así que varios nodos
+ * de distintas versiones pueden convivir durante un despliegue. Sin la columna (p. ej. en dev, donde
+ * Flyway está deshabilitado, o con una BD que no es PostgreSQL) se usa el LIKE como respaldo.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchSchemaProbe {
+
+    private static final String COLUMN_EXISTS_SQL = """
+        SELECT EXISTS (
+            SELECT 1 FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = 'products' AND column_name = 'search_vector'
+        )
+        """;
+
+    private static final String INDEX_VALID_SQL = """
+        SELECT EXISTS (
+            SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+            WHERE c.relname = 'idx_products_search_vector' AND i.indisvalid
+        )
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.search.fulltext.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean available = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void probe() {
+        if (!enabled) {
+            log.info("Búsqueda full-text deshabilitada (app.search.fulltext.enabled=false)");
+            return;
+        }
+        try {
+            available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(COLUMN_EXISTS_SQL, Boolean.class));
+            if (!available) {
+                log.warn("products.search_vector no existe (¿migración V9 sin aplicar?), se usará LIKE");
+                return;
+            }
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(INDEX_VALID_SQL, Boolean.class))) {
+                // La consulta funciona sin índice, pero recorre la tabla entera
+                log.warn("idx_products_search_vector no existe o no es válido (¿migración V10 sin aplicar?)");
+            }
+            log.info("✅ Búsqueda full-text de productos disponible (search_vector)");
+        } catch (Exception e) {
+            available = false;
+            log.warn("No se pudo comprobar la búsqueda full-text, se usará LIKE: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Indica si la columna search_vector está disponible
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+}
@@ -1,50 +1,49 @@
 package com.otakushop.config;
 
-import io.github.bucket4j.Bandwidth;
+import com.otakushop.ratelimit.RateLimitBucketStore;
+import com.otakushop.ratelimit.RateLimitPolicy;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Configuration;
 
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+/**
+ * Resolución de buckets de rate limiting. Las políticas (límites por ruta y a quién se cobran)
+ * están en RateLimitPolicyRegistry; los buckets se guardan en un {@link RateLimitBucketStore}
+ * acotado (local o en Redis según app.rate-limit.store).
+ *
+ * Métricas: otaku.ratelimit.buckets (buckets en memoria), otaku.ratelimit.buckets.memory (bytes
+ * estimados) y otaku.ratelimit.rejections (policy=nombre de la política).
+ */
 @Configuration
 public class RateLimitingConfig {
 
-    /**
-     * Cache de buckets por IP para rate limiting
-     */
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    private final RateLimitBucketStore bucketStore;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitingConfig(RateLimitBucketStore bucketStore, MeterRegistry meterRegistry) {
+        this.bucketStore = bucketStore;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("otaku.ratelimit.buckets", bucketStore, RateLimitBucketStore::localSize)
+                .description("Buckets de rate limiting en memoria")
+                .register(meterRegistry);
+        Gauge.builder("otaku.ratelimit.buckets.memory", bucketStore, RateLimitBucketStore::estimatedMemoryBytes)
+                .description("Memoria estimada de los buckets de rate limiting")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
 
     /**
-     * Resuelve un bucket para la IP dada, creándolo si no existe
-     * Límite: 100 requests por minuto por IP
+     * Resuelve el bucket de la clave dentro de la política, creándolo si no existe
      */
-    public Bucket resolveBucket(String ip) {
-        return cache.computeIfAbsent(ip, k -> createNewBucket());
+    public Bucket resolveBucket(RateLimitPolicy policy, String key) {
+        return bucketStore.resolve(key, policy::getConfiguration);
     }
 
     /**
-     * Resuelve un bucket para autenticación (más restrictivo)
-     * Límite: 5 intentos por minuto por IP
+     * Registra una petición rechazada por rate limiting
      */
-    public Bucket resolveAuthBucket(String ip) {
-        return cache.computeIfAbsent("auth:" + ip, k -> createAuthBucket());
-    }
-
-    private Bucket createNewBucket() {
-        Bandwidth limit = Bandwidth.classic(100, Refill.intervally(100, Duration.ofMinutes(1)));
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
-    }
-
-    private Bucket createAuthBucket() {
-        // Más restrictivo para endpoints de autenticación
-        Bandwidth limit = Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(1)));
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    public void recordRejection(RateLimitPolicy policy) {
+        meterRegistry.counter("otaku.ratelimit.rejections", "policy", policy.getName()).increment();
     }
 }
@@ -1,5 +1,6 @@
 package com.otakushop.config;
 
+import com.otakushop.cache.UserStateCache;
 import com.otakushop.filter.RateLimitingFilter;
 import com.otakushop.security.CustomUserDetailsService;
 import com.otakushop.security.JwtAuthenticationEntryPoint;
@@ -40,10 +41,11 @@ public class SecurityConfig {
     private final OAuth2AuthenticationSuccessHandler oAuth2AuthenticationSuccessHandler;
     private final OAuth2AuthenticationFailureHandler oAuth2AuthenticationFailureHandler;
     private final HttpCookieOAuth2AuthorizationRequestRepository httpCookieOAuth2AuthorizationRequestRepository;
+    private final UserStateCache userStateCache;
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtTokenProvider, customUserDetailsService);
+        return new JwtAuthenticationFilter(jwtTokenProvider, customUserDetailsService, userStateCache);
     }
 
     @Bean
@@ -108,6 +110,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/products/{id}").permitAll()
                         .requestMatchers(HttpMethod.GET, "/products/category/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/products/search").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/products/suggest").permitAll()
                         .requestMatchers(HttpMethod.GET, "/products/filter").permitAll()
                         .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll() // Permitir descargar imágenes
                         // Favorites check endpoint (allow anonymous to return false)
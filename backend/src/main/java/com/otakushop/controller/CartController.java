@@ -3,6 +3,7 @@ package com.otakushop.controller;
 import com.otakushop.dto.CartItemDTO;
 import com.otakushop.dto.CartItemRequest;
 import com.otakushop.dto.CartItemUpdateRequest;
+import com.otakushop.dto.CartSummaryDTO;
 import com.otakushop.service.CartService;
 import com.otakushop.service.StockReservationService;
 import com.otakushop.util.SecurityUtil;
@@ -13,9 +14,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import java.math.BigDecimal;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -36,14 +35,12 @@ public class CartController {
     public ResponseEntity<Map<String, Object>> getCart() {
         try {
             Long userId = securityUtil.getCurrentUserId();
-            List<CartItemDTO> items = cartService.getCartItems(userId);
-            BigDecimal total = cartService.getCartTotal(userId);
-            Long itemCount = cartService.getCartItemCount(userId);
+            CartSummaryDTO summary = cartService.getCartSummary(userId);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("items", items);
-            response.put("total", total);
-            response.put("itemCount", itemCount);
+            response.put("items", summary.getItems());
+            response.put("total", summary.getTotal());
+            response.put("itemCount", summary.getItemCount());
             response.put("message", "Carrito obtenido exitosamente");
             
             return ResponseEntity.ok(response);
@@ -53,6 +50,21 @@ public class CartController {
         }
     }
     
+    /**
+     * GET /api/cart/count - Cantidad de items para el badge del header (servida desde caché)
+     */
+    @GetMapping("/count")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Map<String, Object>> getCartCount() {
+        Long userId = securityUtil.getCurrentUserId();
+        CartSummaryDTO summary = cartService.getCartSummary(userId);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("itemCount", summary.getItemCount());
+        response.put("total", summary.getTotal());
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * POST /api/cart/add - Agrega un producto al carrito
      */
@@ -64,14 +76,12 @@ public class CartController {
             log.debug("Adding to cart: productId={}, quantity={}", request.getProductId(), request.getQuantity());
             
             Long userId = securityUtil.getCurrentUserId();
-            CartItemDTO cartItem = cartService.addItem(userId, request);
-            BigDecimal total = cartService.getCartTotal(userId);
-            Long itemCount = cartService.getCartItemCount(userId);
+            CartSummaryDTO summary = cartService.addItem(userId, request);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("cartItem", cartItem);
-            response.put("total", total);
-            response.put("itemCount", itemCount);
+            response.put("cartItem", summary.findItemByProduct(request.getProductId()));
+            response.put("total", summary.getTotal());
+            response.put("itemCount", summary.getItemCount());
             response.put("message", "Producto agregado al carrito exitosamente");
             
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -97,16 +107,14 @@ public class CartController {
             Long userId = securityUtil.getCurrentUserId();
             log.info("🔵 User ID extracted: {}, CartItemId: {}, NewQuantity: {}", userId, id, request.getQuantity());
             
-            CartItemDTO cartItem = cartService.updateItem(userId, id, request.getQuantity());
+            CartSummaryDTO summary = cartService.updateItem(userId, id, request.getQuantity());
+            CartItemDTO cartItem = summary.findItem(id);
             log.info("🟢 updateItem() SUCCESS - CartItem updated: id={}, quantity={}", id, cartItem.getQuantity());
             
-            BigDecimal total = cartService.getCartTotal(userId);
-            Long itemCount = cartService.getCartItemCount(userId);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("cartItem", cartItem);
-            response.put("total", total);
-            response.put("itemCount", itemCount);
+            response.put("total", summary.getTotal());
+            response.put("itemCount", summary.getItemCount());
             response.put("message", "Cantidad actualizada exitosamente");
             
             log.info("🟢 PUT /api/cart/{} COMPLETED - Response: cartItem.quantity={}", id, cartItem.getQuantity());
@@ -127,14 +135,11 @@ public class CartController {
             Long userId = securityUtil.getCurrentUserId();
             log.debug("🔵 DELETE /api/cart/{} - userId={}", id, userId);
             
-            cartService.removeItem(userId, id);
-            
-            BigDecimal total = cartService.getCartTotal(userId);
-            Long itemCount = cartService.getCartItemCount(userId);
+            CartSummaryDTO summary = cartService.removeItem(userId, id);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("total", total);
-            response.put("itemCount", itemCount);
+            response.put("total", summary.getTotal());
+            response.put("itemCount", summary.getItemCount());
             response.put("message", "Item eliminado del carrito exitosamente");
             
             log.debug("🟢 DELETE /api/cart/{} - SUCCESS", id);
@@ -143,12 +148,11 @@ public class CartController {
             // Item ya fue eliminado por otra transacción, responder con 200 OK (idempotent)
             log.warn("⚠️ Item {} ya fue eliminado previamente (StaleObjectState)", id);
             Long userId = securityUtil.getCurrentUserId();
-            BigDecimal total = cartService.getCartTotal(userId);
-            Long itemCount = cartService.getCartItemCount(userId);
+            CartSummaryDTO summary = cartService.getCartSummary(userId);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("total", total);
-            response.put("itemCount", itemCount);
+            response.put("total", summary.getTotal());
+            response.put("itemCount", summary.getItemCount());
             response.put("message", "Item ya había sido eliminado del carrito");
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -1,8 +1,12 @@
 package com.otakushop.controller;
 
 import com.otakushop.dto.ProductDTO;
+import com.otakushop.dto.ProductFilter;
+import com.otakushop.dto.ProductPageResponse;
 import com.otakushop.dto.ProductRequest;
+import com.otakushop.service.FlashSaleStockLedger;
 import com.otakushop.service.ProductService;
+import com.otakushop.service.ProductSuggestService;
 import com.otakushop.service.FileUploadService;
 import com.otakushop.util.SecurityUtil;
 import jakarta.validation.Valid;
@@ -25,7 +29,9 @@ import java.util.HashMap;
 @Slf4j
 public class ProductController {
     private final ProductService productService;
+    private final ProductSuggestService productSuggestService;
     private final FileUploadService fileUploadService;
+    private final FlashSaleStockLedger flashSaleLedger;
     private final SecurityUtil securityUtil;
 
     // ===== ENDPOINTS DE APROBACIÓN (ADMIN) - DEBEN VENIR PRIMERO =====
@@ -76,8 +82,42 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    /**
+     * Activa el modo venta flash: el stock se asigna desde un ledger en memoria (solo ADMIN)
+     */
+    @PostMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> enableFlashSale(@PathVariable Long id) {
+        long available = flashSaleLedger.enable(id);
+        Map<String, Object> response = new HashMap<>();
+        response.put("productId", id);
+        response.put("flashSale", true);
+        response.put("availableStock", available);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Desactiva el modo venta flash y escribe el stock pendiente (solo ADMIN)
+     */
+    @DeleteMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> disableFlashSale(@PathVariable Long id) {
+        flashSaleLedger.disable(id);
+        Map<String, Object> response = new HashMap<>();
+        response.put("productId", id);
+        response.put("flashSale", false);
+        return ResponseEntity.ok(response);
+    }
+
     // ===== ENDPOINTS GENERALES =====
 
+    /**
+     * Catálogo público filtrado en base de datos.
+     *
+     * Modo keyset: se activa con keyset=true o enviando cursor; devuelve nextCursor/hasMore
+     * y, con withTotal=true, un estimatedTotal acotado.
+     * Modo offset (legacy): page/limit con total y pages, como espera el frontend actual.
+     */
     @GetMapping
     public ResponseEntity<?> getAllProducts(
             @RequestParam(required = false) String search,
@@ -85,28 +125,37 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "12") int limit) {
-        
-        // Filtrar productos aprobados con todos los parámetros
-        List<ProductDTO> filteredProducts = productService.filterApprovedProducts(
-            search, category, minPrice, maxPrice
-        );
-        
-        // Paginación manual
-        int start = (page - 1) * limit;
-        int end = Math.min(start + limit, filteredProducts.size());
-        List<ProductDTO> paginatedProducts = start < filteredProducts.size() 
-            ? filteredProducts.subList(start, end) 
-            : List.of();
-        
-        int totalPages = (int) Math.ceil((double) filteredProducts.size() / limit);
-        
-        // Retornar con estructura esperada por frontend
+            @RequestParam(defaultValue = "12") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+
+        ProductFilter filter = ProductFilter.builder()
+                .search(search)
+                .category(category)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .build();
+
         Map<String, Object> response = new HashMap<>();
-        response.put("products", paginatedProducts);
-        response.put("pages", totalPages);
-        response.put("total", filteredProducts.size());
-        response.put("currentPage", page);
+        if (keyset || cursor != null) {
+            ProductPageResponse result = productService.filterApprovedProductsKeyset(filter, cursor, limit, withTotal);
+            response.put("products", result.getProducts());
+            response.put("nextCursor", result.getNextCursor());
+            response.put("hasMore", result.isHasMore());
+            if (result.getEstimatedTotal() != null) {
+                response.put("estimatedTotal", result.getEstimatedTotal());
+                response.put("estimatedTotalCapped", result.getEstimatedTotal() >= ProductService.ESTIMATED_TOTAL_CAP);
+            }
+            return ResponseEntity.ok(response);
+        }
+
+        // Retornar con estructura esperada por frontend
+        ProductPageResponse result = productService.filterApprovedProducts(filter, page, limit);
+        response.put("products", result.getProducts());
+        response.put("pages", result.getPages());
+        response.put("total", result.getTotal());
+        response.put("currentPage", result.getCurrentPage());
         return ResponseEntity.ok(response);
     }
 
@@ -122,12 +171,28 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Búsqueda full-text rankeada (prefijos, sin tildes) sobre nombre, categoría y descripción
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String keyword) {
-        List<ProductDTO> products = productService.searchProducts(keyword);
+    public ResponseEntity<List<ProductDTO>> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<ProductDTO> products = productService.searchProducts(keyword, limit);
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Autocompletado (search-as-you-type): nombres y categorías que empiezan por el prefijo.
+     * Se sirve desde un índice en memoria, sin consultar la base de datos.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<Map<String, Object>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productSuggestService.suggest(q, limit));
+    }
+
     @GetMapping("/filter")
     public ResponseEntity<List<ProductDTO>> filterProducts(
             @RequestParam(required = false) String category,
@@ -17,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -90,6 +91,16 @@ public class ReviewController {
         return ResponseEntity.ok(stats);
     }
     
+    @GetMapping("/stats")
+    @Operation(summary = "Obtener estadísticas de calificaciones de varios productos (máx. 100)")
+    public ResponseEntity<?> getProductRatingStatsBatch(@RequestParam List<Long> productIds) {
+        if (productIds.size() > 100) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Máximo 100 productos por consulta"));
+        }
+        Map<Long, ProductRatingStats> stats = reviewService.getProductRatingStats(productIds.stream().distinct().toList());
+        return ResponseEntity.ok(stats);
+    }
+    
     @PostMapping("/{reviewId}/vendor-response")
     @PreAuthorize("hasRole('VENDOR')")
     @SecurityRequirement(name = "Bearer Authentication")
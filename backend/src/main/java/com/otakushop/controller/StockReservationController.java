@@ -1,5 +1,6 @@
 package com.otakushop.controller;
 
+import com.otakushop.dto.StockAvailabilityDTO;
 import com.otakushop.service.StockReservationService;
 import com.otakushop.util.SecurityUtil;
 import lombok.Data;
@@ -10,8 +11,11 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -65,16 +69,12 @@ public class StockReservationController {
     @PostMapping("/available")
     public ResponseEntity<?> checkAvailability(@Valid @RequestBody CheckAvailabilityRequest request) {
         try {
-            boolean isAvailable = reservationService.isStockAvailable(
-                request.getProductId(),
-                request.getQuantity(),
-                request.getTotalStock()
-            );
-            
+            // Una sola lectura del contador de reservas para ambas respuestas
             Integer availableStock = reservationService.getAvailableStock(
                 request.getProductId(),
                 request.getTotalStock()
             );
+            boolean isAvailable = availableStock >= request.getQuantity();
             
             Map<String, Object> response = new HashMap<>();
             response.put("isAvailable", isAvailable);
@@ -90,6 +90,33 @@ public class StockReservationController {
         }
     }
 
+    /**
+     * Disponibilidad de varios productos en una sola llamada (render del carrito o de la grilla).
+     * Si un producto se repite, se suman sus cantidades.
+     */
+    @PostMapping("/available/bulk")
+    public ResponseEntity<?> checkBulkAvailability(@Valid @RequestBody BulkAvailabilityRequest request) {
+        try {
+            Map<Long, Integer> requestedByProduct = new LinkedHashMap<>();
+            for (BulkAvailabilityItem item : request.getItems()) {
+                requestedByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+            
+            List<StockAvailabilityDTO> items = reservationService.getBulkAvailability(requestedByProduct);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", items);
+            response.put("allAvailable", items.stream().allMatch(StockAvailabilityDTO::getIsAvailable));
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error al verificar disponibilidad");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     @Data
     public static class ReserveStockRequest {
         @NotNull(message = "El ID del producto es requerido")
@@ -116,4 +143,21 @@ public class StockReservationController {
         @Min(value = 1, message = "La cantidad debe ser al menos 1")
         private Integer quantity;
     }
+
+    @Data
+    public static class BulkAvailabilityRequest {
+        @NotEmpty(message = "Se requiere al menos un producto")
+        @Size(max = 100, message = "Máximo 100 productos por consulta")
+        private List<@Valid BulkAvailabilityItem> items;
+    }
+
+    @Data
+    public static class BulkAvailabilityItem {
+        @NotNull(message = "El ID del producto es requerido")
+        private Long productId;
+        
+        @NotNull(message = "La cantidad es requerida")
+        @Min(value = 1, message = "La cantidad debe ser al menos 1")
+        private Integer quantity;
+    }
 }
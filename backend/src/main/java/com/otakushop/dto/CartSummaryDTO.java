@@ -0,0 +1,43 @@
+package com.otakushop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Resumen del carrito (items, total y cantidad de items) obtenido con una sola consulta
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartSummaryDTO {
+    private List<CartItemDTO> items;
+    private BigDecimal total;
+    private Long itemCount;
+
+    public static CartSummaryDTO of(List<CartItemDTO> items) {
+        BigDecimal total = items.stream()
+            .map(CartItemDTO::getSubtotal)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new CartSummaryDTO(items, total, (long) items.size());
+    }
+
+    /**
+     * Item del resumen por id de item de carrito (null si no está)
+     */
+    public CartItemDTO findItem(Long cartItemId) {
+        return items.stream().filter(item -> item.getId().equals(cartItemId)).findFirst().orElse(null);
+    }
+
+    /**
+     * Item del resumen por producto (un usuario tiene a lo sumo un item por producto)
+     */
+    public CartItemDTO findItemByProduct(Long productId) {
+        return items.stream().filter(item -> item.getProductId().equals(productId)).findFirst().orElse(null);
+    }
+}
@@ -18,4 +18,5 @@ public class NotificationResponse {
     private LocalDateTime createdAt;
     private LocalDateTime readAt;
     private String metadata;
+    private Long unreadCount;  // Solo en los mensajes WebSocket: no leídas del usuario tras esta notificación
 }
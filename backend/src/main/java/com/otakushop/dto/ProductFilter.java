@@ -0,0 +1,19 @@
+package com.otakushop.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+/**
+ * Criterios de filtrado del catálogo público.
+ * Todos los campos son opcionales; los nulos o vacíos no generan predicado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilter {
+    private String search;
+    private String category;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+}
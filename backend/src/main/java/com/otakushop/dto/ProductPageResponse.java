@@ -0,0 +1,24 @@
+package com.otakushop.dto;
+
+import lombok.*;
+import java.util.List;
+
+/**
+ * Página de productos del catálogo.
+ *
+ * En modo keyset se llena nextCursor/hasMore y, si se pidió, estimatedTotal.
+ * En modo offset (legacy) se llena total, pages y currentPage.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPageResponse {
+    private List<ProductDTO> products;
+    private String nextCursor;
+    private boolean hasMore;
+    private Long estimatedTotal;   // Acotado a ProductService.ESTIMATED_TOTAL_CAP
+    private Long total;
+    private Integer pages;
+    private Integer currentPage;
+}
@@ -0,0 +1,21 @@
+package com.otakushop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Disponibilidad de un producto en la consulta masiva (carrito, grilla del catálogo)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAvailabilityDTO {
+    private Long productId;
+    private Integer requestedQuantity;
+    private Integer availableStock;   // Stock no reservado (0 si el producto no existe)
+    private Boolean isAvailable;
+    private Boolean found;
+}
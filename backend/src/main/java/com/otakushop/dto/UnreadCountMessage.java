@@ -0,0 +1,21 @@
+package com.otakushop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Mensaje por /user/queue/notifications cuando cambia el número de no leídas sin que llegue
+ * una notificación nueva (marcar como leída, marcar todas, eliminar)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountMessage {
+    private String type = "UNREAD_COUNT";
+    private Long unreadCount;
+
+    public UnreadCountMessage(Long unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
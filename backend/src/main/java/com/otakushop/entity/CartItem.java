@@ -25,7 +25,8 @@ import lombok.*;
 public class CartItem extends AuditableEntity {  // ✅ Heredar para auditoría
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)  // ✅ Ids por bloques: permite INSERT en batch
     private Long id;
     
     // ✅ NULLABLE: permite carrito anónimo
@@ -0,0 +1,47 @@
+package com.otakushop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Producto en modo venta flash: su stock se asigna desde un ledger en memoria
+ * (ver FlashSaleStockLedger) y se escribe a products.stock en lotes.
+ *
+ * Guarda la foto tomada al activar el modo para reconstruir el stock real tras una caída:
+ * stock = baselineStock - (unidades en carritos - baselineCartUnits)
+ *                       - (unidades en órdenes no canceladas - baselineOrderUnits)
+ *
+ * El ledger vive en una sola instancia (ownerNode), que renueva leaseUntil periódicamente.
+ * Si deja de renovarlo, otra instancia reconstruye el stock y toma el relevo.
+ */
+@Entity
+@Table(name = "flash_sales")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSale {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "baseline_stock", nullable = false)
+    private Integer baselineStock;
+
+    @Column(name = "baseline_cart_units", nullable = false)
+    private Long baselineCartUnits;
+
+    @Column(name = "baseline_order_units", nullable = false)
+    private Long baselineOrderUnits;
+
+    @Column(name = "enabled_at", nullable = false)
+    private LocalDateTime enabledAt;
+
+    @Column(name = "owner_node", nullable = false, length = 100)
+    private String ownerNode;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "notifications", indexes = {
     @Index(name = "idx_user_id", columnList = "user_id"),
-    @Index(name = "idx_read_status", columnList = "is_read")
+    @Index(name = "idx_notification_user_read_created", columnList = "user_id, is_read, created_at")  // No leídas y listados por usuario
 })
 @Data
 @NoArgsConstructor
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class Notification extends AuditableEntity {  // ✅ Heredar para auditoría
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_seq")
+    @SequenceGenerator(name = "notifications_seq", sequenceName = "notifications_seq", allocationSize = 50)  // ✅ Ids por bloques: permite INSERT en batch
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
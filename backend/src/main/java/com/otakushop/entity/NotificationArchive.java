@@ -0,0 +1,52 @@
+package com.otakushop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificaciones leídas antiguas movidas fuera de la tabla caliente.
+ *
+ * NotificationRetentionService las mueve desde notifications en lotes; las consultas del usuario
+ * solo recorren notifications, que queda acotada a lo reciente y lo no leído. El archivo se purga
+ * a su vez pasado app.notifications.retention.archive-max-age-days.
+ */
+@Entity
+@Table(name = "notifications_archive", indexes = {
+    @Index(name = "idx_notification_archive_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_notification_archive_archived", columnList = "archived_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationArchive {
+
+    @Id
+    private Long id;  // Mismo id que tenía en notifications
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(nullable = false, length = 50)
+    private String type;
+
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String metadata;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
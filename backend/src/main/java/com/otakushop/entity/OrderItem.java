@@ -14,7 +14,8 @@ import java.math.BigDecimal;
 @ToString(callSuper = true)
 public class OrderItem extends AuditableEntity {  // ✅ Heredar para auditoría
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)  // ✅ Ids por bloques: permite INSERT en batch
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -2,6 +2,7 @@ package com.otakushop.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 
 @Entity
@@ -10,7 +11,8 @@ import java.math.BigDecimal;
     @Index(name = "idx_product_status", columnList = "status"),
     @Index(name = "idx_product_vendor", columnList = "vendor_id"),
     @Index(name = "idx_product_active_status", columnList = "active, status"),
-    @Index(name = "idx_product_created_at", columnList = "created_at")
+    @Index(name = "idx_product_created_at", columnList = "created_at"),
+    @Index(name = "idx_product_catalog_keyset", columnList = "active, status, created_at, id")  // Paginación keyset
 })
 @Data
 @NoArgsConstructor
@@ -18,6 +20,7 @@ import java.math.BigDecimal;
 @Builder
 @EqualsAndHashCode(callSuper = true)  // ✅ Para heredancia
 @ToString(callSuper = true)
+@DynamicUpdate  // ✅ Solo columnas modificadas: guardar un producto no pisa el stock descontado con UPDATE atómico
 public class Product extends AuditableEntity {  // ✅ Heredar para auditoría
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,62 @@
+package com.otakushop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Agregados de valoración por producto: número de reseñas, suma de estrellas e histograma 1-5.
+ *
+ * Se actualizan con incrementos atómicos en la misma transacción que crea, edita o borra la reseña
+ * (ver RatingAggregateService), así que las estadísticas de un producto son una lectura por clave.
+ */
+@Entity
+@Table(name = "product_rating_aggregates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductRatingAggregate {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum;
+
+    @Column(name = "rating_1", nullable = false)
+    private Long rating1;
+
+    @Column(name = "rating_2", nullable = false)
+    private Long rating2;
+
+    @Column(name = "rating_3", nullable = false)
+    private Long rating3;
+
+    @Column(name = "rating_4", nullable = false)
+    private Long rating4;
+
+    @Column(name = "rating_5", nullable = false)
+    private Long rating5;
+
+    public double getAverage() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+    }
+
+    /**
+     * Cantidad de reseñas con las estrellas dadas (1-5)
+     */
+    public long countFor(int stars) {
+        return switch (stars) {
+            case 1 -> rating1;
+            case 2 -> rating2;
+            case 3 -> rating3;
+            case 4 -> rating4;
+            case 5 -> rating5;
+            default -> throw new IllegalArgumentException("Valoración fuera de rango: " + stars);
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.otakushop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Unidades reservadas (reservas de stock no confirmadas) por producto.
+ *
+ * Se mantiene de forma incremental al reservar, reducir y liberar reservas, para que las
+ * consultas de disponibilidad lean una fila por clave en lugar de sumar stock_reservations.
+ * Un job de reconciliación la corrige periódicamente a partir de stock_reservations.
+ */
+@Entity
+@Table(name = "product_reservation_totals")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductReservationTotal {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer reserved;
+}
@@ -27,7 +27,8 @@ import java.time.LocalDateTime;
 public class StockReservation extends AuditableEntity {  // ✅ Heredar para auditoría
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)  // ✅ Ids por bloques: permite INSERT en batch
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
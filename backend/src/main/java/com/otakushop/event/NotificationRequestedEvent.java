@@ -0,0 +1,21 @@
+package com.otakushop.event;
+
+import com.otakushop.entity.Notification.NotificationType;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Evento publicado al pedir una notificación para uno o varios usuarios.
+ *
+ * El {@link com.otakushop.service.NotificationDispatcher} lo encola tras el commit de la
+ * transacción que lo originó; si esa transacción hace rollback, la notificación no existe.
+ */
+@Value
+public class NotificationRequestedEvent {
+
+    List<Long> userIds;
+    String title;
+    String message;
+    NotificationType type;
+}
@@ -0,0 +1,59 @@
+package com.otakushop.event;
+
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import lombok.Value;
+
+/**
+ * Evento publicado cuando cambia un producto (alta, edición, aprobación, rechazo,
+ * cancelación, eliminación o stock).
+ *
+ * Los listeners (caché, autocompletado) lo procesan tras el commit, con una foto
+ * de los datos del producto tomada al publicarlo.
+ */
+@Value
+public class ProductChangedEvent {
+
+    Long productId;
+    String name;
+    String category;
+    String previousCategory;  // Categoría anterior si la edición la cambió, si no null
+    boolean visible;          // Aprobado y activo (visible en el catálogo público)
+    boolean stockOnly;        // Solo cambió el stock (o la valoración)
+
+    public static ProductChangedEvent of(Product product) {
+        return of(product, null);
+    }
+
+    public static ProductChangedEvent of(Product product, String previousCategory) {
+        return build(product, previousCategory, false);
+    }
+
+    public static ProductChangedEvent stock(Product product) {
+        return build(product, null, true);
+    }
+
+    /**
+     * Cambio de stock de un producto visible cuando no se tiene la entidad a mano (ledger de ventas flash)
+     */
+    public static ProductChangedEvent stock(Long productId, String name, String category) {
+        return new ProductChangedEvent(productId, name, category, null, true, true);
+    }
+
+    /**
+     * Cambio de la valoración (rating/reviews). Como el stock, no afecta a carritos ni sugerencias.
+     */
+    public static ProductChangedEvent rating(Long productId, String name, String category, boolean visible) {
+        return new ProductChangedEvent(productId, name, category, null, visible, true);
+    }
+
+    private static ProductChangedEvent build(Product product, String previousCategory, boolean stockOnly) {
+        boolean visible = ProductStatus.APPROVED.equals(product.getStatus())
+                && Boolean.TRUE.equals(product.getActive());
+        String changedFrom = previousCategory != null && !previousCategory.equals(product.getCategory())
+                ? previousCategory
+                : null;
+        return new ProductChangedEvent(product.getId(), product.getName(), product.getCategory(),
+                changedFrom, visible, stockOnly);
+    }
+}
@@ -1,7 +1,11 @@
 package com.otakushop.filter;
 
 import com.otakushop.config.RateLimitingConfig;
+import com.otakushop.ratelimit.RateLimitPolicy;
+import com.otakushop.ratelimit.RateLimitPolicyRegistry;
+import com.otakushop.security.JwtTokenProvider;
 import io.github.bucket4j.Bucket;
+import io.jsonwebtoken.Claims;
 import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -9,17 +13,31 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Rate limiting por política: la primera política de {@link RateLimitPolicyRegistry} que coincide
+ * con método y ruta decide el límite y a quién se cobra (IP, usuario o ambos).
+ *
+ * Corre antes del filtro JWT; si la política cobra por usuario, el id sale de los claims del token
+ * (la verificación queda en la caché de JwtTokenProvider, así que el filtro JWT no la repite).
+ */
 @Component
 public class RateLimitingFilter extends OncePerRequestFilter {
 
     private final RateLimitingConfig rateLimitingConfig;
+    private final RateLimitPolicyRegistry policyRegistry;
+    private final JwtTokenProvider tokenProvider;
 
-    public RateLimitingFilter(RateLimitingConfig rateLimitingConfig) {
+    public RateLimitingFilter(RateLimitingConfig rateLimitingConfig,
+                              RateLimitPolicyRegistry policyRegistry,
+                              JwtTokenProvider tokenProvider) {
         this.rateLimitingConfig = rateLimitingConfig;
+        this.policyRegistry = policyRegistry;
+        this.tokenProvider = tokenProvider;
     }
 
     @Override
@@ -27,15 +45,11 @@ public class RateLimitingFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         
         String ip = getClientIP(request);
-        String path = request.getRequestURI();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
         
-        // Usar bucket más restrictivo para endpoints de autenticación
-        Bucket bucket;
-        if (isAuthEndpoint(path)) {
-            bucket = rateLimitingConfig.resolveAuthBucket(ip);
-        } else {
-            bucket = rateLimitingConfig.resolveBucket(ip);
-        }
+        RateLimitPolicy policy = policyRegistry.match(request.getMethod(), path);
+        Long userId = policy.keyedByUser() ? getUserId(request) : null;
+        Bucket bucket = rateLimitingConfig.resolveBucket(policy, policy.bucketKey(ip, userId));
         
         ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
         
@@ -45,8 +59,10 @@ public class RateLimitingFilter extends OncePerRequestFilter {
             filterChain.doFilter(request, response);
         } else {
             // Rate limit excedido
+            rateLimitingConfig.recordRejection(policy);
             long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.addHeader("X-Rate-Limit-Policy", policy.getName());
             response.addHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(waitForRefill));
             response.getWriter().write("Demasiadas solicitudes. Intenta de nuevo en " + waitForRefill + " segundos.");
         }
@@ -57,12 +73,19 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         if (xfHeader == null) {
             return request.getRemoteAddr();
         }
-        return xfHeader.split(",")[0];
+        return xfHeader.split(",")[0].trim();
     }
 
-    private boolean isAuthEndpoint(String path) {
-        return path.contains("/auth/login") || 
-               path.contains("/auth/register") || 
-               path.contains("/auth/refresh");
+    /**
+     * Id del usuario desde el JWT, o null si no hay token válido
+     */
+    private Long getUserId(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (!StringUtils.hasText(bearerToken) || !bearerToken.startsWith("Bearer ")) {
+            return null;
+        }
+        Claims claims = tokenProvider.parseClaims(bearerToken.substring(7));
+        Number userId = claims != null ? claims.get("userId", Number.class) : null;
+        return userId != null ? userId.longValue() : null;
     }
 }
@@ -0,0 +1,73 @@
+package com.otakushop.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Buckets en memoria de una sola instancia (DEV o despliegue con un nodo).
+ *
+ * La caché está acotada (app.rate-limit.max-buckets) y descarta los buckets sin uso durante
+ * app.rate-limit.idle-expiry-seconds o, si es mayor, el periodo de recarga de su política (ver
+ * {@link RetainedBucket}): un bucket descartado ya estaría lleno, así que recrearlo no regala
+ * peticiones. Ante IPs rotativas el número de buckets deja de crecer: se desalojan los de menor
+ * frecuencia de uso.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "app.rate-limit.store",
+    havingValue = "local",
+    matchIfMissing = true
+)
+@Slf4j
+public class LocalRateLimitBucketStore implements RateLimitBucketStore {
+
+    // Entrada de Caffeine + clave (IP con prefijo) + LockFreeBucket de un solo límite, medido aproximado
+    static final long ESTIMATED_BYTES_PER_BUCKET = 320;
+
+    private final Cache<String, RetainedBucket> buckets;
+    private final Duration idleExpiry;
+
+    public LocalRateLimitBucketStore(@Value("${app.rate-limit.max-buckets:100000}") long maxBuckets,
+                                     @Value("${app.rate-limit.idle-expiry-seconds:120}") long idleExpirySeconds) {
+        this.idleExpiry = Duration.ofSeconds(idleExpirySeconds);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfter(new RetainedBucket.IdleExpiry())
+                .build();
+        log.info("✅ Rate limiting con buckets locales (máx {}, expiran tras {}s sin uso o el periodo de su política)",
+                maxBuckets, idleExpirySeconds);
+    }
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configuration) {
+        return buckets.get(key, k -> {
+            BucketConfiguration bucketConfiguration = configuration.get();
+            LocalBucketBuilder builder = Bucket.builder();
+            for (Bandwidth bandwidth : bucketConfiguration.getBandwidths()) {
+                builder.addLimit(bandwidth);
+            }
+            return new RetainedBucket(builder.build(), bucketConfiguration, idleExpiry);
+        }).bucket();
+    }
+
+    @Override
+    public long localSize() {
+        return buckets.estimatedSize();
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        return buckets.estimatedSize() * ESTIMATED_BYTES_PER_BUCKET;
+    }
+}
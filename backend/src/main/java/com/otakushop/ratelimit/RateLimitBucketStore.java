@@ -0,0 +1,33 @@
+package com.otakushop.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+ * Almacén de buckets de rate limiting.
+ *
+ * Implementaciones:
+ * - {@link LocalRateLimitBucketStore}: buckets en memoria de la instancia, acotados en número y
+ *   descartados tras un tiempo sin uso (app.rate-limit.store=local)
+ * - {@link RedisRateLimitBucketStore}: estado de los buckets en Redis (bucket4j + Lettuce), así
+ *   los límites se cumplen entre todas las instancias (app.rate-limit.store=redis)
+ */
+public interface RateLimitBucketStore {
+
+    /**
+     * Bucket de la clave, creándolo con la configuración dada si no existe
+     */
+    Bucket resolve(String key, Supplier<BucketConfiguration> configuration);
+
+    /**
+     * Buckets (o proxies de buckets remotos) retenidos en memoria en esta instancia
+     */
+    long localSize();
+
+    /**
+     * Estimación de la memoria que ocupan esos buckets en esta instancia, en bytes
+     */
+    long estimatedMemoryBytes();
+}
@@ -0,0 +1,10 @@
+package com.otakushop.ratelimit;
+
+/**
+ * A quién se le cobra cada petición en una política de rate limiting
+ */
+public enum RateLimitKey {
+    IP,           // IP del cliente (X-Forwarded-For o dirección remota)
+    USER,         // Id del usuario autenticado; sin usuario, la IP
+    USER_AND_IP   // Usuario e IP juntos (un mismo usuario desde otra IP tiene otro presupuesto)
+}
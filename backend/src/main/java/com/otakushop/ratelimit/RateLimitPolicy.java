@@ -0,0 +1,121 @@
+package com.otakushop.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Política de rate limiting compilada: patrones de ruta ya parseados y configuración de bucket
+ * construida una sola vez, para que elegir la política de una petición no reserve memoria.
+ */
+public final class RateLimitPolicy {
+
+    private final String name;
+    private final Set<String> methods;
+    private final List<PathPattern> patterns;
+    private final RateLimitKey key;
+    private final long capacity;
+    private final BucketConfiguration configuration;
+    // Incluye el límite: si una recarga cambia la política, sus buckets empiezan de cero
+    private final String bucketPrefix;
+
+    private RateLimitPolicy(RateLimitPolicyDefinition definition, List<PathPattern> patterns) {
+        this.name = definition.getName();
+        this.methods = definition.getMethods().stream()
+                .map(method -> method.trim().toUpperCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.patterns = patterns;
+        this.key = definition.getKey();
+        this.capacity = definition.getCapacity();
+        this.configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, definition.getPeriod())))
+                .build();
+        this.bucketPrefix = name + "@" + capacity + "/" + definition.getPeriod().toSeconds() + "s:";
+    }
+
+    /**
+     * Valida y compila una definición
+     *
+     * @throws IllegalArgumentException si la definición no es válida
+     */
+    public static RateLimitPolicy compile(RateLimitPolicyDefinition definition) {
+        if (definition.getName() == null || definition.getName().isBlank()) {
+            throw new IllegalArgumentException("La política de rate limiting necesita un nombre");
+        }
+        if (definition.getCapacity() <= 0) {
+            throw new IllegalArgumentException("Capacidad inválida en la política " + definition.getName());
+        }
+        if (definition.getPeriod() == null || definition.getPeriod().isNegative() || definition.getPeriod().isZero()) {
+            throw new IllegalArgumentException("Periodo inválido en la política " + definition.getName());
+        }
+        if (definition.getPaths() == null || definition.getPaths().isEmpty()) {
+            throw new IllegalArgumentException("La política " + definition.getName() + " no tiene rutas");
+        }
+        if (definition.getKey() == null) {
+            definition.setKey(RateLimitKey.IP);
+        }
+        if (definition.getMethods() == null) {
+            definition.setMethods(List.of());
+        }
+        List<PathPattern> patterns = definition.getPaths().stream()
+                .map(path -> PathPatternParser.defaultInstance.parse(path.trim()))
+                .toList();
+        return new RateLimitPolicy(definition, patterns);
+    }
+
+    /**
+     * Indica si la política aplica al método y la ruta (relativa al context-path)
+     */
+    public boolean matches(String method, PathContainer path) {
+        if (!methods.isEmpty() && !methods.contains(method)) {
+            return false;
+        }
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clave del bucket para la petición según la estrategia de la política
+     *
+     * @param ip IP del cliente
+     * @param userId usuario autenticado, o null
+     */
+    public String bucketKey(String ip, Long userId) {
+        return switch (key) {
+            case IP -> bucketPrefix + "ip:" + ip;
+            case USER -> userId != null ? bucketPrefix + "u:" + userId : bucketPrefix + "ip:" + ip;
+            case USER_AND_IP -> bucketPrefix + "u:" + userId + "|ip:" + ip;
+        };
+    }
+
+    /**
+     * Indica si la clave depende del usuario (hay que resolverlo desde el JWT)
+     */
+    public boolean keyedByUser() {
+        return key != RateLimitKey.IP;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public BucketConfiguration getConfiguration() {
+        return configuration;
+    }
+}
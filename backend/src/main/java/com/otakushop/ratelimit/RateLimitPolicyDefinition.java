@@ -0,0 +1,39 @@
+package com.otakushop.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Política de rate limiting tal como se declara en configuración (app.rate-limit.policies[n].*):
+ *
+ *   app.rate-limit.policies[0].name=checkout
+ *   app.rate-limit.policies[0].methods=POST
+ *   app.rate-limit.policies[0].paths=/checkout/process
+ *   app.rate-limit.policies[0].capacity=10
+ *   app.rate-limit.policies[0].period=1m
+ *   app.rate-limit.policies[0].key=user
+ *
+ * Las rutas son patrones de Spring (PathPattern) relativos al context-path; sin métodos, aplica a todos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RateLimitPolicyDefinition {
+    private String name;
+    @Builder.Default
+    private List<String> methods = new ArrayList<>();
+    @Builder.Default
+    private List<String> paths = new ArrayList<>();
+    private long capacity;
+    @Builder.Default
+    private Duration period = Duration.ofMinutes(1);
+    @Builder.Default
+    private RateLimitKey key = RateLimitKey.IP;
+}
@@ -0,0 +1,123 @@
+package com.otakushop.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Políticas de rate limiting vigentes, en orden: gana la primera que coincide con la petición.
+ *
+ * - Se cargan de app.rate-limit.policies[n].* (ver {@link RateLimitPolicyDefinition})
+ * - Si app.rate-limit.policies-file apunta a un .properties con las mismas claves, ese archivo
+ *   reemplaza a las de configuración y se relee al cambiar (cada app.rate-limit.reload-interval-ms),
+ *   así que los límites se ajustan sin redesplegar
+ * - Al final siempre queda la política "default" (100/min por IP para cualquier ruta)
+ * - Si una recarga trae una política inválida, se mantiene el conjunto anterior
+ */
+@Component
+@Slf4j
+public class RateLimitPolicyRegistry {
+
+    static final String PROPERTY_PREFIX = "app.rate-limit.policies";
+
+    static final RateLimitPolicyDefinition FALLBACK = RateLimitPolicyDefinition.builder()
+            .name("default")
+            .paths(List.of("/**"))
+            .capacity(100)
+            .key(RateLimitKey.IP)
+            .build();
+
+    private final Path policiesFile;
+
+    private volatile List<RateLimitPolicy> policies;
+    private volatile long fileLastModified = -1;
+
+    public RateLimitPolicyRegistry(Environment environment,
+                                   @Value("${app.rate-limit.policies-file:}") String policiesFile) {
+        this.policiesFile = StringUtils.hasText(policiesFile) ? Path.of(policiesFile) : null;
+        this.policies = compileAll(bind(Binder.get(environment)));
+        reloadIfChanged();
+        log.info("✅ Rate limiting: {} políticas cargadas{}", policies.size(),
+                this.policiesFile != null ? " (archivo " + this.policiesFile + ")" : "");
+    }
+
+    /**
+     * Política que aplica a la petición (nunca null: al menos coincide la política por defecto)
+     *
+     * @param path ruta relativa al context-path
+     */
+    public RateLimitPolicy match(String method, String path) {
+        return match(policies, method, path);
+    }
+
+    /**
+     * Relee el archivo de políticas si cambió desde la última carga
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (policiesFile == null || !Files.isReadable(policiesFile)) {
+            return;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(policiesFile).toMillis();
+            if (modified == fileLastModified) {
+                return;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(policiesFile, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            List<RateLimitPolicy> reloaded = compileAll(bind(new Binder(new MapConfigurationPropertySource(properties))));
+            policies = reloaded;
+            fileLastModified = modified;
+            log.info("✅ Políticas de rate limiting recargadas desde {}: {}", policiesFile,
+                    reloaded.stream().map(RateLimitPolicy::getName).toList());
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ No se pudieron recargar las políticas de rate limiting desde {}; se mantienen las actuales",
+                    policiesFile, e);
+        }
+    }
+
+    static RateLimitPolicy match(List<RateLimitPolicy> policies, String method, String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(method, container)) {
+                return policy;
+            }
+        }
+        return policies.get(policies.size() - 1);
+    }
+
+    /**
+     * Compila las definiciones en orden y añade la política por defecto al final
+     */
+    static List<RateLimitPolicy> compileAll(List<RateLimitPolicyDefinition> definitions) {
+        List<RateLimitPolicy> compiled = new ArrayList<>(definitions.size() + 1);
+        for (RateLimitPolicyDefinition definition : definitions) {
+            compiled.add(RateLimitPolicy.compile(definition));
+        }
+        compiled.add(RateLimitPolicy.compile(FALLBACK));
+        return List.copyOf(compiled);
+    }
+
+    private static List<RateLimitPolicyDefinition> bind(Binder binder) {
+        return binder.bind(PROPERTY_PREFIX, Bindable.listOf(RateLimitPolicyDefinition.class))
+                .orElse(List.of());
+    }
+}
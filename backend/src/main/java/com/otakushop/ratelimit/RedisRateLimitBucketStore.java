@@ -0,0 +1,115 @@
+package com.otakushop.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Buckets compartidos entre instancias (PROD): el estado de cada bucket vive en Redis y bucket4j
+ * lo actualiza con compare-and-swap, así que el límite es global y no por nodo.
+ *
+ * - Las claves de Redis expiran cuando el bucket se habría recargado por completo (más un margen),
+ *   así que Redis tampoco acumula buckets de IPs que ya no vuelven
+ * - En memoria solo se guardan los proxies (sin estado) en una caché acotada; cada proxy se descarta
+ *   tras app.rate-limit.idle-expiry-seconds sin uso o, si es mayor, el periodo de recarga de su
+ *   política (ver {@link RetainedBucket}), igual que los buckets locales
+ * - Usa su propia conexión Lettuce con la configuración spring.data.redis.*
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "redis")
+@Slf4j
+public class RedisRateLimitBucketStore implements RateLimitBucketStore {
+
+    private static final String KEY_PREFIX = "otaku:ratelimit:";
+    // Proxy + clave; el estado del bucket no ocupa memoria local
+    private static final long ESTIMATED_BYTES_PER_PROXY = 160;
+
+    private final RedisClient redisClient;
+    private final StatefulRedisConnection<byte[], byte[]> connection;
+    private final LettuceBasedProxyManager proxyManager;
+    private final Cache<String, RetainedBucket> proxies;
+    private final Duration idleExpiry;
+
+    public RedisRateLimitBucketStore(RedisProperties redisProperties,
+                                     @Value("${app.rate-limit.max-buckets:100000}") long maxBuckets,
+                                     @Value("${app.rate-limit.idle-expiry-seconds:120}") long idleExpirySeconds) {
+        this.redisClient = RedisClient.create(redisUri(redisProperties));
+        this.connection = redisClient.connect(ByteArrayCodec.INSTANCE);
+        this.proxyManager = LettuceBasedProxyManager.builderFor(connection)
+                .withExpirationStrategy(
+                        ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofSeconds(10)))
+                .build();
+        this.idleExpiry = Duration.ofSeconds(idleExpirySeconds);
+        this.proxies = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfter(new RetainedBucket.IdleExpiry())
+                .build();
+        log.info("✅ Rate limiting distribuido en Redis ({}:{})", redisProperties.getHost(), redisProperties.getPort());
+    }
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configuration) {
+        return proxies.get(key, k -> {
+            BucketConfiguration bucketConfiguration = configuration.get();
+            Bucket proxy = proxyManager.builder()
+                    .build((KEY_PREFIX + k).getBytes(StandardCharsets.UTF_8), () -> bucketConfiguration);
+            return new RetainedBucket(proxy, bucketConfiguration, idleExpiry);
+        }).bucket();
+    }
+
+    @Override
+    public long localSize() {
+        return proxies.estimatedSize();
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        return proxies.estimatedSize() * ESTIMATED_BYTES_PER_PROXY;
+    }
+
+    @PreDestroy
+    public void close() {
+        connection.close();
+        redisClient.shutdown();
+    }
+
+    private static RedisURI redisUri(RedisProperties properties) {
+        if (StringUtils.hasText(properties.getUrl())) {
+            return RedisURI.create(properties.getUrl());
+        }
+        RedisURI.Builder builder = RedisURI.builder()
+                .withHost(properties.getHost())
+                .withPort(properties.getPort())
+                .withDatabase(properties.getDatabase())
+                .withSsl(properties.getSsl().isEnabled());
+        if (StringUtils.hasText(properties.getPassword())) {
+            if (StringUtils.hasText(properties.getUsername())) {
+                builder.withAuthentication(properties.getUsername(), properties.getPassword().toCharArray());
+            } else {
+                builder.withPassword(properties.getPassword().toCharArray());
+            }
+        }
+        if (properties.getTimeout() != null) {
+            builder.withTimeout(properties.getTimeout());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.otakushop.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.time.Duration;
+
+/**
+ * Bucket (o proxy de bucket remoto) retenido en una caché local junto con el tiempo que puede
+ * pasar sin uso antes de descartarlo.
+ *
+ * Ese tiempo es el mayor entre app.rate-limit.idle-expiry-seconds y el periodo de recarga más
+ * largo de la configuración: un bucket se recrea lleno, así que descartarlo antes de que se
+ * hubiera recargado por completo reiniciaría el límite de quien lo agotó.
+ */
+final class RetainedBucket {
+
+    private final Bucket bucket;
+    private final long idleNanos;
+
+    RetainedBucket(Bucket bucket, BucketConfiguration configuration, Duration minIdle) {
+        long idleNanos = minIdle.toNanos();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            idleNanos = Math.max(idleNanos, bandwidth.getRefillPeriodNanos());
+        }
+        this.bucket = bucket;
+        this.idleNanos = idleNanos;
+    }
+
+    Bucket bucket() {
+        return bucket;
+    }
+
+    long idleNanos() {
+        return idleNanos;
+    }
+
+    /**
+     * Expiración por entrada: cada acceso renueva el tiempo sin uso propio del bucket
+     */
+    static final class IdleExpiry implements Expiry<String, RetainedBucket> {
+
+        @Override
+        public long expireAfterCreate(String key, RetainedBucket value, long currentTime) {
+            return value.idleNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, RetainedBucket value, long currentTime, long currentDuration) {
+            return value.idleNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, RetainedBucket value, long currentTime, long currentDuration) {
+            return value.idleNanos;
+        }
+    }
+}
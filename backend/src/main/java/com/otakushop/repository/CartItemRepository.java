@@ -1,9 +1,11 @@
 package com.otakushop.repository;
 
+import com.otakushop.dto.CartItemDTO;
 import com.otakushop.entity.CartItem;
 import com.otakushop.entity.Product;
 import com.otakushop.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,8 +22,40 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     
     void deleteByUserId(Long userId);
     
+    /**
+     * Borrado directo por id; devuelve 0 si otra transacción ya lo eliminó
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.id = :id")
+    int deleteItemById(@Param("id") Long id);
+    
     Long countByUserId(Long userId);
     
+    /**
+     * Items del carrito ya proyectados a DTO con los datos del producto (un solo JOIN, sin N+1)
+     */
+    @Query("""
+        SELECT new com.otakushop.dto.CartItemDTO(
+            ci.id, p.id, p.name, p.imageUrl, p.price, p.stock, ci.quantity,
+            p.price * ci.quantity, ci.createdAt, ci.updatedAt)
+        FROM CartItem ci JOIN ci.product p
+        WHERE ci.user.id = :userId
+        ORDER BY ci.createdAt, ci.id
+    """)
+    List<CartItemDTO> findSummaryItemsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Usuarios con el producto en su carrito (invalidación de la caché de carritos)
+     */
+    @Query("SELECT DISTINCT ci.user.id FROM CartItem ci WHERE ci.product.id = :productId AND ci.user IS NOT NULL")
+    List<Long> findUserIdsByProductId(@Param("productId") Long productId);
+    
+    /**
+     * Unidades de un producto en todos los carritos (reconciliación de ventas flash)
+     */
+    @Query("SELECT COALESCE(SUM(ci.quantity), 0) FROM CartItem ci WHERE ci.product.id = :productId")
+    long sumQuantityByProductId(@Param("productId") Long productId);
+    
     // ✅ NUEVAS: Búsquedas para carrito anónimo (session_id)
     List<CartItem> findBySessionId(String sessionId);
     
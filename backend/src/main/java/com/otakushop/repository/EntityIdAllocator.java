@@ -0,0 +1,38 @@
+package com.otakushop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids para los INSERT escritos a mano sobre tablas con secuencia pooled (allocationSize = 50).
+ *
+ * Un nextval por fila en SQL gastaría un bloque de 50 por cada fila. Aquí los ids salen del mismo
+ * generador de Hibernate que usa persist() para la entidad: un nextval cada 50 ids y sin choques con
+ * los bloques que reparte a las entidades. Requiere una transacción activa (el nextval va por su conexión).
+ */
+@Component
+public class EntityIdAllocator {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Reserva count ids consecutivos del generador de la entidad
+     */
+    public Long[] nextIds(Class<?> entityClass, int count) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        IdentifierGenerator generator = (IdentifierGenerator) factory.getMappingMetamodel()
+                .getEntityDescriptor(entityClass)
+                .getGenerator();
+        Long[] ids = new Long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = ((Number) generator.generate(session, null)).longValue();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,27 @@
+package com.otakushop.repository;
+
+import com.otakushop.entity.FlashSale;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FlashSaleRepository extends JpaRepository<FlashSale, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FlashSale f WHERE f.productId = :productId")
+    Optional<FlashSale> findByIdForUpdate(@Param("productId") Long productId);
+
+    /**
+     * Ventas flash que esta instancia puede cargar: las suyas y las de instancias que dejaron de renovar
+     */
+    @Query("SELECT f.productId FROM FlashSale f WHERE f.ownerNode = :node OR f.leaseUntil < :now")
+    List<Long> findClaimableIds(@Param("node") String node, @Param("now") LocalDateTime now);
+}
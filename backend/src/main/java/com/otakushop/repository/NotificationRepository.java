@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,10 +20,26 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     
     List<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(Long userId);
     
-    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false")
-    Long countUnreadByUserId(@Param("userId") Long userId);
+    /**
+     * No leídas de varios usuarios en una consulta (usuarios sin no leídas no aparecen)
+     */
+    @Query("""
+        SELECT n.user.id AS userId, COUNT(n) AS total
+        FROM Notification n
+        WHERE n.user.id IN :userIds AND n.isRead = false
+        GROUP BY n.user.id
+    """)
+    List<UnreadCount> countUnreadByUserIds(@Param("userIds") Collection<Long> userIds);
     
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
-    void markAllAsReadForUser(@Param("userId") Long userId);
+    int markAllAsReadForUser(@Param("userId") Long userId);
+    
+    /**
+     * Fila del conteo: usuario y cantidad de notificaciones no leídas
+     */
+    interface UnreadCount {
+        Long getUserId();
+        Long getTotal();
+    }
 }
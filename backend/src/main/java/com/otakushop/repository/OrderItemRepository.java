@@ -2,10 +2,23 @@ package com.otakushop.repository;
 
 import com.otakushop.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, OrderItemRepositoryCustom {
     List<OrderItem> findByOrderId(Long orderId);
+
+    /**
+     * Unidades de un producto en órdenes no canceladas (reconciliación de ventas flash)
+     */
+    @Query("""
+        SELECT COALESCE(SUM(oi.quantity), 0)
+        FROM OrderItem oi
+        WHERE oi.product.id = :productId
+        AND oi.order.status <> com.otakushop.entity.OrderStatus.CANCELLED
+    """)
+    long sumActiveQuantityByProductId(@Param("productId") Long productId);
 }
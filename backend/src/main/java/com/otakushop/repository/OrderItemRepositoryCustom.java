@@ -0,0 +1,19 @@
+package com.otakushop.repository;
+
+import com.otakushop.entity.OrderItem;
+
+import java.util.List;
+
+/**
+ * Escritura masiva de líneas de orden.
+ * Las líneas se envían en un solo lote JDBC con ids del generador pooled de OrderItem, sin pasar
+ * por el contexto de persistencia (ni por Order.items).
+ */
+public interface OrderItemRepositoryCustom {
+
+    /**
+     * Inserta las líneas de una orden ya persistida en un único batch y les asigna sus ids.
+     * Las entidades no quedan en el contexto de persistencia (no agregarlas a Order.items).
+     */
+    void batchInsert(List<OrderItem> items);
+}
@@ -0,0 +1,65 @@
+package com.otakushop.repository;
+
+import com.otakushop.entity.OrderItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Implementación de {@link OrderItemRepositoryCustom} con JdbcTemplate.batchUpdate
+ * (misma conexión y transacción que el EntityManager). Los ids salen del generador pooled de
+ * OrderItem ({@link EntityIdAllocator}), no de un nextval por fila.
+ */
+public class OrderItemRepositoryImpl implements OrderItemRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, subtotal,
+            product_name, product_image_url, created_by, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityIdAllocator idAllocator;
+
+    @Override
+    public void batchInsert(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Long[] ids = idAllocator.nextIds(OrderItem.class, items.size());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OrderItem item = items.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, item.getOrder().getId());
+                ps.setLong(3, item.getProduct().getId());
+                ps.setInt(4, item.getQuantity());
+                ps.setBigDecimal(5, item.getUnitPrice());
+                ps.setBigDecimal(6, item.getSubtotal());
+                ps.setString(7, item.getProductName());
+                ps.setString(8, item.getProductImageUrl());
+                ps.setString(9, item.getCreatedBy());
+                ps.setTimestamp(10, Timestamp.valueOf(item.getCreatedAt()));
+                ps.setTimestamp(11, Timestamp.valueOf(item.getUpdatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setId(ids[i]);
+        }
+    }
+}
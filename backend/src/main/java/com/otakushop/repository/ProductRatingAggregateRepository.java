@@ -0,0 +1,66 @@
+package com.otakushop.repository;
+
+import com.otakushop.entity.ProductRatingAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingAggregateRepository extends JpaRepository<ProductRatingAggregate, Long> {
+
+    /**
+     * Crea el agregado del producto si no existe, partiendo de las reseñas ya guardadas.
+     * Debe llamarse antes de modificar reseñas, para que el incremento posterior no cuente dos veces.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO product_rating_aggregates
+            (product_id, review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5)
+        SELECT :productId, COUNT(r.id), COALESCE(SUM(r.rating), 0),
+            COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2),
+            COUNT(*) FILTER (WHERE r.rating = 3), COUNT(*) FILTER (WHERE r.rating = 4),
+            COUNT(*) FILTER (WHERE r.rating = 5)
+        FROM reviews r WHERE r.product_id = :productId
+        ON CONFLICT (product_id) DO NOTHING
+    """, nativeQuery = true)
+    int ensureAggregate(@Param("productId") Long productId);
+
+    /**
+     * Crea los agregados que falten para todos los productos con reseñas (al arrancar)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO product_rating_aggregates
+            (product_id, review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5)
+        SELECT r.product_id, COUNT(r.id), COALESCE(SUM(r.rating), 0),
+            COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2),
+            COUNT(*) FILTER (WHERE r.rating = 3), COUNT(*) FILTER (WHERE r.rating = 4),
+            COUNT(*) FILTER (WHERE r.rating = 5)
+        FROM reviews r GROUP BY r.product_id
+        ON CONFLICT (product_id) DO NOTHING
+    """, nativeQuery = true)
+    int backfillMissing();
+
+    /**
+     * Aplica una variación atómica (sin leer-modificar-escribir)
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE product_rating_aggregates SET
+            review_count = review_count + :count,
+            rating_sum = rating_sum + :sum,
+            rating_1 = rating_1 + :d1, rating_2 = rating_2 + :d2, rating_3 = rating_3 + :d3,
+            rating_4 = rating_4 + :d4, rating_5 = rating_5 + :d5
+        WHERE product_id = :productId
+    """, nativeQuery = true)
+    int applyDelta(@Param("productId") Long productId,
+                   @Param("count") long count,
+                   @Param("sum") long sum,
+                   @Param("d1") long d1,
+                   @Param("d2") long d2,
+                   @Param("d3") long d3,
+                   @Param("d4") long d4,
+                   @Param("d5") long d5);
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     
     /**
      * Busca un producto por ID con bloqueo pesimista para actualizaciones de stock.
@@ -21,6 +22,31 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT p FROM Product p WHERE p.id = :id")
     Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Descuento atómico de stock: solo afecta la fila si hay stock suficiente.
+     * Devuelve las filas afectadas (1 = descontado, 0 = stock insuficiente, producto inexistente o
+     * en venta flash: ese stock solo lo asigna el ledger de la instancia dueña).
+     * El cast explícito evita que Hibernate tipe el parámetro con el columnDefinition de stock
+     * ("INTEGER DEFAULT 0"), que H2 rechaza dentro de un CAST.
+     */
+    @Modifying
+    @Query("""
+        UPDATE Product p SET p.stock = p.stock - cast(:quantity as Integer)
+        WHERE p.id = :id AND p.stock >= :quantity
+        AND NOT EXISTS (SELECT f FROM FlashSale f WHERE f.productId = :id)
+    """)
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Devolución atómica de stock
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + cast(:quantity as Integer) WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Query("SELECT p.stock FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
     
     /**
      * Prevenir N+1 queries al cargar productos con vendor
@@ -31,7 +57,51 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     List<Product> findByCategory(String category);
     List<Product> findByNameContainingIgnoreCase(String name);
+
+    /**
+     * Búsqueda full-text rankeada sobre la columna generada search_vector (índice GIN).
+     * El ranking se calcula solo sobre las primeras :candidates coincidencias para que
+     * la latencia no dependa de cuántos productos contienen un término muy común.
+     */
+    @Query(value = """
+        SELECT p.* FROM (
+            SELECT c.id, ts_rank_cd(c.search_vector, query) AS rank
+            FROM products c, to_tsquery('simple', :tsquery) query
+            WHERE c.search_vector @@ query
+              AND c.active = true
+              AND c.status = 'APPROVED'
+            LIMIT :candidates
+        ) ranked
+        JOIN products p ON p.id = ranked.id
+        ORDER BY ranked.rank DESC, p.created_at DESC, p.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Product> searchApprovedRanked(@Param("tsquery") String tsquery,
+                                       @Param("candidates") int candidates,
+                                       @Param("limit") int limit);
     
+    /**
+     * Id, nombre y categoría de los productos visibles (carga del índice de autocompletado)
+     */
+    @Query("SELECT p.id, p.name, p.category FROM Product p " +
+           "WHERE p.active = true AND p.status = com.otakushop.entity.ProductStatus.APPROVED")
+    List<Object[]> findApprovedSuggestionRows();
+
+    /**
+     * Id, nombre y categoría de un producto si es visible (vacío si no existe o no está aprobado y activo)
+     */
+    @Query("SELECT p.id, p.name, p.category FROM Product p " +
+           "WHERE p.id = :id AND p.active = true AND p.status = com.otakushop.entity.ProductStatus.APPROVED")
+    List<Object[]> findApprovedSuggestionRow(@Param("id") Long id);
+
+    /**
+     * Productos visibles para clientes, en el mismo orden que el catálogo (created_at, id)
+     */
+    @Query("SELECT p FROM Product p " +
+           "WHERE p.active = true AND p.status = com.otakushop.entity.ProductStatus.APPROVED " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findApprovedActive();
+
     @Query("SELECT p FROM Product p WHERE p.active = true AND " +
            "(:category IS NULL OR p.category = :category) AND " +
            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
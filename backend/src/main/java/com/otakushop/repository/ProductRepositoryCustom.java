@@ -0,0 +1,38 @@
+package com.otakushop.repository;
+
+import com.otakushop.dto.ProductFilter;
+import com.otakushop.entity.Product;
+import com.otakushop.util.KeysetCursor;
+
+import java.util.List;
+
+/**
+ * Consultas dinámicas del catálogo que se resuelven en la base de datos.
+ * Solo se agregan los predicados de los filtros presentes para que el planner
+ * pueda usar idx_product_active_status / idx_product_category.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Página keyset ordenada por (created_at DESC, id DESC).
+     *
+     * @param after cursor de la última fila ya entregada (null = primera página)
+     * @param limit cantidad máxima de filas a devolver
+     */
+    List<Product> findApprovedByFilter(ProductFilter filter, KeysetCursor after, int limit);
+
+    /**
+     * Página por offset (modo legacy page/limit)
+     */
+    List<Product> findApprovedByFilter(ProductFilter filter, int offset, int limit);
+
+    /**
+     * Cuenta exacta de productos aprobados que cumplen el filtro
+     */
+    long countApprovedByFilter(ProductFilter filter);
+
+    /**
+     * Cuenta acotada: deja de contar al llegar a cap, así el costo no crece con el catálogo
+     */
+    long countApprovedByFilter(ProductFilter filter, int cap);
+}
@@ -0,0 +1,121 @@
+package com.otakushop.repository;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.dto.ProductFilter;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.util.KeysetCursor;
+import com.otakushop.util.TextNormalizer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación de {@link ProductRepositoryCustom} con SQL nativo construido según los filtros presentes.
+ * Es nativo para poder usar la columna generada search_vector (no mapeada en la entidad).
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductSearchSchemaProbe searchSchema;
+
+    @Override
+    public List<Product> findApprovedByFilter(ProductFilter filter, KeysetCursor after, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT p.* FROM products p");
+        sql.append(buildWhere(filter, params));
+
+        if (after != null) {
+            sql.append(" AND (p.created_at < :cursorCreatedAt")
+               .append(" OR (p.created_at = :cursorCreatedAt AND p.id < :cursorId))");
+            params.put("cursorCreatedAt", after.getCreatedAt());
+            params.put("cursorId", after.getId());
+        }
+        sql.append(" ORDER BY p.created_at DESC, p.id DESC");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Product.class);
+        params.forEach(query::setParameter);
+        return resultList(query.setMaxResults(limit));
+    }
+
+    @Override
+    public List<Product> findApprovedByFilter(ProductFilter filter, int offset, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String sql = "SELECT p.* FROM products p" + buildWhere(filter, params)
+                + " ORDER BY p.created_at DESC, p.id DESC";
+
+        Query query = entityManager.createNativeQuery(sql, Product.class);
+        params.forEach(query::setParameter);
+        return resultList(query.setFirstResult(offset).setMaxResults(limit));
+    }
+
+    @Override
+    public long countApprovedByFilter(ProductFilter filter) {
+        Map<String, Object> params = new HashMap<>();
+        String sql = "SELECT COUNT(*) FROM products p" + buildWhere(filter, params);
+
+        Query query = entityManager.createNativeQuery(sql);
+        params.forEach(query::setParameter);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    @Override
+    public long countApprovedByFilter(ProductFilter filter, int cap) {
+        Map<String, Object> params = new HashMap<>();
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM products p" + buildWhere(filter, params)
+                + " LIMIT :cap) capped";
+        params.put("cap", cap);
+
+        Query query = entityManager.createNativeQuery(sql);
+        params.forEach(query::setParameter);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * Construye el WHERE con los predicados de los filtros presentes
+     */
+    private String buildWhere(ProductFilter filter, Map<String, Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE p.active = true AND p.status = :status");
+        params.put("status", ProductStatus.APPROVED.name());
+
+        if (filter == null) {
+            return where.toString();
+        }
+        if (StringUtils.hasText(filter.getCategory())) {
+            where.append(" AND p.category = :category");
+            params.put("category", filter.getCategory());
+        }
+        if (filter.getMinPrice() != null) {
+            where.append(" AND p.price >= :minPrice");
+            params.put("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            where.append(" AND p.price <= :maxPrice");
+            params.put("maxPrice", filter.getMaxPrice());
+        }
+
+        String tsQuery = TextNormalizer.toPrefixTsQuery(filter.getSearch());
+        if (tsQuery != null && searchSchema.isAvailable()) {
+            where.append(" AND p.search_vector @@ to_tsquery('simple', :tsquery)");
+            params.put("tsquery", tsQuery);
+        } else if (StringUtils.hasText(filter.getSearch())) {
+            where.append(" AND (LOWER(p.name) LIKE :search OR LOWER(p.description) LIKE :search)");
+            params.put("search", "%" + filter.getSearch().trim().toLowerCase() + "%");
+        }
+        return where.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Product> resultList(Query query) {
+        return query.getResultList();
+    }
+}
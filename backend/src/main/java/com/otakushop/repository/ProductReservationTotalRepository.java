@@ -0,0 +1,102 @@
+package com.otakushop.repository;
+
+import com.otakushop.entity.ProductReservationTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductReservationTotalRepository extends JpaRepository<ProductReservationTotal, Long> {
+
+    @Query("SELECT t.reserved FROM ProductReservationTotal t WHERE t.productId = :productId")
+    Optional<Integer> findReservedByProductId(@Param("productId") Long productId);
+
+    /**
+     * Stock y unidades reservadas de varios productos en una sola consulta: [productId, stock, reserved]
+     */
+    @Query(value = """
+        SELECT p.id, p.stock, COALESCE(t.reserved, 0)
+        FROM products p
+        LEFT JOIN product_reservation_totals t ON t.product_id = p.id
+        WHERE p.id IN (:productIds)
+    """, nativeQuery = true)
+    List<Object[]> findStockAndReservedByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT t.productId FROM ProductReservationTotal t")
+    List<Long> findAllProductIds();
+
+    /**
+     * Crea el contador del producto si no existe, partiendo de las reservas pendientes
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO product_reservation_totals (product_id, reserved)
+        SELECT :productId, COALESCE(SUM(sr.quantity), 0) FROM stock_reservations sr
+        WHERE sr.product_id = :productId AND sr.order_id IS NULL
+        ON CONFLICT (product_id) DO NOTHING
+    """, nativeQuery = true)
+    int ensureRow(@Param("productId") Long productId);
+
+    /**
+     * Crea los contadores que faltan para productos con reservas pendientes (datos anteriores al
+     * contador, o reservas creadas sin pasar por ensureRow). Devuelve los contadores creados.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO product_reservation_totals (product_id, reserved)
+        SELECT sr.product_id, SUM(sr.quantity) FROM stock_reservations sr
+        WHERE sr.order_id IS NULL
+        GROUP BY sr.product_id
+        ON CONFLICT (product_id) DO NOTHING
+    """, nativeQuery = true)
+    int createMissingRows();
+
+    /**
+     * Suma unidades reservadas solo si caben en el stock (stock - reservado >= cantidad).
+     * Devuelve 0 si no hay disponibilidad o el producto está en venta flash (reserva el ledger de la
+     * instancia dueña); el lock de la fila serializa reservas concurrentes del producto.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE product_reservation_totals t SET reserved = t.reserved + :quantity
+        FROM products p
+        WHERE t.product_id = :productId AND p.id = t.product_id
+        AND p.stock - t.reserved >= :quantity
+        AND NOT EXISTS (SELECT 1 FROM flash_sales f WHERE f.product_id = :productId)
+    """, nativeQuery = true)
+    int tryReserve(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Suma unidades reservadas sin comprobar stock (la disponibilidad la decidió otro componente)
+     */
+    @Modifying
+    @Query("UPDATE ProductReservationTotal t SET t.reserved = t.reserved + :quantity WHERE t.productId = :productId")
+    int add(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Resta unidades liberadas (sin bajar de 0)
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE product_reservation_totals SET reserved = GREATEST(reserved - :quantity, 0)
+        WHERE product_id = :productId
+    """, nativeQuery = true)
+    int release(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Bloquea el contador del producto (reconciliación)
+     */
+    @Query(value = "SELECT reserved FROM product_reservation_totals WHERE product_id = :productId FOR UPDATE",
+           nativeQuery = true)
+    Optional<Integer> lockReserved(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("UPDATE ProductReservationTotal t SET t.reserved = :reserved WHERE t.productId = :productId")
+    int setReserved(@Param("productId") Long productId, @Param("reserved") int reserved);
+}
@@ -1,5 +1,6 @@
 package com.otakushop.repository;
 
+import com.otakushop.dto.ReviewResponse;
 import com.otakushop.entity.Review;
 import com.otakushop.entity.Product;
 import com.otakushop.entity.User;
@@ -10,26 +11,72 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     
-    Page<Review> findByProductId(Long productId, Pageable pageable);
+    /**
+     * Página de reseñas de un producto ya proyectada a DTO (un JOIN + un COUNT, sin N+1)
+     */
+    @Query(value = """
+        SELECT new com.otakushop.dto.ReviewResponse(
+            r.id, p.id, p.name, u.id, u.name, r.rating, r.comment, r.verified,
+            r.createdAt, r.updatedAt, r.vendorResponse, r.vendorResponseDate)
+        FROM Review r JOIN r.product p JOIN r.user u
+        WHERE r.product.id = :productId
+    """, countQuery = "SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId")
+    Page<ReviewResponse> findResponsesByProductId(@Param("productId") Long productId, Pageable pageable);
     
-    Page<Review> findByUserId(Long userId, Pageable pageable);
+    /**
+     * Página de reseñas de un usuario ya proyectada a DTO (un JOIN + un COUNT, sin N+1)
+     */
+    @Query(value = """
+        SELECT new com.otakushop.dto.ReviewResponse(
+            r.id, p.id, p.name, u.id, u.name, r.rating, r.comment, r.verified,
+            r.createdAt, r.updatedAt, r.vendorResponse, r.vendorResponseDate)
+        FROM Review r JOIN r.product p JOIN r.user u
+        WHERE r.user.id = :userId
+    """, countQuery = "SELECT COUNT(r) FROM Review r WHERE r.user.id = :userId")
+    Page<ReviewResponse> findResponsesByUserId(@Param("userId") Long userId, Pageable pageable);
     
     Optional<Review> findByProductIdAndUserId(Long productId, Long userId);
     
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.product.id = :productId")
-    Double getAverageRatingByProductId(@Param("productId") Long productId);
-    
     @Query("SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId")
     Long countByProductId(@Param("productId") Long productId);
     
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId AND r.rating = :rating")
-    Long countByProductIdAndRating(@Param("productId") Long productId, @Param("rating") Integer rating);
+    /**
+     * Histograma de estrellas de un producto en una sola consulta
+     */
+    @Query("""
+        SELECT r.product.id AS productId, r.rating AS rating, COUNT(r) AS total
+        FROM Review r
+        WHERE r.product.id = :productId
+        GROUP BY r.product.id, r.rating
+    """)
+    List<RatingCount> countRatingsByProductId(@Param("productId") Long productId);
+    
+    /**
+     * Histograma de estrellas de varios productos en una sola consulta (listados)
+     */
+    @Query("""
+        SELECT r.product.id AS productId, r.rating AS rating, COUNT(r) AS total
+        FROM Review r
+        WHERE r.product.id IN :productIds
+        GROUP BY r.product.id, r.rating
+    """)
+    List<RatingCount> countRatingsByProductIds(@Param("productIds") Collection<Long> productIds);
     
     boolean existsByProductIdAndUserId(Long productId, Long userId);
+    
+    /**
+     * Fila del histograma: producto, estrellas y cantidad de reseñas
+     */
+    interface RatingCount {
+        Long getProductId();
+        Integer getRating();
+        Long getTotal();
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,11 +24,55 @@ public interface StockReservationRepository extends JpaRepository<StockReservati
     """)
     int sumQuantityByProductAndNotExpired(@Param("productId") Long productId);
     
+    /**
+     * Cantidad reservada pendiente (no confirmada, aún no liberada) para reconciliar el contador
+     */
+    @Query("""
+        SELECT COALESCE(SUM(sr.quantity), 0)
+        FROM StockReservation sr
+        WHERE sr.product.id = :productId
+        AND sr.orderId IS NULL
+    """)
+    int sumPendingQuantityByProduct(@Param("productId") Long productId);
+    
     /**
      * Obtiene reservas expiradas que no han sido confirmadas en orden
      */
     List<StockReservation> findByExpiresAtBeforeAndOrderIdIsNull(LocalDateTime expiresAt);
     
+    /**
+     * Reservas pendientes (id, expiresAt) en orden de vencimiento, por idx_res_expires.
+     * Se usa para rehidratar la rueda de vencimientos al arrancar.
+     */
+    @Query("""
+        SELECT sr.id, sr.expiresAt
+        FROM StockReservation sr
+        WHERE sr.orderId IS NULL
+        ORDER BY sr.expiresAt
+    """)
+    List<Object[]> findPendingExpiries();
+    
+    /**
+     * Borra en bloque las reservas vencidas indicadas y devuelve (product_id, quantity) de las borradas.
+     * Las ya confirmadas, eliminadas o con vencimiento posterior no se tocan.
+     */
+    @Query(value = """
+        DELETE FROM stock_reservations
+        WHERE id IN (:ids) AND order_id IS NULL AND expires_at <= :now
+        RETURNING product_id, quantity
+    """, nativeQuery = true)
+    List<Object[]> deleteExpiredByIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    /**
+     * Borra en bloque todas las reservas vencidas (barrido de respaldo) y devuelve (product_id, quantity)
+     */
+    @Query(value = """
+        DELETE FROM stock_reservations
+        WHERE expires_at <= :now AND order_id IS NULL
+        RETURNING product_id, quantity
+    """, nativeQuery = true)
+    List<Object[]> deleteAllExpired(@Param("now") LocalDateTime now);
+    
     /**
      * Obtiene todas las reservas de un usuario para un producto
      */
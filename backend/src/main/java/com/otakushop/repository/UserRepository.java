@@ -2,11 +2,26 @@ package com.otakushop.repository;
 
 import com.otakushop.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    
+    /**
+     * Rol y habilitado del usuario, sin cargar la entidad: [role, enabled]
+     */
+    @Query("SELECT u.role, u.enabled FROM User u WHERE u.id = :id")
+    List<Object[]> findRoleAndEnabledById(@Param("id") Long id);
+    
+    /**
+     * Email del usuario (destino de sus mensajes WebSocket), sin cargar la entidad
+     */
+    @Query("SELECT u.email FROM User u WHERE u.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
 }
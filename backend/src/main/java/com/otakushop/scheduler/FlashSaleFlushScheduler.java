@@ -0,0 +1,28 @@
+package com.otakushop.scheduler;
+
+import com.otakushop.service.FlashSaleStockLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Escribe en lote el stock acumulado por el ledger de ventas flash y renueva la propiedad de las
+ * ventas flash de esta instancia (tomando las de instancias caídas)
+ * Patrón: fixedDelay para que dos ejecuciones nunca se solapen
+ */
+@Component
+@RequiredArgsConstructor
+public class FlashSaleFlushScheduler {
+
+    private final FlashSaleStockLedger flashSaleLedger;
+
+    @Scheduled(fixedDelayString = "${app.flash-sale.flush-interval-ms:500}")
+    public void flush() {
+        flashSaleLedger.flush();
+    }
+
+    @Scheduled(fixedDelayString = "${app.flash-sale.lease-renew-interval-ms:10000}")
+    public void renewLeases() {
+        flashSaleLedger.renewLeases();
+    }
+}
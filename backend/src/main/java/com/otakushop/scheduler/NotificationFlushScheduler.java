@@ -0,0 +1,22 @@
+package com.otakushop.scheduler;
+
+import com.otakushop.service.NotificationDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Escribe en lote las notificaciones encoladas y las envía por WebSocket
+ * Patrón: fixedDelay para que dos flush nunca se solapen
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationFlushScheduler {
+
+    private final NotificationDispatcher notificationDispatcher;
+
+    @Scheduled(fixedDelayString = "${app.notifications.flush-interval-ms:200}")
+    public void flush() {
+        notificationDispatcher.flush();
+    }
+}
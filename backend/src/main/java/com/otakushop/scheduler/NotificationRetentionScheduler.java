@@ -0,0 +1,28 @@
+package com.otakushop.scheduler;
+
+import com.otakushop.service.NotificationRetentionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Archiva o purga las notificaciones leídas antiguas (ver NotificationRetentionService)
+ * Patrón: cron en hora valle; cada lote va en su propia transacción
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationRetentionScheduler {
+
+    private final NotificationRetentionService retentionService;
+
+    @Scheduled(cron = "${app.notifications.retention.cron:0 30 3 * * *}")
+    public void runRetention() {
+        try {
+            retentionService.runRetention();
+        } catch (Exception e) {
+            log.error("❌ Error en la retención de notificaciones", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.otakushop.scheduler;
+
+import com.otakushop.service.RatingAggregateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Escribe en lote la valoración (rating/reviews) de los productos con reseñas nuevas o editadas
+ * Patrón: fixedDelay para que dos flush nunca se solapen
+ */
+@Component
+@RequiredArgsConstructor
+public class RatingAggregateFlushScheduler {
+
+    private final RatingAggregateService ratingAggregateService;
+
+    @Scheduled(fixedDelayString = "${app.ratings.flush-interval-ms:2000}")
+    public void flush() {
+        ratingAggregateService.flush();
+    }
+}
@@ -1,41 +1,43 @@
 package com.otakushop.scheduler;
 
-import com.otakushop.repository.StockReservationRepository;
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.service.ReservationExpiryService;
+import com.otakushop.service.StockReservationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import java.time.LocalDateTime;
 
 /**
- * Scheduler para limpiar reservas de stock expiradas
- * Ejecuta cada 5 minutos para liberar stock que no fue confirmado en orden
+ * Barrido de respaldo de reservas de stock expiradas.
+ * Los vencimientos normales los libera ReservationExpiryService en su expiresAt exacto; este
+ * barrido recoge las reservas creadas por otras instancias o que la rueda no llegó a procesar.
+ *
+ * También reconcilia periódicamente los contadores de product_reservation_totals con stock_reservations.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class StockReservationScheduler {
     
-    private final StockReservationRepository stockReservationRepository;
+    private final ReservationExpiryService reservationExpiryService;
+    private final StockReservationService stockReservationService;
+    private final ProductReservationTotalRepository reservationTotalRepository;
     
     /**
-     * Ejecuta cada 5 minutos para liberar reservas expiradas
+     * Ejecuta cada 5 minutos un único DELETE de las reservas vencidas
      * Patrón: fixedRate en milisegundos (300000ms = 5 minutos)
      */
     @Scheduled(fixedRate = 300000, initialDelay = 60000)
     @Transactional
     public void releaseExpiredReservations() {
         try {
-            LocalDateTime now = LocalDateTime.now();
+            int released = reservationExpiryService.sweepExpired();
             
-            // Buscar reservas que expiraron y NO están confirmadas en orden
-            var expiredReservations = stockReservationRepository
-                .findByExpiresAtBeforeAndOrderIdIsNull(now);
-            
-            if (!expiredReservations.isEmpty()) {
-                stockReservationRepository.deleteAll(expiredReservations);
-                log.info("✅ Liberadas {} reservas de stock expiradas", expiredReservations.size());
+            if (released > 0) {
+                log.info("✅ Barrido de respaldo: liberadas {} reservas de stock expiradas (pendientes en rueda: {})",
+                    released, reservationExpiryService.pending());
             } else {
                 log.debug("No expired stock reservations to release");
             }
@@ -44,4 +46,37 @@ public class StockReservationScheduler {
             log.error("❌ Error liberando reservas expiradas", e);
         }
     }
+    
+    /**
+     * Reconcilia los contadores de unidades reservadas, un producto por transacción
+     * para no retener los locks de todos a la vez. Antes crea los contadores que falten: sin fila,
+     * el producto leería 0 reservadas y la reconciliación no lo visitaría.
+     */
+    @Scheduled(fixedDelayString = "${app.reservations.reconcile-interval-ms:600000}", initialDelay = 120000)
+    public void reconcileReservedTotals() {
+        try {
+            int created = stockReservationService.createMissingReservedTotals();
+            if (created > 0) {
+                log.warn("Reconciliación de reservas: {} contadores creados para productos con reservas pendientes", created);
+            }
+        } catch (Exception e) {
+            log.error("❌ Error creando los contadores de reservas que faltan", e);
+        }
+
+        int corrected = 0;
+        for (Long productId : reservationTotalRepository.findAllProductIds()) {
+            try {
+                if (stockReservationService.reconcileReservedQuantity(productId) != 0) {
+                    corrected++;
+                }
+            } catch (Exception e) {
+                log.error("❌ Error reconciliando el contador de reservas del producto {}", productId, e);
+            }
+        }
+        if (corrected > 0) {
+            log.warn("Reconciliación de reservas: {} contadores corregidos", corrected);
+        } else {
+            log.debug("Reservation counters are consistent");
+        }
+    }
 }
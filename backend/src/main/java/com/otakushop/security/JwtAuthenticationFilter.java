@@ -1,12 +1,17 @@
 package com.otakushop.security;
 
+import com.otakushop.cache.UserState;
+import com.otakushop.cache.UserStateCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -14,13 +19,30 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 
+/**
+ * Autenticación por JWT: el token se parsea y verifica una sola vez por petición.
+ *
+ * Con app.security.jwt.stateless=true (por defecto) el principal se construye con los claims
+ * (subject, userId, role) sin cargar el usuario; solo se consulta {@link UserStateCache} para
+ * rechazar usuarios suspendidos y aplicar el rol actual. Con false se carga el usuario desde BD
+ * en cada petición (modo anterior). Los tokens sin claim userId siempre usan la carga desde BD.
+ *
+ * El id del usuario queda en el atributo {@link #USER_ID_ATTRIBUTE} de la petición.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    public static final String USER_ID_ATTRIBUTE = "otakushop.userId";
+
     private final JwtTokenProvider tokenProvider;
     private final CustomUserDetailsService userDetailsService;
+    private final UserStateCache userStateCache;
+
+    @Value("${app.security.jwt.stateless:true}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -38,18 +60,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userEmail = tokenProvider.getUserEmailFromJWT(jwt);
-                var userDetails = userDetailsService.loadUserByUsername(userEmail);
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseClaims(jwt) : null;
 
-                log.debug("User authorities: {}", userDetails.getAuthorities());
+            if (claims != null) {
+                String userEmail = claims.getSubject();
+                UserPrincipal principal = buildPrincipal(claims);
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                if (principal != null) {
+                    log.debug("User authorities: {}", principal.getAuthorities());
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-                log.debug("User authenticated with email: {}", userEmail);
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    request.setAttribute(USER_ID_ATTRIBUTE, principal.getId());
+                    log.debug("User authenticated with email: {}", userEmail);
+                }
             } else if (StringUtils.hasText(jwt)) {
                 log.warn("JWT validation failed for token");
             } else {
@@ -62,6 +89,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Principal de la petición: desde los claims (sin estado) o cargando el usuario desde BD
+     *
+     * @return null si el usuario ya no existe o está suspendido
+     */
+    private UserPrincipal buildPrincipal(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+        if (!stateless || userId == null) {
+            return (UserPrincipal) userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        UserState state = userStateCache.get(userId.longValue());
+        if (!state.isActive()) {
+            log.warn("JWT rejected: user {} no longer exists or is disabled", userId);
+            return null;
+        }
+        // El rol vigente manda sobre el del token (cambios de rol antes de que el token expire)
+        return new UserPrincipal(
+                userId.longValue(),
+                claims.getSubject(),
+                claims.getSubject(),
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + state.getRole().name())));
+    }
+
     private boolean isPublicEndpoint(String path, String method) {
         // Public endpoints that don't require JWT
         return (path.equals("/") || 
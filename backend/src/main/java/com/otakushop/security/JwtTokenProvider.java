@@ -1,69 +1,99 @@
 package com.otakushop.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import java.security.Key;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Emisión y verificación de JWT.
+ *
+ * - La clave HMAC y el JwtParser (inmutable y thread-safe) se construyen una vez al arrancar
+ * - {@link #parseClaims} verifica la firma y devuelve todos los claims de una vez
+ * - Los tokens ya verificados se guardan en una caché acotada, con clave SHA-256 del token (no se
+ *   guarda el token en claro), hasta su expiración: un token repetido solo cuesta un hash
+ */
 @Component
 @Slf4j
 public class JwtTokenProvider {
-    @Value("${jwt.secret}")
-    private String jwtSecret;
 
-    @Value("${jwt.expiration}")
-    private long jwtExpirationMs;
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final long jwtExpirationMs;
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+                            @Value("${jwt.expiration}") long jwtExpirationMs,
+                            @Value("${app.security.jwt.verified-cache.max-size:50000}") long verifiedCacheMaxSize,
+                            MeterRegistry meterRegistry) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwtVerified");
+    }
 
     public String generateToken(Long userId, String email, String role) {
+        Date now = new Date();
         return Jwts.builder()
                 .subject(email)
                 .claim("userId", userId)
                 .claim("role", role)
-                .issuedAt(new Date())
-                .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key())
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + jwtExpirationMs))
+                .signWith(key)
                 .compact();
     }
 
     public String getUserEmailFromJWT(String token) {
-        return Jwts.parser()
-                .verifyWith((javax.crypto.SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return verify(token).getSubject();
     }
 
     public Long getUserIdFromJWT(String token) {
-        Number userId = (Number) Jwts.parser()
-                .verifyWith((javax.crypto.SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .get("userId");
+        Number userId = verify(token).get("userId", Number.class);
         return userId != null ? userId.longValue() : null;
     }
 
     public String getRoleFromJWT(String token) {
-        return Jwts.parser()
-                .verifyWith((javax.crypto.SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .get("role", String.class);
+        return verify(token).get("role", String.class);
     }
 
-    public boolean validateToken(String authToken) {
+    /**
+     * Valida el token y devuelve todos sus claims con un solo parseo y verificación de firma
+     *
+     * @return claims del token, o null si no es válido
+     */
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parser()
-                    .verifyWith((javax.crypto.SecretKey) key())
-                    .build()
-                    .parseSignedClaims(authToken);
+            Claims claims = verify(authToken);
             log.debug("JWT token validated successfully");
-            return true;
+            return claims;
         } catch (MalformedJwtException ex) {
             log.error("Invalid JWT token: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
@@ -75,10 +105,60 @@ public class JwtTokenProvider {
         } catch (Exception ex) {
             log.error("JWT validation error: {}", ex.getMessage(), ex);
         }
-        return false;
+        return null;
+    }
+
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    /**
+     * Claims del token desde la caché de verificados o verificando la firma
+     *
+     * @throws JwtException si el token no es válido (no se cachean los inválidos)
+     */
+    private Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT vacío");
+        }
+        String hash = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        verifiedTokens.put(hash, claims);
+        return claims;
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private static String hash(String token) {
+        MessageDigest digest = SHA256.get();
+        return Base64.getEncoder().withoutPadding()
+                .encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Cada entrada vive hasta la expiración del token (los tokens sin exp no se reutilizan)
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return 0;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -1,7 +1,8 @@
 package com.otakushop.service;
 
-import com.otakushop.dto.CartItemDTO;
+import com.otakushop.cache.CartSummaryCache;
 import com.otakushop.dto.CartItemRequest;
+import com.otakushop.dto.CartSummaryDTO;
 import com.otakushop.entity.CartItem;
 import com.otakushop.entity.Product;
 import com.otakushop.entity.User;
@@ -12,12 +13,13 @@ import com.otakushop.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.annotation.Isolation;
-import java.math.BigDecimal;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,63 +30,62 @@ public class CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final StockService stockService;
+    private final CartSummaryCache cartSummaryCache;
+    private final PlatformTransactionManager transactionManager;
     
     // Máximo de unidades que un usuario puede reservar
     private static final int MAX_UNITS_PER_USER = 10;
     
     /**
-     * Obtiene todos los items del carrito del usuario
+     * Resumen del carrito (items, total y cantidad).
+     * Se sirve desde la caché sin abrir transacción ni conexión; si no está, se lee con una sola
+     * consulta proyectada bajo el lock compartido del carrito y se guarda en caché.
      */
-    public List<CartItemDTO> getCartItems(Long userId) {
-        return cartItemRepository.findByUserId(userId)
-            .stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
-    }
-    
-    /**
-     * Obtiene el total del carrito
-     */
-    public BigDecimal getCartTotal(Long userId) {
-        return cartItemRepository.findByUserId(userId)
-            .stream()
-            .map(item -> item.getProduct().getPrice()
-                .multiply(new BigDecimal(item.getQuantity())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-    
-    /**
-     * Obtiene la cantidad de items en el carrito
-     */
-    public Long getCartItemCount(Long userId) {
-        return cartItemRepository.countByUserId(userId);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CartSummaryDTO getCartSummary(Long userId) {
+        CartSummaryDTO cached = cartSummaryCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            cartSummaryCache.lockForRead(userId);
+            CartSummaryDTO summary = CartSummaryDTO.of(cartItemRepository.findSummaryItemsByUserId(userId));
+            cartSummaryCache.populate(userId, summary);
+            return summary;
+        });
     }
     
     /**
-     * Agrega un producto al carrito con validaciones de stock y límite de 10 unidades
+     * Agrega un producto al carrito descontando stock con un UPDATE condicional atómico.
+     * El descuento es la última sentencia antes del commit para que el bloqueo de la fila
+     * del producto dure lo mínimo; si no hay stock se hace rollback del item.
+     *
+     * @return resumen del carrito actualizado (incluye el stock ya descontado)
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public CartItemDTO addItem(Long userId, CartItemRequest request) {
+    public CartSummaryDTO addItem(Long userId, CartItemRequest request) {
         try {
             log.info("🔴 addItem() STARTED - userId={}, productId={}, requestQuantity={}", userId, request.getProductId(), request.getQuantity());
 
-            // Log para verificar el estado inicial de la transacción
-            log.debug("🔵 Transaction started for addItem");
+            // Validaciones básicas
+            if (request.getQuantity() <= 0) {
+                log.error("Invalid quantity: {}", request.getQuantity());
+                throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+            }
+
+            // Serializa las mutaciones del carrito del usuario (varias pestañas) para la caché
+            cartSummaryCache.lockForWrite(userId);
 
             @SuppressWarnings("null")
             User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
             log.debug("User found: {}", user.getId());
 
-            Product lockedProduct = productRepository.findByIdForUpdate(request.getProductId())
+            @SuppressWarnings("null")
+            Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
-            log.info("🔴 Product locked for update: id={}, CURRENT STOCK BEFORE={}", lockedProduct.getId(), lockedProduct.getStock());
-
-            // Validaciones básicas
-            if (request.getQuantity() <= 0) {
-                log.error("Invalid quantity: {}", request.getQuantity());
-                throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
-            }
 
             // Obtener cantidad actual del usuario en carrito
             CartItem existingCartItem = cartItemRepository
@@ -95,36 +96,23 @@ public class CartService {
             int newTotalQuantity = currentQuantity + request.getQuantity();
             log.debug("Current quantity: {}, New total: {}", currentQuantity, newTotalQuantity);
 
-            // Validaciones de stock
-            if (lockedProduct.getStock() < request.getQuantity()) {
-                log.error("Stock insufficient: available={}, requested={}", lockedProduct.getStock(), request.getQuantity());
-                throw new IllegalArgumentException(
-                    String.format("Stock insuficiente. Disponible: %d, Solicitado: %d",
-                        lockedProduct.getStock(), request.getQuantity())
-                );
-            }
-
-            // Actualizar stock y carrito
-            lockedProduct.setStock(lockedProduct.getStock() - request.getQuantity());
-            productRepository.save(lockedProduct);
-            log.info("🔴 Stock updated: newStock={}", lockedProduct.getStock());
-
+            CartItem cartItem;
             if (existingCartItem != null) {
                 existingCartItem.setQuantity(newTotalQuantity);
-                CartItem updated = cartItemRepository.save(existingCartItem);
-                log.info("🔴 Cart item updated: id={}, quantity={}", updated.getId(), updated.getQuantity());
-                return convertToDTO(updated);
+                cartItem = cartItemRepository.save(existingCartItem);
+            } else {
+                cartItem = cartItemRepository.save(CartItem.builder()
+                    .user(user)
+                    .product(product)
+                    .quantity(request.getQuantity())
+                    .build());
             }
 
-            CartItem newCartItem = CartItem.builder()
-                .user(user)
-                .product(lockedProduct)
-                .quantity(request.getQuantity())
-                .build();
-            CartItem savedCartItem = cartItemRepository.save(newCartItem);
-            log.info("🔴 New cart item created: id={}, quantity={}", savedCartItem.getId(), savedCartItem.getQuantity());
+            // ✅ Descuento atómico: falla (y hace rollback) si no hay stock suficiente
+            stockService.decrement(product, request.getQuantity());
+            log.info("🔴 Cart item saved: id={}, quantity={}", cartItem.getId(), cartItem.getQuantity());
 
-            return convertToDTO(savedCartItem);
+            return summarize(userId);
         } catch (Exception e) {
             log.error("🔴 Error in addItem: {}", e.getMessage(), e);
             throw e;
@@ -137,10 +125,13 @@ public class CartService {
      * Si aumenta: DECREMENTA stock adicional
      * Si disminuye: INCREMENTA stock de vuelta
      * 
-     * Usa findByIdForUpdate() para bloqueo pesimista, evitando race conditions
+     * El stock se ajusta con UPDATE atómicos de StockService (sin bloqueo previo de la fila)
+     *
+     * @return resumen del carrito actualizado
      */
-    public CartItemDTO updateItem(Long userId, Long cartItemId, Integer quantity) {
+    public CartSummaryDTO updateItem(Long userId, Long cartItemId, Integer quantity) {
         log.info("🔵 updateItem() STARTED - userId={}, cartItemId={}, newQuantity={}", userId, cartItemId, quantity);
+        cartSummaryCache.lockForWrite(userId);
         
         @SuppressWarnings("null")
         CartItem cartItem = cartItemRepository.findById(cartItemId)
@@ -174,43 +165,19 @@ public class CartService {
             );
         }
         
-        // ✅ USO DE BLOQUEO PESIMISTA para actualizar stock sin race conditions
-        @SuppressWarnings("null")
-        Product product = productRepository.findByIdForUpdate(productId)
-            .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
-        
-        log.debug("🔵 Product locked for update: id={}, currentStock={}", productId, product.getStock());
+        Product product = cartItem.getProduct();
         
-        // ✅ Si aumenta la cantidad
+        // ✅ Si aumenta la cantidad: descuento atómico del stock adicional
         if (quantity > oldQuantity) {
             int quantityIncrease = quantity - oldQuantity;
             log.info("🔵 QUANTITY INCREASE - cartItemId={}, increase={} ({} -> {})", cartItemId, quantityIncrease, oldQuantity, quantity);
-            
-            // Validar que hay suficiente stock disponible
-            if (product.getStock() < quantityIncrease) {
-                log.error("❌ INSUFFICIENT STOCK - productId={}, available={}, needed={}", productId, product.getStock(), quantityIncrease);
-                throw new IllegalArgumentException(
-                    String.format("Stock insuficiente para aumentar. Disponible: %d, Necesitas: %d más",
-                        product.getStock(), quantityIncrease)
-                );
-            }
-            
-            // ✅ DECREMENTAR el stock adicional en BD
-            product.setStock(product.getStock() - quantityIncrease);
-            productRepository.save(product);
-            log.info("🟢 STOCK DECREMENTED - productId={}, decrease={}, newStock={}", 
-                productId, quantityIncrease, product.getStock());
+            stockService.decrement(product, quantityIncrease);
         } 
-        // ✅ Si disminuye la cantidad
+        // ✅ Si disminuye la cantidad: devolver el stock sobrante
         else if (quantity < oldQuantity) {
             int quantityToRestore = oldQuantity - quantity;
             log.info("🔵 QUANTITY DECREASE - cartItemId={}, restore={} ({} -> {})", cartItemId, quantityToRestore, oldQuantity, quantity);
-            
-            // ✅ INCREMENTAR stock de vuelta en BD
-            product.setStock(product.getStock() + quantityToRestore);
-            productRepository.save(product);
-            log.info("🟢 STOCK RESTORED - productId={}, restore={}, newStock={}", 
-                productId, quantityToRestore, product.getStock());
+            stockService.increment(product, quantityToRestore);
         }
         // Si es igual, no hacer nada
         else {
@@ -221,34 +188,19 @@ public class CartService {
         CartItem updated = cartItemRepository.save(cartItem);
         log.info("🟢 CART ITEM SAVED - cartItemId={}, newQuantity={}", cartItemId, updated.getQuantity());
         
-        CartItemDTO result = convertToDTO(updated);
-        
-        // Verificar que el objeto result no sea nulo antes de acceder a sus propiedades
-        if (result == null) {
-            log.error("El objeto result es nulo. No se puede acceder a sus propiedades.");
-            throw new IllegalStateException("El objeto result no puede ser nulo.");
-        }
-
-        // Asegurarse de que las propiedades de result sean válidas
-        if (result.getId() == null || result.getProductId() == null || result.getQuantity() == null) {
-            log.error("Propiedades nulas en el objeto result: id={}, productId={}, quantity={}",
-                      result.getId(), result.getProductId(), result.getQuantity());
-            throw new IllegalStateException("Propiedades nulas en el objeto result.");
-        }
-
-        log.info("🟢 updateItem() SUCCESS - returning CartItemDTO: id={}, productId={}, quantity={}", 
-                 result.getId(), result.getProductId(), result.getQuantity());
-        
-        return result;
+        return summarize(userId);
     }
     
     /**
      * ✅ NUEVO: Elimina item del carrito RESTAURANDO su stock en BD
-     * Usa findByIdForUpdate() para bloqueo pesimista
-     * Maneja casos de StaleObjectStateException cuando el item ya fue eliminado
+     * La devolución de stock es un UPDATE atómico
+     * Idempotente: si otra transacción ya eliminó el item no se restaura el stock
+     *
+     * @return resumen del carrito actualizado
      */
-    public void removeItem(Long userId, Long cartItemId) {
+    public CartSummaryDTO removeItem(Long userId, Long cartItemId) {
         log.debug("🔵 removeItem() STARTED - userId={}, cartItemId={}", userId, cartItemId);
+        cartSummaryCache.lockForWrite(userId);
         
         CartItem cartItem;
         try {
@@ -257,7 +209,7 @@ public class CartService {
         } catch (ResourceNotFoundException e) {
             // Si no existe el item, es como si ya fue eliminado - idempotent
             log.warn("⚠️ Cart item {} not found, returning successfully (idempotent)", cartItemId);
-            return;
+            return summarize(userId);
         }
         
         // Validar que el item pertenece al usuario
@@ -271,55 +223,41 @@ public class CartService {
         log.debug("removeItem() called: cartItemId={}, quantity={}, productId={}", 
             cartItemId, quantityToRestore, productId);
         
-        try {
-            // ✅ USO DE BLOQUEO PESIMISTA para evitar race conditions
-            @SuppressWarnings("null")
-            Product lockedProduct = productRepository.findByIdForUpdate(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
-            
-            // ✅ INCREMENTAR stock de vuelta en BD
-            lockedProduct.setStock(lockedProduct.getStock() + quantityToRestore);
-            productRepository.save(lockedProduct);
-            log.info("Stock restored: productId={}, quantityRestored={}, newStock={}", 
-                productId, quantityToRestore, lockedProduct.getStock());
-            
-            // Eliminar CartItem
-            cartItemRepository.deleteById(Objects.requireNonNull(cartItemId, "cartItemId cannot be null"));
-            log.info("🟢 Cart item removed: cartItemId={}", cartItemId);
-        } catch (org.hibernate.StaleObjectStateException | org.springframework.orm.ObjectOptimisticLockingFailureException e) {
-            // Si ocurre un error de concurrencia, el item ya fue eliminado por otra transacción
-            log.warn("⚠️ StaleObjectState when removing cartItem {}: item was already deleted", cartItemId, e);
-            // No relanzar excepción - es un caso válido de concurrencia
+        // ✅ Borrar primero: solo la transacción que elimina la fila devuelve el stock,
+        // así dos eliminaciones concurrentes del mismo item no lo restauran dos veces
+        if (cartItemRepository.deleteItemById(Objects.requireNonNull(cartItemId, "cartItemId cannot be null")) == 0) {
+            log.warn("⚠️ Cart item {} was already deleted by another transaction", cartItemId);
+            return summarize(userId);
         }
+        log.info("🟢 Cart item removed: cartItemId={}", cartItemId);
+        
+        // ✅ INCREMENTAR stock de vuelta en BD (UPDATE atómico)
+        stockService.increment(cartItem.getProduct(), quantityToRestore);
+        log.info("Stock restored: productId={}, quantityRestored={}", productId, quantityToRestore);
+        return summarize(userId);
     }
     
     /**
      * ✅ NUEVO: Limpia todo el carrito del usuario RESTAURANDO stock en BD
-     * Usa findByIdForUpdate() para bloqueo pesimista en cada producto
+     * Cada devolución es un UPDATE atómico, sin bloqueo previo de las filas
      */
     public void clearCart(Long userId) {
+        cartSummaryCache.lockForWrite(userId);
+        
         // Obtener todos los items del usuario para restaurar su stock
         List<CartItem> userItems = cartItemRepository.findByUserId(userId);
         
         log.debug("clearCart() called for userId={}, itemCount={}", userId, userItems.size());
         
         for (CartItem item : userItems) {
-            long productId = item.getProduct().getId();
-            int quantityToRestore = item.getQuantity();
-            
-            // ✅ USO DE BLOQUEO PESIMISTA para evitar race conditions
-            @SuppressWarnings("null")
-            Product lockedProduct = productRepository.findByIdForUpdate(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
-            
-            // ✅ INCREMENTAR stock de vuelta en BD
-            lockedProduct.setStock(lockedProduct.getStock() + quantityToRestore);
-            productRepository.save(lockedProduct);
-            log.info("Stock restored on clear: productId={}, quantityRestored={}, newStock={}", 
-                productId, quantityToRestore, lockedProduct.getStock());
+            // ✅ INCREMENTAR stock de vuelta en BD (UPDATE atómico)
+            stockService.increment(item.getProduct(), item.getQuantity());
+            log.info("Stock restored on clear: productId={}, quantityRestored={}", 
+                item.getProduct().getId(), item.getQuantity());
         }
         
         cartItemRepository.deleteByUserId(userId);
+        cartSummaryCache.writeThrough(userId, CartSummaryDTO.of(new ArrayList<>()));
         log.info("Cart cleared for userId={}, restored {} items", userId, userItems.size());
     }
     
@@ -335,6 +273,7 @@ public class CartService {
         }
         
         log.info("Merging anonymous cart (sessionId={}) to user (userId={})", sessionId, user.getId());
+        cartSummaryCache.lockForWrite(user.getId());
         
         // Buscar items en carrito anónimo
         List<CartItem> anonItems = cartItemRepository
@@ -388,29 +327,20 @@ public class CartService {
         
         // Limpiar sesión anónima de base de datos
         cartItemRepository.deleteBySessionId(sessionId);
+        summarize(user.getId());
         
         log.info("Merge completed for sessionId={} and userId={}", sessionId, user.getId());
     }
     
     
     /**
-     * Convierte CartItem a CartItemDTO
+     * Resumen tras una mutación, en la misma transacción: el flush automático previo a la consulta
+     * hace que refleje el item guardado y el stock ya descontado, sin releer cada entidad.
+     * Se escribe en la caché del carrito (write-through).
      */
-    private CartItemDTO convertToDTO(CartItem cartItem) {
-        BigDecimal subtotal = cartItem.getProduct().getPrice()
-            .multiply(new BigDecimal(cartItem.getQuantity()));
-        
-        return CartItemDTO.builder()
-            .id(cartItem.getId())
-            .productId(cartItem.getProduct().getId())
-            .productName(cartItem.getProduct().getName())
-            .productImage(cartItem.getProduct().getImageUrl())
-            .productPrice(cartItem.getProduct().getPrice())
-            .productStock(cartItem.getProduct().getStock())
-            .quantity(cartItem.getQuantity())
-            .subtotal(subtotal)
-            .createdAt(cartItem.getCreatedAt())
-            .updatedAt(cartItem.getUpdatedAt())
-            .build();
+    private CartSummaryDTO summarize(Long userId) {
+        CartSummaryDTO summary = CartSummaryDTO.of(cartItemRepository.findSummaryItemsByUserId(userId));
+        cartSummaryCache.writeThrough(userId, summary);
+        return summary;
     }
 }
@@ -6,7 +6,9 @@ import com.otakushop.entity.Order;
 import com.otakushop.entity.OrderItem;
 import com.otakushop.entity.OrderStatus;
 import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
 import com.otakushop.entity.User;
+import com.otakushop.repository.OrderItemRepository;
 import com.otakushop.repository.OrderRepository;
 import com.otakushop.repository.ProductRepository;
 import com.otakushop.repository.UserRepository;
@@ -17,10 +19,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Servicio para gestión de checkout y órdenes
@@ -31,159 +35,218 @@ import java.util.Map;
 public class CheckoutService {
 
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final StockService stockService;
 
     /**
      * Valida una solicitud de checkout sin procesarla
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> validateCheckout(CheckoutRequest request) {
-        Map<String, Object> validation = new HashMap<>();
-        List<String> errors = new ArrayList<>();
-        List<String> warnings = new ArrayList<>();
+        return validate(request).toMap();
+    }
+
+    /**
+     * Procesa el checkout y crea la orden.
+     *
+     * Reutiliza la validación (usuario y productos cargados una sola vez), descuenta stock con
+     * UPDATE condicional atómico en orden de id de producto y calcula precios con los del servidor.
+     * Las líneas se insertan en un batch JDBC: la orden devuelta no trae items cargados.
+     */
+    @Transactional
+    public Order processCheckout(CheckoutRequest request) {
+        // 1. Validar checkout (una consulta para el usuario y otra para todos los productos)
+        CheckoutValidation validation = validate(request);
+        if (!validation.isValid()) {
+            throw new IllegalArgumentException("Checkout inválido: " + String.join(", ", validation.errors));
+        }
+
+        // 2. Reducir stock por producto en orden de id (falla si otro pedido se lo llevó)
+        Map<Long, Integer> quantities = quantitiesByProduct(request.getItems());
+        quantities.forEach((productId, quantity) -> {
+            Product product = validation.products.get(productId);
+            if (!stockService.tryDecrement(product, quantity)) {
+                throw new IllegalStateException("Stock insuficiente para: " + product.getName());
+            }
+        });
+
+        // 3. Crear orden con los totales calculados en el servidor
+        Order order = new Order();
+        order.setUser(validation.user);
+        order.setSubtotal(validation.subtotal);
+        order.setShipping(request.getShipping());
+        order.setDiscount(request.getDiscount());
+        order.setTax(request.getTax());
+        order.setTotal(validation.expectedTotal);
+        order.setTotalPrice(validation.expectedTotal);
+        order.setPaymentMethod(request.getPaymentMethod());
+        order.setStatus(OrderStatus.PENDING);
+        order.setShippingAddress(formatAddress(request.getShippingAddress()));
+        order.setNotes(request.getNotes());
+        Order savedOrder = orderRepository.save(order);
+
+        // 4. Crear items de la orden (precio del servidor) en un solo batch
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderItem> items = new ArrayList<>(request.getItems().size());
+        for (CheckoutItemDTO itemDTO : request.getItems()) {
+            Product product = validation.products.get(itemDTO.getProductId());
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(savedOrder);
+            orderItem.setProduct(product);
+            orderItem.setQuantity(itemDTO.getQuantity());
+            orderItem.setUnitPrice(product.getPrice());
+            orderItem.setSubtotal(product.getPrice().multiply(new BigDecimal(itemDTO.getQuantity())));
+            orderItem.setProductName(product.getName());
+            orderItem.setProductImageUrl(product.getImageUrl());
+            orderItem.setCreatedBy(savedOrder.getCreatedBy());
+            orderItem.setCreatedAt(now);
+            orderItem.setUpdatedAt(now);
+            items.add(orderItem);
+        }
+        orderItemRepository.batchInsert(items);
+
+        log.info("Orden {} creada exitosamente para usuario {}", savedOrder.getId(), request.getUserId());
+
+        return savedOrder;
+    }
+
+    /**
+     * Validación completa con los datos cargados (usuario, productos) para reutilizarlos al procesar
+     */
+    private CheckoutValidation validate(CheckoutRequest request) {
+        CheckoutValidation validation = new CheckoutValidation();
 
         // 1. Validar que el usuario existe
         @SuppressWarnings("null")
-        boolean userExists = userRepository.existsById(request.getUserId());
-        if (!userExists) {
-            errors.add("Usuario no encontrado");
-            validation.put("isValid", false);
-            validation.put("errors", errors);
+        User user = userRepository.findById(request.getUserId()).orElse(null);
+        if (user == null) {
+            validation.errors.add("Usuario no encontrado");
             return validation;
         }
+        validation.user = user;
+
+        // 2. Cargar todos los productos en una sola consulta
+        Map<Long, Integer> quantities = quantitiesByProduct(request.getItems());
+        @SuppressWarnings("null")
+        List<Product> found = productRepository.findAllById(quantities.keySet());
+        found.forEach(product -> validation.products.put(product.getId(), product));
 
-        // 2. Validar stock disponible y reservaciones activas
+        // 3. Validar disponibilidad y stock (por producto, sumando líneas repetidas)
         for (CheckoutItemDTO item : request.getItems()) {
-            @SuppressWarnings("null")
-            Product product = productRepository.findById(item.getProductId()).orElse(null);
+            if (!validation.products.containsKey(item.getProductId())) {
+                validation.errors.add("Producto no encontrado: " + item.getProductName());
+            }
+        }
+        quantities.forEach((productId, quantity) -> {
+            Product product = validation.products.get(productId);
             if (product == null) {
-                errors.add("Producto no encontrado: " + item.getProductName());
-                continue;
+                return;
+            }
+            if (!Boolean.TRUE.equals(product.getActive()) || !ProductStatus.APPROVED.equals(product.getStatus())) {
+                validation.errors.add("Producto no disponible: " + product.getName());
+                return;
             }
 
-            if (product.getStock() < item.getQuantity()) {
-                errors.add(String.format(
+            if (product.getStock() < quantity) {
+                validation.errors.add(String.format(
                     "Stock insuficiente para %s. Disponible: %d, Solicitado: %d",
                     product.getName(),
                     product.getStock(),
-                    item.getQuantity()
+                    quantity
                 ));
             }
 
             // Advertencia si el stock es bajo
-            if (product.getStock() < 10 && product.getStock() >= item.getQuantity()) {
-                warnings.add(String.format(
+            if (product.getStock() < 10 && product.getStock() >= quantity) {
+                validation.warnings.add(String.format(
                     "Stock bajo para %s: quedan %d unidades",
                     product.getName(),
                     product.getStock()
                 ));
             }
+        });
+        if (!validation.errors.isEmpty()) {
+            return validation;
         }
 
-        // 3. Validar cálculo de totales
-        BigDecimal calculatedSubtotal = calculateSubtotal(request.getItems());
+        // 4. Validar totales con precios del servidor (el precio enviado por el cliente solo se compara)
+        BigDecimal calculatedSubtotal = BigDecimal.ZERO;
+        for (CheckoutItemDTO item : request.getItems()) {
+            Product product = validation.products.get(item.getProductId());
+            if (item.getPrice() != null && item.getPrice().compareTo(product.getPrice()) != 0) {
+                validation.warnings.add(String.format(
+                    "El precio de %s cambió: $%s",
+                    product.getName(),
+                    product.getPrice().setScale(2, RoundingMode.HALF_UP)
+                ));
+            }
+            calculatedSubtotal = calculatedSubtotal.add(product.getPrice().multiply(new BigDecimal(item.getQuantity())));
+        }
         BigDecimal expectedTotal = calculatedSubtotal
             .add(request.getShipping())
             .subtract(request.getDiscount())
             .add(request.getTax());
+        validation.subtotal = calculatedSubtotal;
+        validation.expectedTotal = expectedTotal;
 
         BigDecimal difference = expectedTotal.subtract(request.getTotal()).abs();
         if (difference.compareTo(new BigDecimal("0.01")) > 0) {
-            errors.add(String.format(
+            validation.errors.add(String.format(
                 "Los totales no cuadran. Esperado: $%s, Recibido: $%s",
                 expectedTotal.setScale(2, RoundingMode.HALF_UP),
                 request.getTotal().setScale(2, RoundingMode.HALF_UP)
             ));
         }
 
-        // 4. Validar monto mínimo
-        if (request.getTotal().compareTo(new BigDecimal("10000")) < 0) {
-            errors.add("El monto mínimo de orden es $10,000 COP");
+        // 5. Validar monto mínimo
+        if (expectedTotal.compareTo(new BigDecimal("10000")) < 0) {
+            validation.errors.add("El monto mínimo de orden es $10,000 COP");
         }
 
-        validation.put("isValid", errors.isEmpty());
-        validation.put("errors", errors);
-        validation.put("warnings", warnings);
-        validation.put("calculatedSubtotal", calculatedSubtotal);
-        validation.put("expectedTotal", expectedTotal);
-
         return validation;
     }
 
     /**
-     * Procesa el checkout y crea la orden
+     * Cantidad total por producto, ordenada por id (orden global de locks de fila)
      */
-    @Transactional
-    public Order processCheckout(CheckoutRequest request) {
-        // 1. Validar checkout
-        Map<String, Object> validation = validateCheckout(request);
-        if (!(Boolean) validation.get("isValid")) {
-            @SuppressWarnings("unchecked")
-            List<String> errors = (List<String>) validation.get("errors");
-            throw new IllegalArgumentException("Checkout inválido: " + String.join(", ", errors));
+    private Map<Long, Integer> quantitiesByProduct(List<CheckoutItemDTO> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (CheckoutItemDTO item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        return quantities;
+    }
 
-        // 2. Obtener usuario
-        @SuppressWarnings("null")
-        User user = userRepository.findById(request.getUserId())
-            .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-
-        // 3. Crear orden
-        Order order = new Order();
-        order.setUser(user);
-        order.setSubtotal(request.getSubtotal());
-        order.setShipping(request.getShipping());
-        order.setDiscount(request.getDiscount());
-        order.setTax(request.getTax());
-        order.setTotal(request.getTotal());
-        order.setPaymentMethod(request.getPaymentMethod());
-        order.setStatus(OrderStatus.PENDING);
-        order.setShippingAddress(formatAddress(request.getShippingAddress()));
-        order.setNotes(request.getNotes());
+    /**
+     * Resultado de la validación con las entidades ya cargadas
+     */
+    private static final class CheckoutValidation {
+        private User user;
+        private final Map<Long, Product> products = new HashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+        private BigDecimal subtotal;
+        private BigDecimal expectedTotal;
 
-        // 4. Crear items de la orden y actualizar stock
-        for (CheckoutItemDTO itemDTO : request.getItems()) {
-            @SuppressWarnings("null")
-            Product product = productRepository.findById(itemDTO.getProductId())
-                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado: " + itemDTO.getProductId()));
+        private boolean isValid() {
+            return errors.isEmpty();
+        }
 
-            // Verificar stock nuevamente (doble verificación)
-            if (product.getStock() < itemDTO.getQuantity()) {
-                throw new IllegalStateException("Stock insuficiente para: " + product.getName());
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("isValid", isValid());
+            map.put("errors", errors);
+            if (user != null) {
+                map.put("warnings", warnings);
             }
-
-            // Reducir stock
-            product.setStock(product.getStock() - itemDTO.getQuantity());
-            productRepository.save(product);
-
-            // Crear item de orden
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(product);
-            orderItem.setQuantity(itemDTO.getQuantity());
-            orderItem.setUnitPrice(itemDTO.getPrice());
-            orderItem.setSubtotal(itemDTO.getPrice().multiply(new BigDecimal(itemDTO.getQuantity())));
-            orderItem.setProductName(product.getName());
-            orderItem.setProductImageUrl(product.getImageUrl());
-            
-            order.getItems().add(orderItem);
+            if (expectedTotal != null) {
+                map.put("calculatedSubtotal", subtotal);
+                map.put("expectedTotal", expectedTotal);
+            }
+            return map;
         }
-
-        // 5. Guardar orden
-        Order savedOrder = orderRepository.save(order);
-
-        log.info("Orden {} creada exitosamente para usuario {}", savedOrder.getId(), request.getUserId());
-
-        return savedOrder;
-    }
-
-    /**
-     * Calcula el subtotal basado en los items
-     */
-    private BigDecimal calculateSubtotal(List<CheckoutItemDTO> items) {
-        return items.stream()
-            .map(item -> item.getPrice().multiply(new BigDecimal(item.getQuantity())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
     /**
@@ -0,0 +1,549 @@
+package com.otakushop.service;
+
+import com.otakushop.entity.FlashSale;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.event.ProductChangedEvent;
+import com.otakushop.exception.ResourceNotFoundException;
+import com.otakushop.repository.CartItemRepository;
+import com.otakushop.repository.FlashSaleRepository;
+import com.otakushop.repository.OrderItemRepository;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.util.StripedStockCounter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ledger de stock en memoria para productos en venta flash.
+ *
+ * Con el modo activo, cada asignación (carrito, orden, checkout, reserva) descuenta de un
+ * {@link StripedStockCounter} sin tocar la fila del producto. Las variaciones de products.stock se
+ * acumulan y un flusher las aplica en lote (UPDATE stock = stock + delta) cada pocos cientos de ms.
+ *
+ * - Unidades disponibles del ledger = products.stock real - reservas activas
+ * - Si la transacción que asignó hace rollback, las unidades vuelven al ledger
+ * - Las devoluciones se aplican tras el commit, para no revender unidades de una operación revertida
+ * - Al tomar una venta flash (arranque o relevo), el stock real se reconstruye desde cart_items,
+ *   order_items y stock_reservations (ver {@link FlashSale}), así que los deltas no escritos antes
+ *   de una caída no se pierden
+ *
+ * Propiedad: cada venta flash la atiende una sola instancia, la de flash_sales.owner_node, que
+ * renueva lease_until cada app.flash-sale.lease-renew-interval-ms. El resto no carga ledger y su
+ * UPDATE atómico en BD no descuenta productos en venta flash (ver ProductRepository.decrementStock),
+ * así que las peticiones de un producto en venta flash deben enrutarse a la instancia dueña. Una
+ * instancia deja de usar su ledger a mitad del lease si no pudo renovarlo, antes de que otra pueda
+ * reclamarlo. Los relojes de las instancias deben estar sincronizados (NTP).
+ */
+@Service
+@Slf4j
+public class FlashSaleStockLedger {
+
+    private static final String FLUSH_SQL = "UPDATE products SET stock = stock + ? WHERE id = ?";
+    private static final String RENEW_SQL = "UPDATE flash_sales SET lease_until = ? WHERE owner_node = ?";
+    private static final String OWNED_SQL = "SELECT product_id FROM flash_sales WHERE owner_node = ?";
+
+    private final FlashSaleRepository flashSaleRepository;
+    private final ProductRepository productRepository;
+    private final CartItemRepository cartItemRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductReservationTotalRepository reservationTotalRepository;
+    private final JdbcTemplate jdbcTemplate;
+    // Transacción propia: flush y devoluciones también se ejecutan desde afterCommit de otra transacción
+    private final TransactionTemplate writeTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int stripes;
+    private final String nodeId;
+    private final Duration lease;
+
+    private final Map<Long, ProductLedger> active = new ConcurrentHashMap<>();
+    // Ledgers desactivados con deltas aún por escribir
+    private final Map<Long, ProductLedger> retired = new ConcurrentHashMap<>();
+    // Serializa el paso de active a retired con las devoluciones que llegan tras el commit
+    private final Object lifecycle = new Object();
+
+    public FlashSaleStockLedger(FlashSaleRepository flashSaleRepository,
+                                ProductRepository productRepository,
+                                CartItemRepository cartItemRepository,
+                                OrderItemRepository orderItemRepository,
+                                ProductReservationTotalRepository reservationTotalRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.flash-sale.stripes:16}") int stripes,
+                                @Value("${app.flash-sale.node-id:}") String nodeId,
+                                @Value("${app.flash-sale.lease-seconds:30}") long leaseSeconds) {
+        this.flashSaleRepository = flashSaleRepository;
+        this.productRepository = productRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.reservationTotalRepository = reservationTotalRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.stripes = stripes;
+        // Sin id fijo, una instancia reiniciada solo recupera sus ventas cuando vence el lease anterior
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+    }
+
+    /**
+     * Indica si el producto está en modo venta flash atendido por esta instancia
+     */
+    public boolean isActive(Long productId) {
+        return owned(productId) != null;
+    }
+
+    /**
+     * Indica si el producto está en venta flash pero no lo atiende esta instancia
+     * (otra es la dueña, o esta no pudo renovar el lease)
+     */
+    public boolean isHeldElsewhere(Long productId) {
+        return !isActive(productId) && flashSaleRepository.existsById(productId);
+    }
+
+    /**
+     * Unidades asignables del ledger
+     */
+    public long available(Long productId) {
+        ProductLedger ledger = owned(productId);
+        return ledger != null ? ledger.available.sum() : 0;
+    }
+
+    /**
+     * Asigna stock (carrito, orden, checkout) sin tocar la fila del producto
+     *
+     * @return false si no hay unidades suficientes
+     */
+    public boolean tryAllocateStock(Long productId, int quantity) {
+        ProductLedger ledger = requireActive(productId);
+        if (!ledger.available.tryAcquire(quantity)) {
+            return false;
+        }
+        ledger.pendingDelta.add(-quantity);
+        onRollback(() -> credit(ledger, quantity));
+        return true;
+    }
+
+    /**
+     * Devuelve stock (item eliminado, carrito vaciado, orden cancelada) tras el commit
+     *
+     * @return false si el producto no está en venta flash en esta instancia: el llamador devuelve
+     *         el stock en base de datos
+     */
+    public boolean releaseStock(Long productId, int quantity) {
+        ProductLedger ledger = owned(productId);
+        if (ledger == null) {
+            return false;
+        }
+        afterCommit(() -> credit(ledger, quantity));
+        return true;
+    }
+
+    /**
+     * Reserva temporal: descuenta del ledger pero no de products.stock
+     *
+     * @return false si no hay unidades suficientes
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        ProductLedger ledger = requireActive(productId);
+        if (!ledger.available.tryAcquire(quantity)) {
+            return false;
+        }
+        onRollback(() -> ledger.available.release(quantity));
+        return true;
+    }
+
+    /**
+     * Reserva expirada o reducida: las unidades vuelven al ledger tras el commit
+     */
+    public void releaseReservation(Long productId, int quantity) {
+        ProductLedger ledger = owned(productId);
+        if (ledger != null && quantity > 0) {
+            afterCommit(() -> ledger.available.release(quantity));
+        }
+    }
+
+    /**
+     * Activa el modo venta flash para un producto aprobado; esta instancia queda como dueña.
+     * Se bloquea la fila del producto para tomar la foto de referencia de forma consistente.
+     */
+    @Transactional
+    public long enable(Long productId) {
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
+        if (!ProductStatus.APPROVED.equals(product.getStatus()) || !Boolean.TRUE.equals(product.getActive())) {
+            throw new IllegalArgumentException("Solo se pueden poner en venta flash productos aprobados y activos");
+        }
+        ProductLedger current = owned(productId);
+        if (current != null) {
+            return current.available.sum();
+        }
+        FlashSale existing = flashSaleRepository.findByIdForUpdate(productId).orElse(null);
+        if (existing != null) {
+            throw new IllegalStateException("El producto " + productId + " ya está en venta flash en la instancia "
+                    + existing.getOwnerNode());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        flashSaleRepository.save(FlashSale.builder()
+                .productId(productId)
+                .baselineStock(product.getStock())
+                .baselineCartUnits(cartItemRepository.sumQuantityByProductId(productId))
+                .baselineOrderUnits(orderItemRepository.sumActiveQuantityByProductId(productId))
+                .enabledAt(now)
+                .ownerNode(nodeId)
+                .leaseUntil(now.plus(lease))
+                .build());
+
+        long allocatable = Math.max(0, product.getStock() - reservedUnits(productId));
+        ProductLedger ledger = newLedger(product, allocatable);
+        afterCommit(() -> active.putIfAbsent(productId, ledger));
+
+        log.info("✅ Venta flash activada: productId={}, stock={}, asignable={}, franjas={}, instancia={}",
+                productId, product.getStock(), allocatable, ledger.available.stripes(), nodeId);
+        return allocatable;
+    }
+
+    /**
+     * Desactiva el modo: el producto vuelve al UPDATE atómico en base de datos.
+     *
+     * La desactiva la instancia dueña, que escribe sus deltas pendientes. Otra instancia solo puede
+     * hacerlo si la dueña dejó de renovar el lease; entonces el stock se reconstruye antes de salir.
+     */
+    @Transactional
+    public void disable(Long productId) {
+        Product product = productRepository.findByIdForUpdate(productId).orElse(null);
+        FlashSale flashSale = flashSaleRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("El producto no está en venta flash"));
+
+        ProductLedger ledger = owned(productId);
+        if (ledger == null) {
+            boolean leaseExpired = flashSale.getLeaseUntil().isBefore(LocalDateTime.now());
+            if (!nodeId.equals(flashSale.getOwnerNode()) && !leaseExpired) {
+                throw new IllegalStateException("La venta flash del producto " + productId
+                        + " la atiende la instancia " + flashSale.getOwnerNode());
+            }
+            if (product != null) {
+                reconcileStock(flashSale, product);
+            }
+            // Un ledger local con el lease vencido queda cubierto por la reconstrucción
+            ProductLedger stale = active.get(productId);
+            if (stale != null) {
+                afterCommit(() -> lose(stale));
+            }
+        } else {
+            // Se retira ya: hasta el commit las asignaciones van a BD, que las rechaza mientras exista la fila
+            synchronized (lifecycle) {
+                active.remove(productId, ledger);
+                retired.put(productId, ledger);
+            }
+            onRollback(() -> {
+                synchronized (lifecycle) {
+                    retired.remove(productId, ledger);
+                    active.putIfAbsent(productId, ledger);
+                }
+            });
+        }
+
+        flashSaleRepository.delete(flashSale);
+        afterCommit(() -> {
+            flush();
+            log.info("Venta flash desactivada: productId={}", productId);
+        });
+    }
+
+    /**
+     * Al arrancar carga las ventas flash propias (reinicio con el mismo node-id) y las huérfanas
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        renewLeases();
+    }
+
+    /**
+     * Renueva el lease de las ventas flash propias, descarta las que otra instancia reclamó y
+     * toma las propias aún no cargadas y las de instancias que dejaron de renovar
+     */
+    public synchronized void renewLeases() {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ownedIds;
+        try {
+            ownedIds = writeTransaction.execute(status -> {
+                jdbcTemplate.update(RENEW_SQL, Timestamp.valueOf(now.plus(lease)), nodeId);
+                return jdbcTemplate.queryForList(OWNED_SQL, Long.class, nodeId);
+            });
+        } catch (RuntimeException e) {
+            // Los ledgers siguen sirviendo hasta la mitad del lease; si no se renueva antes, dejan de asignar
+            log.warn("No se pudo renovar el lease de las ventas flash: {}", e.getMessage());
+            return;
+        }
+
+        Set<Long> owned = new HashSet<>(ownedIds);
+        for (ProductLedger ledger : List.copyOf(active.values())) {
+            if (owned.contains(ledger.productId)) {
+                ledger.extendLease(started, lease);
+            } else if (ledger.createdAt - started < 0) {
+                // Creado antes de esta ronda y ya no es nuestro: otra instancia lo reconstruyó
+                lose(ledger);
+            }
+        }
+
+        for (Long productId : flashSaleRepository.findClaimableIds(nodeId, now)) {
+            if (!active.containsKey(productId)) {
+                claim(productId);
+            }
+        }
+    }
+
+    /**
+     * Toma una venta flash: reconstruye products.stock con los carritos, órdenes y reservas
+     * persistidos (los deltas no escritos por la dueña anterior se perdieron) y carga el ledger
+     */
+    private void claim(Long productId) {
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                Product product = productRepository.findByIdForUpdate(productId).orElse(null);
+                FlashSale flashSale = flashSaleRepository.findByIdForUpdate(productId).orElse(null);
+                if (flashSale == null
+                        || !(nodeId.equals(flashSale.getOwnerNode()) || flashSale.getLeaseUntil().isBefore(now))) {
+                    return;  // Desactivada o reclamada por otra instancia entre medias
+                }
+                if (product == null) {
+                    flashSaleRepository.delete(flashSale);
+                    return;
+                }
+
+                String previousOwner = flashSale.getOwnerNode();
+                int stock = reconcileStock(flashSale, product);
+                flashSale.setOwnerNode(nodeId);
+                flashSale.setLeaseUntil(now.plus(lease));
+
+                long allocatable = Math.max(0, stock - reservedUnits(productId));
+                ProductLedger ledger = newLedger(product, allocatable);
+                afterCommit(() -> active.putIfAbsent(productId, ledger));
+                log.info("✅ Venta flash recuperada: productId={}, stock={}, asignable={}, instancia anterior={}",
+                        productId, stock, allocatable, previousOwner);
+            });
+        } catch (RuntimeException e) {
+            log.warn("No se pudo recuperar la venta flash del producto {}: {}", productId, e.getMessage());
+        }
+    }
+
+    /**
+     * stock = baselineStock - (carritos - baselineCartUnits) - (órdenes - baselineOrderUnits)
+     */
+    private int reconcileStock(FlashSale flashSale, Product product) {
+        Long productId = flashSale.getProductId();
+        long cartDelta = cartItemRepository.sumQuantityByProductId(productId) - flashSale.getBaselineCartUnits();
+        long orderDelta = orderItemRepository.sumActiveQuantityByProductId(productId) - flashSale.getBaselineOrderUnits();
+        int reconciledStock = (int) Math.max(0, flashSale.getBaselineStock() - cartDelta - orderDelta);
+
+        if (reconciledStock != product.getStock()) {
+            log.warn("Venta flash productId={}: stock en BD {} corregido a {} (deltas no escritos antes de la caída)",
+                    productId, product.getStock(), reconciledStock);
+            jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", reconciledStock, productId);
+        }
+        return reconciledStock;
+    }
+
+    /**
+     * Write-behind: aplica en un solo lote transaccional los deltas acumulados
+     */
+    public synchronized void flush() {
+        List<ProductLedger> ledgers = new ArrayList<>();
+        for (ProductLedger ledger : active.values()) {
+            // Sin lease vigente los deltas esperan: si otra instancia reclama la venta, su reconstrucción los cubre
+            if (ledger.leaseValid()) {
+                ledgers.add(ledger);
+            }
+        }
+        ledgers.addAll(retired.values());
+
+        Map<ProductLedger, Long> drained = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (ProductLedger ledger : ledgers) {
+            long delta = ledger.drain();
+            if (delta != 0) {
+                drained.put(ledger, delta);
+                batch.add(new Object[] {delta, ledger.productId});
+            }
+        }
+        synchronized (lifecycle) {
+            retired.values().removeIf(ledger -> !drained.containsKey(ledger) && ledger.pendingDelta.sum() == 0);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            writeTransaction.executeWithoutResult(
+                    status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+        } catch (RuntimeException e) {
+            // Se reintenta en el siguiente ciclo con los deltas intactos
+            drained.forEach((ledger, delta) -> ledger.pendingDelta.add(delta));
+            log.warn("No se pudo escribir el stock de ventas flash ({} productos): {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        drained.keySet().forEach(ledger -> eventPublisher.publishEvent(
+                ProductChangedEvent.stock(ledger.productId, ledger.name, ledger.category)));
+        log.debug("Stock de ventas flash escrito: {} productos", batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private int reservedUnits(Long productId) {
+        return reservationTotalRepository.findReservedByProductId(productId).orElse(0);
+    }
+
+    private ProductLedger owned(Long productId) {
+        ProductLedger ledger = active.get(productId);
+        return ledger != null && ledger.leaseValid() ? ledger : null;
+    }
+
+    private ProductLedger requireActive(Long productId) {
+        ProductLedger ledger = owned(productId);
+        if (ledger == null) {
+            throw new IllegalStateException("El producto " + productId + " no está en venta flash en esta instancia");
+        }
+        return ledger;
+    }
+
+    private ProductLedger newLedger(Product product, long allocatable) {
+        ProductLedger ledger = new ProductLedger(product.getId(), product.getName(), product.getCategory(),
+                new StripedStockCounter(allocatable, stripes));
+        ledger.extendLease(ledger.createdAt, lease);
+        return ledger;
+    }
+
+    /**
+     * Vuelven unidades al ledger (devolución confirmada o asignación revertida). Si entretanto se
+     * desactivó y ya se escribió, van directas a BD; si otra instancia lo reclamó, su reconstrucción
+     * ya las cuenta.
+     */
+    private void credit(ProductLedger ledger, int quantity) {
+        synchronized (lifecycle) {
+            if (ledger.lost) {
+                return;
+            }
+            if (active.get(ledger.productId) == ledger) {
+                ledger.pendingDelta.add(quantity);
+                ledger.available.release(quantity);
+                return;
+            }
+            if (retired.get(ledger.productId) == ledger) {
+                ledger.pendingDelta.add(quantity);
+                return;
+            }
+        }
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update(FLUSH_SQL, quantity, ledger.productId));
+        eventPublisher.publishEvent(ProductChangedEvent.stock(ledger.productId, ledger.name, ledger.category));
+    }
+
+    /**
+     * Descarta un ledger cuya venta reconstruyó otra instancia (o esta al desactivarla sin lease)
+     */
+    private void lose(ProductLedger ledger) {
+        synchronized (lifecycle) {
+            ledger.lost = true;
+            active.remove(ledger.productId, ledger);
+        }
+        log.warn("Venta flash productId={} ya no la atiende esta instancia: {} unidades sin escribir descartadas",
+                ledger.productId, ledger.pendingDelta.sum());
+    }
+
+    private static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class ProductLedger {
+        private final Long productId;
+        private final String name;
+        private final String category;
+        private final StripedStockCounter available;
+        // Variación de products.stock aún no escrita en BD
+        private final LongAdder pendingDelta = new LongAdder();
+        private final long createdAt = System.nanoTime();
+        // Hasta cuándo (System.nanoTime) puede asignar sin haber renovado: la mitad del lease en BD
+        private volatile long leaseDeadline;
+        private volatile boolean lost;
+
+        private ProductLedger(Long productId, String name, String category, StripedStockCounter available) {
+            this.productId = productId;
+            this.name = name;
+            this.category = category;
+            this.available = available;
+        }
+
+        private void extendLease(long renewedAt, Duration lease) {
+            leaseDeadline = renewedAt + lease.toNanos() / 2;
+        }
+
+        private boolean leaseValid() {
+            return !lost && System.nanoTime() - leaseDeadline < 0;
+        }
+
+        /**
+         * Retira el delta pendiente; las sumas concurrentes quedan para el siguiente ciclo
+         */
+        private long drain() {
+            long delta = pendingDelta.sum();
+            pendingDelta.add(-delta);
+            return delta;
+        }
+    }
+}
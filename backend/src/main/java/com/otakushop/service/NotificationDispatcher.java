@@ -0,0 +1,359 @@
+package com.otakushop.service;
+
+import com.otakushop.cache.UnreadCountCache;
+import com.otakushop.dto.NotificationResponse;
+import com.otakushop.dto.UnreadCountMessage;
+import com.otakushop.entity.Notification.NotificationType;
+import com.otakushop.entity.Notification;
+import com.otakushop.event.NotificationRequestedEvent;
+import com.otakushop.repository.EntityIdAllocator;
+import com.otakushop.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envío asíncrono de notificaciones.
+ *
+ * - Las peticiones llegan como {@link NotificationRequestedEvent} y se encolan tras el commit del
+ *   llamador en una cola acotada: crear una notificación no toca la base ni el WebSocket en la
+ *   petición que la originó
+ * - Un flush periódico vacía la cola en lotes: cada lote es un único INSERT (unnest de arrays) que
+ *   descarta usuarios inexistentes y devuelve ids y emails, en lugar de findById + INSERT por fila.
+ *   Los ids llegan en el propio array, reservados del generador pooled de Notification
+ * - El mensaje WebSocket sale solo cuando el lote ya está confirmado, con el contador de no leídas
+ *   del usuario ya recalculado (ver {@link UnreadCountCache}); el cliente no necesita sondearlo
+ * - Con la cola llena el productor espera como mucho app.notifications.enqueue-timeout-ms y, si
+ *   sigue llena, la notificación se descarta y se cuenta en otaku.notifications.dropped
+ * - Si un lote falla se reescribe fila a fila, para que una notificación inválida no bloquee al
+ *   resto; las que siguen fallando se reencolan y, tras {@value #MAX_WRITE_ATTEMPTS} intentos, se
+ *   descartan con reason=error
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String INSERT_SQL = """
+        WITH inserted AS (
+            INSERT INTO notifications (id, user_id, title, message, type, is_read, created_at, updated_at)
+            SELECT n.id, n.user_id, n.title, n.message, n.type, false, ?, ?
+            FROM unnest(?, ?, ?, ?, ?) AS n(id, user_id, title, message, type)
+            WHERE EXISTS (SELECT 1 FROM users u WHERE u.id = n.user_id)
+            RETURNING id, user_id, title, message, type, created_at
+        )
+        SELECT i.id, i.user_id, i.title, i.message, i.type, i.created_at, u.email
+        FROM inserted i JOIN users u ON u.id = i.user_id
+        """;
+
+    static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadCountCache unreadCountCache;
+    private final UserRepository userRepository;
+    private final EntityIdAllocator idAllocator;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long enqueueTimeoutMs;
+
+    private final Counter enqueued;
+    private final Counter droppedOverflow;
+    private final Counter droppedError;
+    private final Counter persisted;
+    private final Counter deliveryFailures;
+
+    public NotificationDispatcher(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  UnreadCountCache unreadCountCache,
+                                  UserRepository userRepository,
+                                  EntityIdAllocator idAllocator,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notifications.queue-capacity:20000}") int queueCapacity,
+                                  @Value("${app.notifications.batch-size:500}") int batchSize,
+                                  @Value("${app.notifications.enqueue-timeout-ms:0}") long enqueueTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.messagingTemplate = messagingTemplate;
+        this.unreadCountCache = unreadCountCache;
+        this.userRepository = userRepository;
+        this.idAllocator = idAllocator;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+
+        Gauge.builder("otaku.notifications.queue.size", queue, BlockingQueue::size)
+                .description("Notificaciones en cola pendientes de escribir")
+                .register(meterRegistry);
+        this.enqueued = Counter.builder("otaku.notifications.enqueued")
+                .description("Notificaciones aceptadas en la cola")
+                .register(meterRegistry);
+        this.droppedOverflow = dropped(meterRegistry, "overflow");
+        this.droppedError = dropped(meterRegistry, "error");
+        this.persisted = Counter.builder("otaku.notifications.persisted")
+                .description("Notificaciones escritas en la base")
+                .register(meterRegistry);
+        this.deliveryFailures = Counter.builder("otaku.notifications.delivery.failures")
+                .description("Mensajes WebSocket de notificación que no se pudieron enviar")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola la notificación una vez confirmada la transacción que la pidió (o al momento, sin transacción)
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onNotificationRequested(NotificationRequestedEvent event) {
+        int rejected = 0;
+        for (Long userId : event.getUserIds()) {
+            if (!enqueue(new Pending(userId, event.getTitle(), event.getMessage(), event.getType()))) {
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            log.warn("❌ Cola de notificaciones llena: {} de {} notificaciones \"{}\" descartadas",
+                    rejected, event.getUserIds().size(), event.getTitle());
+        }
+    }
+
+    /**
+     * Escribe la cola en lotes y envía por WebSocket lo ya confirmado
+     */
+    public synchronized void flush() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            List<Delivery> deliveries;
+            try {
+                deliveries = write(batch);
+            } catch (RuntimeException e) {
+                // Lo que siga fallando se reintenta en el siguiente ciclo, no en este
+                publish(writeOneByOne(batch, e));
+                return;
+            }
+            publish(deliveries);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Recalcula y envía el contador de no leídas del usuario tras el commit (leídas, eliminadas)
+     */
+    public void pushUnreadCount(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendUnreadCount(userId);
+                }
+            });
+        } else {
+            sendUnreadCount(userId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private boolean enqueue(Pending pending) {
+        boolean accepted;
+        try {
+            accepted = enqueueTimeoutMs > 0
+                    ? queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)
+                    : queue.offer(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            enqueued.increment();
+        } else {
+            droppedOverflow.increment();
+        }
+        return accepted;
+    }
+
+    /**
+     * Escribe cada notificación en su propia transacción; las que fallan se reencolan hasta agotar
+     * sus intentos. Un lote de una sola fila no se repite: su fallo ya es el de la fila.
+     */
+    private List<Delivery> writeOneByOne(List<Pending> batch, RuntimeException batchError) {
+        List<Delivery> deliveries = new ArrayList<>(batch.size());
+        int failed = 0;
+        int requeued = 0;
+        for (Pending pending : batch) {
+            RuntimeException error = batchError;
+            if (batch.size() > 1) {
+                try {
+                    deliveries.addAll(write(List.of(pending)));
+                    continue;
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            failed++;
+            if (retryLater(pending, error)) {
+                requeued++;
+            }
+        }
+        if (failed > 0) {
+            log.warn("No se pudieron escribir {} notificaciones ({} reencoladas, {} descartadas): {}",
+                    failed, requeued, failed - requeued, batchError.getMessage());
+        }
+        return deliveries;
+    }
+
+    /**
+     * Reencola una notificación que no se pudo escribir, o la descarta si agotó sus intentos
+     *
+     * @return true si quedó en la cola
+     */
+    private boolean retryLater(Pending pending, RuntimeException error) {
+        pending.attempts++;
+        if (pending.attempts < MAX_WRITE_ATTEMPTS && queue.offer(pending)) {
+            return true;
+        }
+        droppedError.increment();
+        log.debug("Notificación \"{}\" para el usuario {} descartada tras {} intentos: {}",
+                pending.title, pending.userId, pending.attempts, error.getMessage());
+        return false;
+    }
+
+    private void publish(List<Delivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        persisted.increment(deliveries.size());
+        attachUnreadCounts(deliveries);
+        deliveries.forEach(this::deliver);
+    }
+
+    private List<Delivery> write(List<Pending> batch) {
+        Long[] userIds = new Long[batch.size()];
+        String[] titles = new String[batch.size()];
+        String[] messages = new String[batch.size()];
+        String[] types = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            userIds[i] = pending.userId;
+            titles[i] = pending.title;
+            messages[i] = pending.message;
+            types[i] = pending.type.name();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Los ids de usuarios inexistentes quedan sin usar
+            Long[] ids = idAllocator.nextIds(Notification.class, batch.size());
+            return jdbcTemplate.query(INSERT_SQL,
+                ps -> {
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setArray(4, ps.getConnection().createArrayOf("bigint", userIds));
+                    ps.setArray(5, ps.getConnection().createArrayOf("text", titles));
+                    ps.setArray(6, ps.getConnection().createArrayOf("text", messages));
+                    ps.setArray(7, ps.getConnection().createArrayOf("text", types));
+                },
+                (rs, rowNum) -> new Delivery(rs.getLong("user_id"), rs.getString("email"), new NotificationResponse(
+                        rs.getLong("id"),
+                        rs.getString("title"),
+                        rs.getString("message"),
+                        rs.getString("type"),
+                        false,
+                        rs.getTimestamp("created_at").toLocalDateTime(),
+                        null,
+                        null,
+                        null)));
+        });
+    }
+
+    private void attachUnreadCounts(List<Delivery> deliveries) {
+        try {
+            Map<Long, Long> counts = unreadCountCache.reload(
+                    deliveries.stream().map(delivery -> delivery.userId).distinct().toList());
+            deliveries.forEach(delivery -> delivery.response.setUnreadCount(counts.get(delivery.userId)));
+        } catch (RuntimeException e) {
+            // Se envían sin contador; el cliente conserva el último o lo consulta
+            log.warn("No se pudieron recalcular los contadores de no leídas: {}", e.getMessage());
+        }
+    }
+
+    private void sendUnreadCount(Long userId) {
+        try {
+            long count = unreadCountCache.reload(List.of(userId)).get(userId);
+            userRepository.findEmailById(userId).ifPresent(email -> messagingTemplate.convertAndSendToUser(
+                    email, "/queue/notifications", new UnreadCountMessage(count)));
+        } catch (RuntimeException e) {
+            deliveryFailures.increment();
+            log.debug("No se pudo enviar el contador de no leídas del usuario {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void deliver(Delivery delivery) {
+        try {
+            messagingTemplate.convertAndSendToUser(delivery.email, "/queue/notifications", delivery.response);
+        } catch (MessagingException e) {
+            deliveryFailures.increment();
+            log.debug("No se pudo enviar la notificación {} por WebSocket: {}",
+                    delivery.response.getId(), e.getMessage());
+        }
+    }
+
+    private static Counter dropped(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("otaku.notifications.dropped")
+                .description("Notificaciones descartadas (cola llena o intentos de escritura agotados)")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class Pending {
+        final Long userId;
+        final String title;
+        final String message;
+        final NotificationType type;
+        int attempts;
+
+        Pending(Long userId, String title, String message, NotificationType type) {
+            this.userId = userId;
+            this.title = title;
+            this.message = message;
+            this.type = type;
+        }
+    }
+
+    private static final class Delivery {
+        final Long userId;
+        final String email;
+        final NotificationResponse response;
+
+        Delivery(Long userId, String email, NotificationResponse response) {
+            this.userId = userId;
+            this.email = email;
+            this.response = response;
+        }
+    }
+}
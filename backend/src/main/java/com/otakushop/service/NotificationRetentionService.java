@@ -0,0 +1,172 @@
+package com.otakushop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Retención de notificaciones: mantiene pequeña la tabla caliente notifications.
+ *
+ * - Las leídas con más de app.notifications.retention.read-max-age-days se mueven a
+ *   notifications_archive (mode=archive) o se eliminan (mode=purge)
+ * - El archivo se purga pasado app.notifications.retention.archive-max-age-days
+ * - Todo en lotes de chunk-size filas, cada uno en su propia transacción corta (DELETE ... RETURNING
+ *   sobre ids elegidos con FOR UPDATE SKIP LOCKED): nunca se bloquea la tabla y dos instancias
+ *   pueden ejecutar el job a la vez sin pisarse
+ * - Con pausa entre lotes y un máximo por ejecución; lo que quede se procesa en la siguiente
+ *
+ * Cada ejecución registra filas movidas/eliminadas y duración en el log y en métricas
+ * (otaku.notifications.retention.rows y otaku.notifications.retention.duration).
+ */
+@Service
+@Slf4j
+public class NotificationRetentionService {
+
+    private static final String CANDIDATES = """
+        SELECT id FROM notifications
+        WHERE is_read = true AND created_at < ?
+        ORDER BY id
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+        """;
+
+    private static final String ARCHIVE_SQL = """
+        WITH moved AS (
+            DELETE FROM notifications
+            WHERE id IN (%s)
+            RETURNING id, user_id, title, message, type, read_at, metadata, created_at
+        )
+        INSERT INTO notifications_archive (id, user_id, title, message, type, read_at, metadata, created_at, archived_at)
+        SELECT id, user_id, title, message, type, read_at, metadata, created_at, ?
+        FROM moved
+        ON CONFLICT (id) DO NOTHING
+        """.formatted(CANDIDATES);
+
+    private static final String PURGE_SQL = "DELETE FROM notifications WHERE id IN (" + CANDIDATES + ")";
+
+    private static final String PURGE_ARCHIVE_SQL = """
+        DELETE FROM notifications_archive
+        WHERE id IN (
+            SELECT id FROM notifications_archive
+            WHERE archived_at < ?
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        )
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean archive;
+    private final int readMaxAgeDays;
+    private final int archiveMaxAgeDays;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+    private final long pauseMs;
+
+    private final Counter archivedRows;
+    private final Counter purgedRows;
+    private final Counter purgedArchiveRows;
+    private final Timer duration;
+
+    public NotificationRetentionService(JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.notifications.retention.mode:archive}") String mode,
+                                        @Value("${app.notifications.retention.read-max-age-days:30}") int readMaxAgeDays,
+                                        @Value("${app.notifications.retention.archive-max-age-days:365}") int archiveMaxAgeDays,
+                                        @Value("${app.notifications.retention.chunk-size:5000}") int chunkSize,
+                                        @Value("${app.notifications.retention.max-chunks-per-run:200}") int maxChunksPerRun,
+                                        @Value("${app.notifications.retention.pause-ms:50}") long pauseMs) {
+        if (!"archive".equalsIgnoreCase(mode) && !"purge".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("app.notifications.retention.mode debe ser archive o purge: " + mode);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archive = "archive".equalsIgnoreCase(mode);
+        this.readMaxAgeDays = readMaxAgeDays;
+        this.archiveMaxAgeDays = archiveMaxAgeDays;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.pauseMs = pauseMs;
+
+        this.archivedRows = rows(meterRegistry, "archived");
+        this.purgedRows = rows(meterRegistry, "purged");
+        this.purgedArchiveRows = rows(meterRegistry, "archive_purged");
+        this.duration = Timer.builder("otaku.notifications.retention.duration")
+                .description("Duración de cada ejecución de la retención de notificaciones")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Una ejecución completa: tabla caliente y luego el archivo
+     *
+     * @return filas movidas o eliminadas de notifications
+     */
+    public long runRetention() {
+        long begin = System.nanoTime();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp readCutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(readMaxAgeDays));
+        Timestamp archiveCutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(archiveMaxAgeDays));
+
+        long hotRows = inChunks(archive
+                ? () -> jdbcTemplate.update(ARCHIVE_SQL, readCutoff, chunkSize, now)
+                : () -> jdbcTemplate.update(PURGE_SQL, readCutoff, chunkSize));
+        (archive ? archivedRows : purgedRows).increment(hotRows);
+
+        long archiveRows = archive
+                ? inChunks(() -> jdbcTemplate.update(PURGE_ARCHIVE_SQL, archiveCutoff, chunkSize))
+                : 0;
+        purgedArchiveRows.increment(archiveRows);
+
+        long elapsedNanos = System.nanoTime() - begin;
+        duration.record(Duration.ofNanos(elapsedNanos));
+        log.info("✅ Retención de notificaciones: {} filas {} (leídas de más de {} días), {} purgadas del archivo, en {} ms",
+                hotRows, archive ? "archivadas" : "eliminadas", readMaxAgeDays, archiveRows, elapsedNanos / 1_000_000);
+        return hotRows;
+    }
+
+    /**
+     * Repite el lote (una transacción corta cada uno) hasta que devuelve menos filas que chunk-size
+     */
+    private long inChunks(IntSupplier chunk) {
+        long total = 0;
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            Integer affected = transactionTemplate.execute(status -> chunk.getAsInt());
+            int rows = affected != null ? affected : 0;
+            total += rows;
+            if (rows < chunkSize) {
+                return total;
+            }
+            if (pauseMs > 0) {
+                try {
+                    Thread.sleep(pauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return total;
+                }
+            }
+        }
+        log.warn("Retención de notificaciones: alcanzado el máximo de {} lotes, el resto queda para la siguiente ejecución",
+                maxChunksPerRun);
+        return total;
+    }
+
+    private static Counter rows(MeterRegistry meterRegistry, String action) {
+        return Counter.builder("otaku.notifications.retention.rows")
+                .description("Filas procesadas por la retención de notificaciones")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+}
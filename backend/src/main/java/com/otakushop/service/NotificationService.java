@@ -1,20 +1,21 @@
 package com.otakushop.service;
 
+import com.otakushop.cache.UnreadCountCache;
 import com.otakushop.dto.NotificationResponse;
 import com.otakushop.entity.Notification;
-import com.otakushop.entity.User;
+import com.otakushop.event.NotificationRequestedEvent;
 import com.otakushop.exception.ResourceNotFoundException;
 import com.otakushop.repository.NotificationRepository;
-import com.otakushop.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,31 +24,31 @@ import java.util.stream.Collectors;
 public class NotificationService {
     
     private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UnreadCountCache unreadCountCache;
+    private final NotificationDispatcher notificationDispatcher;
     
-    @Transactional
-    public NotificationResponse createNotification(Long userId, String title, String message, String type) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-        
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setType(Notification.NotificationType.valueOf(type));
-        
-        Notification saved = notificationRepository.save(notification);
-        
-        // Enviar notificación en tiempo real via WebSocket
-        NotificationResponse response = mapToResponse(saved);
-        messagingTemplate.convertAndSendToUser(
-            user.getEmail(),
-            "/queue/notifications",
-            response
-        );
-        
-        return response;
+    /**
+     * Pide una notificación para el usuario. Se escribe y se envía por WebSocket de forma
+     * asíncrona tras el commit del llamador (ver {@link NotificationDispatcher})
+     */
+    public void createNotification(Long userId, String title, String message, String type) {
+        createNotifications(List.of(userId), title, message, type);
+    }
+    
+    /**
+     * La misma notificación para muchos usuarios (p. ej. aviso de reposición a todos los interesados)
+     */
+    public void createNotifications(Collection<Long> userIds, String title, String message, String type) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new NotificationRequestedEvent(
+            List.copyOf(userIds),
+            title,
+            message,
+            Notification.NotificationType.valueOf(type)
+        ));
     }
     
     public Page<NotificationResponse> getUserNotifications(Long userId, int page, int size) {
@@ -63,8 +64,11 @@ public class NotificationService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * No leídas del usuario desde el contador en caché (badge de la cabecera)
+     */
     public Long getUnreadCount(Long userId) {
-        return notificationRepository.countUnreadByUserId(userId);
+        return unreadCountCache.get(userId);
     }
     
     @Transactional
@@ -76,14 +80,21 @@ public class NotificationService {
             throw new RuntimeException("No tienes permiso para marcar esta notificación");
         }
         
+        if (notification.isRead()) {
+            return;
+        }
+        
         notification.setRead(true);
         notification.setReadAt(LocalDateTime.now());
         notificationRepository.save(notification);
+        notificationDispatcher.pushUnreadCount(userId);
     }
     
     @Transactional
     public void markAllAsRead(Long userId) {
-        notificationRepository.markAllAsReadForUser(userId);
+        if (notificationRepository.markAllAsReadForUser(userId) > 0) {
+            notificationDispatcher.pushUnreadCount(userId);
+        }
     }
     
     @Transactional
@@ -96,6 +107,9 @@ public class NotificationService {
         }
         
         notificationRepository.delete(notification);
+        if (!notification.isRead()) {
+            notificationDispatcher.pushUnreadCount(userId);
+        }
     }
     
     private NotificationResponse mapToResponse(Notification notification) {
@@ -107,7 +121,8 @@ public class NotificationService {
             notification.isRead(),
             notification.getCreatedAt(),
             notification.getReadAt(),
-            notification.getMetadata()
+            notification.getMetadata(),
+            null
         );
     }
 }
@@ -4,18 +4,27 @@ import com.otakushop.dto.CreateOrderRequest;
 import com.otakushop.dto.OrderDTO;
 import com.otakushop.dto.OrderItemDTO;
 import com.otakushop.entity.*;
+import com.otakushop.repository.OrderItemRepository;
 import com.otakushop.repository.OrderRepository;
 import com.otakushop.repository.ProductRepository;
 import com.otakushop.repository.UserRepository;
 import com.otakushop.util.SecurityUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,26 +37,82 @@ public class OrderService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final SecurityUtil securityUtil;
-    
-    // ✅ Constantes para retry de optimistic locking
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-    private static final long RETRY_DELAY_MS = 100;
+    private final OrderItemRepository orderItemRepository;
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final int MAX_ORDER_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 20;
     
     /**
-     * Crea una nueva orden a partir del carrito
+     * Crea una nueva orden a partir del carrito.
+     *
+     * La transacción se ejecuta dentro de un bucle de reintentos: ante un fallo transitorio
+     * (timeout de lock, fallo de serialización) se espera con backoff exponencial y jitter
+     * FUERA de la transacción, sin retener la conexión.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public OrderDTO createOrder(CreateOrderRequest request) {
-        @SuppressWarnings("null")
         Long userId = securityUtil.getCurrentUserId();
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new IllegalArgumentException("El carrito no puede estar vacío");
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> placeOrder(userId, request));
+            } catch (TransientDataAccessException e) {
+                if (attempt >= MAX_ORDER_ATTEMPTS) {
+                    log.error("Orden no creada tras {} intentos: usuario={}", attempt, userId, e);
+                    throw new IllegalStateException("No se pudo crear la orden, intenta nuevamente");
+                }
+                long backoff = BASE_BACKOFF_MS << (attempt - 1);
+                long delay = backoff + ThreadLocalRandom.current().nextLong(backoff);
+                log.warn("Conflicto transitorio creando orden (intento {}/{}), reintento en {}ms: {}",
+                        attempt, MAX_ORDER_ATTEMPTS, delay, e.getMessage());
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Un intento de creación de orden, en una sola transacción:
+     * 1. Carga todos los productos con una consulta (findAllById) y valida en memoria
+     * 2. Descuenta stock por producto en orden ascendente de id: dos órdenes con los mismos
+     *    productos toman los locks de fila en el mismo orden y no pueden bloquearse mutuamente
+     * 3. Inserta la orden y sus líneas (un solo batch JDBC)
+     */
+    private OrderDTO placeOrder(Long userId, CreateOrderRequest request) {
         @SuppressWarnings("null")
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-        
-        if (request.getItems() == null || request.getItems().isEmpty()) {
-            throw new IllegalArgumentException("El carrito no puede estar vacío");
+
+        // Cantidad total por producto, ordenada por id (orden global de locks)
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
+            if (itemRequest.getQuantity() == null || itemRequest.getQuantity() <= 0) {
+                throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+            }
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
         }
-        
-        // Crear la orden
+
+        @SuppressWarnings("null")
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        for (Long productId : quantities.keySet()) {
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("Producto no encontrado: " + productId);
+            }
+            if (!Boolean.TRUE.equals(product.getActive()) || !ProductStatus.APPROVED.equals(product.getStatus())) {
+                throw new IllegalArgumentException("Producto no disponible: " + product.getName());
+            }
+        }
+
+        // ✅ Descuento atómico (UPDATE condicional) en orden de id; sin stock lanza excepción y hace rollback
+        quantities.forEach((productId, quantity) -> stockService.decrement(products.get(productId), quantity));
+
         Order order = Order.builder()
                 .user(user)
                 .status(OrderStatus.PENDING)
@@ -60,29 +125,15 @@ public class OrderService {
                 .notes(request.getNotes())
                 .totalPrice(BigDecimal.ZERO)
                 .build();
-        
-        // Procesar los items
+
+        List<OrderItem> items = new ArrayList<>(request.getItems().size());
         BigDecimal totalPrice = BigDecimal.ZERO;
         for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-            // Usar bloqueo pesimista para prevenir race conditions en stock
-            Product product = productRepository.findByIdForUpdate(itemRequest.getProductId())
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "Producto no encontrado: " + itemRequest.getProductId()));
-            
-            if (!product.getActive() || !"APPROVED".equals(product.getStatus())) {
-                throw new IllegalArgumentException(
-                        "Producto no disponible: " + product.getName());
-            }
-            
-            if (product.getStock() < itemRequest.getQuantity()) {
-                throw new IllegalArgumentException(
-                        "Stock insuficiente para " + product.getName());
-            }
-            
+            Product product = products.get(itemRequest.getProductId());
             BigDecimal unitPrice = product.getPrice();
             BigDecimal subtotal = unitPrice.multiply(new BigDecimal(itemRequest.getQuantity()));
-            
-            OrderItem item = OrderItem.builder()
+
+            items.add(OrderItem.builder()
                     .order(order)
                     .product(product)
                     .quantity(itemRequest.getQuantity())
@@ -90,20 +141,35 @@ public class OrderService {
                     .subtotal(subtotal)
                     .productName(product.getName())
                     .productImageUrl(product.getImageUrl())
-                    .build();
-            
-            order.getItems().add(item);
+                    .build());
             totalPrice = totalPrice.add(subtotal);
-            
-            // ✅ Actualizar stock con retry para optimistic locking
-            updateProductStockWithRetry(product, -itemRequest.getQuantity());
         }
-        
+
+        order.setSubtotal(totalPrice);
+        order.setTotal(totalPrice);
         order.setTotalPrice(totalPrice);
         Order savedOrder = orderRepository.save(order);
-        
-        log.info("Orden creada: ID={}, Usuario={}, Total={}", savedOrder.getId(), userId, totalPrice);
-        return convertToDTO(savedOrder);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (OrderItem item : items) {
+            item.setCreatedBy(savedOrder.getCreatedBy());
+            item.setCreatedAt(now);
+            item.setUpdatedAt(now);
+        }
+        orderItemRepository.batchInsert(items);
+
+        log.info("Orden creada: ID={}, Usuario={}, Items={}, Total={}",
+                savedOrder.getId(), userId, items.size(), totalPrice);
+        return convertToDTO(savedOrder, items);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Creación de orden interrumpida");
+        }
     }
     
     /**
@@ -157,14 +223,10 @@ public class OrderService {
             throw new IllegalArgumentException("No se puede cancelar una orden que ya fue enviada");
         }
         
-        // Restaurar stock de productos con bloqueo pesimista
-        for (OrderItem item : order.getItems()) {
-            Product product = productRepository.findByIdForUpdate(item.getProduct().getId())
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "Producto no encontrado: " + item.getProduct().getId()));
-            // ✅ Restaurar stock con retry para optimistic locking
-            updateProductStockWithRetry(product, item.getQuantity());
-        }
+        // Restaurar stock en orden de id de producto (mismo orden de locks que placeOrder)
+        order.getItems().stream()
+                .sorted(Comparator.comparing(item -> item.getProduct().getId()))
+                .forEach(item -> stockService.increment(item.getProduct(), item.getQuantity()));
         
         order.setStatus(OrderStatus.CANCELLED);
         order.setCancelledAt(LocalDateTime.now());
@@ -200,41 +262,6 @@ public class OrderService {
         return convertToDTO(updatedOrder);
     }
     
-    // ✅ NUEVA: Actualizar stock del producto con retry para optimistic locking
-    private void updateProductStockWithRetry(Product product, int quantityChange) {
-        int attemptCount = 0;
-        while (attemptCount < MAX_RETRY_ATTEMPTS) {
-            try {
-                product.setStock(product.getStock() + quantityChange);
-                productRepository.save(product);
-                log.debug("Stock actualizado exitosamente para producto ID={}", product.getId());
-                return;
-            } catch (ObjectOptimisticLockingFailureException ex) {
-                attemptCount++;
-                if (attemptCount >= MAX_RETRY_ATTEMPTS) {
-                    log.error("Fallo al actualizar stock después de {} intentos para producto ID={}", 
-                            MAX_RETRY_ATTEMPTS, product.getId());
-                    throw new RuntimeException(
-                        "No se pudo completar la operación de stock. Por favor, intenta nuevamente.",
-                        ex);
-                }
-                // Refetch el producto antes de reintentar
-                @SuppressWarnings("null")
-                Product refetched = productRepository.findById(product.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado"));
-                product = refetched;
-                log.debug("Reintentando actualización de stock: intento {}/{} para producto ID={}", 
-                        attemptCount, MAX_RETRY_ATTEMPTS, product.getId());
-                try {
-                    Thread.sleep(RETRY_DELAY_MS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Operación interrumpida", ie);
-                }
-            }
-        }
-    }
-    
     /**
      * Valida las transiciones de estado permitidas
      */
@@ -279,7 +306,11 @@ public class OrderService {
      * Convierte una orden a DTO
      */
     private OrderDTO convertToDTO(Order order) {
-        List<OrderItemDTO> itemDTOs = order.getItems().stream()
+        return convertToDTO(order, order.getItems());
+    }
+
+    private OrderDTO convertToDTO(Order order, List<OrderItem> items) {
+        List<OrderItemDTO> itemDTOs = items.stream()
                 .map(item -> OrderItemDTO.builder()
                         .id(item.getId())
                         .productId(item.getProduct().getId())
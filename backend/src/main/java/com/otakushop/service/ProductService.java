@@ -1,16 +1,26 @@
 package com.otakushop.service;
 
+import com.otakushop.config.CacheConfig;
+import com.otakushop.config.ProductSearchSchemaProbe;
 import com.otakushop.dto.ProductDTO;
+import com.otakushop.dto.ProductFilter;
+import com.otakushop.dto.ProductPageResponse;
 import com.otakushop.dto.ProductRequest;
 import com.otakushop.entity.Product;
 import com.otakushop.entity.ProductStatus;
 import com.otakushop.entity.User;
+import com.otakushop.event.ProductChangedEvent;
 import com.otakushop.repository.ProductRepository;
 import com.otakushop.repository.UserRepository;
+import com.otakushop.util.KeysetCursor;
+import com.otakushop.util.TextNormalizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
@@ -25,6 +35,13 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final FileUploadService fileUploadService;
+    private final ProductSearchSchemaProbe searchSchema;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Límites de paginación del catálogo público
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int ESTIMATED_TOTAL_CAP = 1000;
+    private static final int SEARCH_RANK_CANDIDATES = 2000;
 
     public List<ProductDTO> getAllProducts() {
         return productRepository.findAll().stream()
@@ -35,10 +52,9 @@ public class ProductService {
     /**
      * Obtiene solo los productos aprobados (visibles para clientes)
      */
+    @Cacheable(CacheConfig.APPROVED_PRODUCTS)
     public List<ProductDTO> getAllApprovedProducts() {
-        return productRepository.findAll().stream()
-                .filter(p -> "APPROVED".equals(p.getStatus()) && 
-                           (p.getActive() != null && p.getActive()))
+        return productRepository.findApprovedActive().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
@@ -74,6 +90,7 @@ public class ProductService {
         product.setApprovedAt(java.time.LocalDateTime.now());
         product.setApprovedBy(admin);
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct));
         return convertToDTO(savedProduct);
     }
 
@@ -97,27 +114,47 @@ public class ProductService {
         product.setApprovedAt(java.time.LocalDateTime.now());
         product.setApprovedBy(admin);
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct));
         return convertToDTO(savedProduct);
     }
 
+    @Cacheable(value = CacheConfig.PRODUCT, key = "#id")
     public ProductDTO getProductById(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
         return convertToDTO(product);
     }
 
+    @Cacheable(value = CacheConfig.PRODUCTS_BY_CATEGORY, key = "#category")
     public List<ProductDTO> getProductsByCategory(String category) {
         return productRepository.findByCategory(category).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
-    public List<ProductDTO> searchProducts(String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword).stream()
+    /**
+     * Búsqueda de productos aprobados rankeada por relevancia (nombre > categoría > descripción).
+     * Usa el índice full-text con coincidencia por prefijo y sin tildes; si no está disponible,
+     * recurre al filtro LIKE del catálogo.
+     */
+    public List<ProductDTO> searchProducts(String keyword, int limit) {
+        int pageSize = clampPageSize(limit);
+        String tsQuery = TextNormalizer.toPrefixTsQuery(keyword);
+        if (tsQuery == null) {
+            return List.of();
+        }
+
+        List<Product> results = searchSchema.isAvailable()
+                ? productRepository.searchApprovedRanked(tsQuery, SEARCH_RANK_CANDIDATES, pageSize)
+                : productRepository.findApprovedByFilter(ProductFilter.builder().search(keyword).build(), 0, pageSize);
+
+        return results.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Cacheable(value = CacheConfig.PRODUCT_QUERIES,
+               key = "'filter:' + #category + ':' + #minPrice + ':' + #maxPrice")
     public List<ProductDTO> filterProducts(String category, BigDecimal minPrice, BigDecimal maxPrice) {
         return productRepository.findByFilters(category, minPrice, maxPrice).stream()
                 .map(this::convertToDTO)
@@ -125,19 +162,68 @@ public class ProductService {
     }
 
     /**
-     * Filtra productos aprobados con búsqueda, categoría y rango de precio
+     * Filtra productos aprobados en la base de datos con paginación por offset (modo legacy page/limit)
      */
-    public List<ProductDTO> filterApprovedProducts(String search, String category, BigDecimal minPrice, BigDecimal maxPrice) {
-        return productRepository.findAll().stream()
-                .filter(p -> ProductStatus.APPROVED.equals(p.getStatus()) && (p.getActive() != null && p.getActive()))
-                .filter(p -> search == null || search.isEmpty() || 
-                           p.getName().toLowerCase().contains(search.toLowerCase()) ||
-                           (p.getDescription() != null && p.getDescription().toLowerCase().contains(search.toLowerCase())))
-                .filter(p -> category == null || category.isEmpty() || category.equals(p.getCategory()))
-                .filter(p -> minPrice == null || p.getPrice().compareTo(minPrice) >= 0)
-                .filter(p -> maxPrice == null || p.getPrice().compareTo(maxPrice) <= 0)
+    @Cacheable(value = CacheConfig.PRODUCT_QUERIES,
+               key = "'page:' + #filter + ':' + #page + ':' + #limit")
+    public ProductPageResponse filterApprovedProducts(ProductFilter filter, int page, int limit) {
+        int pageSize = clampPageSize(limit);
+        int currentPage = Math.max(page, 1);
+
+        List<ProductDTO> products = productRepository
+                .findApprovedByFilter(filter, (currentPage - 1) * pageSize, pageSize).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        long total = productRepository.countApprovedByFilter(filter);
+
+        return ProductPageResponse.builder()
+                .products(products)
+                .total(total)
+                .pages((int) Math.ceil((double) total / pageSize))
+                .currentPage(currentPage)
+                .hasMore((long) currentPage * pageSize < total)
+                .build();
+    }
+
+    /**
+     * Filtra productos aprobados con paginación keyset sobre (created_at, id).
+     * El costo por página no depende de la profundidad ni del tamaño del catálogo.
+     *
+     * @param cursor cursor devuelto por la página anterior (null = primera página)
+     * @param withTotal si se debe calcular estimatedTotal (conteo acotado)
+     */
+    @Cacheable(value = CacheConfig.PRODUCT_QUERIES,
+               key = "'keyset:' + #filter + ':' + #cursor + ':' + #limit + ':' + #withTotal")
+    public ProductPageResponse filterApprovedProductsKeyset(ProductFilter filter, String cursor,
+                                                            int limit, boolean withTotal) {
+        int pageSize = clampPageSize(limit);
+        KeysetCursor after = StringUtils.hasText(cursor) ? KeysetCursor.decode(cursor) : null;
+
+        // Se pide una fila extra para saber si hay más páginas sin hacer COUNT
+        List<Product> rows = productRepository.findApprovedByFilter(filter, after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Product last = rows.get(rows.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return ProductPageResponse.builder()
+                .products(rows.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .estimatedTotal(withTotal
+                        ? productRepository.countApprovedByFilter(filter, ESTIMATED_TOTAL_CAP)
+                        : null)
+                .build();
+    }
+
+    private int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 
     /**
@@ -152,6 +238,7 @@ public class ProductService {
         for (Product product : productsToFix) {
             product.setActive(true);
             productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.of(product));
             log.info("FIXED: Product {} (ID: {}) - Set active=true", product.getName(), product.getId());
         }
         
@@ -193,6 +280,7 @@ public class ProductService {
                 .build();
 
         product = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product));
         return convertToDTO(product);
     }
 
@@ -213,6 +301,7 @@ public class ProductService {
             throw new IllegalArgumentException("No se pueden editar productos que ya han sido aprobados o rechazados");
         }
 
+        String previousCategory = product.getCategory();
         product.setName(request.getName());
         product.setDescription(request.getDescription());
         product.setPrice(request.getPrice());
@@ -246,6 +335,7 @@ public class ProductService {
         }
 
         product = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product, previousCategory));
         return convertToDTO(product);
     }
 
@@ -262,6 +352,7 @@ public class ProductService {
         product.setActive(false);
         product.setStatus(ProductStatus.REJECTED);  // REJECTED representa eliminado/rechazado
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product));
     }
 
     /**
@@ -311,6 +402,7 @@ public class ProductService {
         product.setActive(false);
         product.setUpdatedAt(java.time.LocalDateTime.now());
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct));
         return convertToDTO(savedProduct);
     }
 
@@ -0,0 +1,119 @@
+package com.otakushop.service;
+
+import com.otakushop.cache.CacheInvalidationBus;
+import com.otakushop.event.ProductChangedEvent;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.util.PrefixIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Autocompletado del catálogo (search-as-you-type) servido desde memoria.
+ *
+ * Al arrancar se cargan nombre y categoría de los productos aprobados y activos; después
+ * cada {@link ProductChangedEvent} actualiza solo ese producto, una vez confirmada la transacción.
+ * Cada pulsación de tecla no toca la base de datos.
+ *
+ * El índice es local a cada nodo: el nodo que confirma el cambio avisa al resto por el
+ * {@link CacheInvalidationBus} (nombre {@link #INVALIDATION_NAME}, clave = id del producto) y cada
+ * receptor relee ese producto de la base, así que el orden de llegada de los avisos no importa.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestService {
+
+    public static final int MAX_SUGGESTIONS = 20;
+    public static final String INVALIDATION_NAME = "productSuggest";
+
+    private final ProductRepository productRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final PrefixIndex names = new PrefixIndex();
+    private final PrefixIndex categories = new PrefixIndex();
+
+    @PostConstruct
+    public void subscribe() {
+        invalidationBus.subscribe((name, key) -> {
+            if (INVALIDATION_NAME.equals(name) && key != null) {
+                refresh(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * Carga inicial del índice con los productos visibles
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = productRepository.findApprovedSuggestionRows();
+        for (Object[] row : rows) {
+            index((Long) row[0], (String) row[1], (String) row[2], true);
+        }
+        log.info("✅ Índice de autocompletado cargado con {} productos", names.size());
+    }
+
+    /**
+     * Sugerencias de nombres de producto y categorías para un prefijo
+     */
+    public Map<String, Object> suggest(String query, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+
+        Map<String, Object> suggestions = new HashMap<>();
+        suggestions.put("query", query);
+        suggestions.put("names", names.search(query, size));
+        suggestions.put("categories", categories.search(query, size));
+        return suggestions;
+    }
+
+    /**
+     * Refleja en el índice el estado actual de un producto (aprobado, editado, cancelado o eliminado).
+     * Se aplica tras el commit, para no sugerir productos de una operación que terminó en rollback.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isStockOnly()) {
+            return;
+        }
+        index(event.getProductId(), event.getName(), event.getCategory(), event.isVisible());
+        invalidationBus.publish(INVALIDATION_NAME, String.valueOf(event.getProductId()));
+    }
+
+    /**
+     * Relee un producto cambiado en otro nodo y lo añade o quita del índice
+     */
+    private void refresh(Long productId) {
+        try {
+            List<Object[]> rows = productRepository.findApprovedSuggestionRow(productId);
+            if (rows.isEmpty()) {
+                index(productId, null, null, false);
+            } else {
+                Object[] row = rows.get(0);
+                index(productId, (String) row[1], (String) row[2], true);
+            }
+        } catch (RuntimeException e) {
+            // El producto queda como estaba hasta el próximo cambio o reinicio
+            log.warn("No se pudo refrescar el producto {} en el autocompletado: {}", productId, e.getMessage());
+        }
+    }
+
+    private void index(Long id, String name, String category, boolean visible) {
+        if (visible) {
+            names.put(id, name);
+            categories.put(id, category);
+        } else {
+            names.remove(id);
+            categories.remove(id);
+        }
+    }
+}
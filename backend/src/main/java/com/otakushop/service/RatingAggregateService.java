@@ -0,0 +1,193 @@
+package com.otakushop.service;
+
+import com.otakushop.entity.ProductRatingAggregate;
+import com.otakushop.event.ProductChangedEvent;
+import com.otakushop.repository.ProductRatingAggregateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agregados de valoración por producto (ver {@link ProductRatingAggregate}).
+ *
+ * - Las reseñas llaman a {@link #prepare} antes de modificarse y a record* después, en su misma
+ *   transacción: el agregado siempre coincide con la tabla reviews
+ * - products.rating y products.reviews (lo que muestran los listados) se actualizan por
+ *   write-behind: cada producto modificado se marca tras el commit y un flush periódico escribe
+ *   todos los marcados en un solo UPDATE, así varias reseñas seguidas cuestan una escritura y la
+ *   fila del producto (caliente por el stock) no queda bloqueada durante la transacción de la reseña
+ * - Al arrancar se crean los agregados que falten y se corrige cualquier producto desfasado
+ *   (marcas pendientes perdidas en una caída)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingAggregateService {
+
+    private static final String RATING_COLUMNS = """
+        rating = CASE WHEN a.review_count > 0
+            THEN ROUND(a.rating_sum::numeric / a.review_count, 2)::float8 ELSE 0 END,
+        reviews = a.review_count::int
+        """;
+
+    private static final String SYNC_SQL = "UPDATE products p SET " + RATING_COLUMNS +
+            "FROM product_rating_aggregates a WHERE a.product_id = p.id AND p.id = ANY (?) " +
+            "RETURNING p.id, p.name, p.category, p.status, p.active";
+
+    private static final String RECONCILE_SQL = "UPDATE products p SET " + RATING_COLUMNS +
+            "FROM product_rating_aggregates a WHERE a.product_id = p.id AND (p.reviews <> a.review_count " +
+            "OR p.rating IS DISTINCT FROM (CASE WHEN a.review_count > 0 " +
+            "THEN ROUND(a.rating_sum::numeric / a.review_count, 2)::float8 ELSE 0 END)) " +
+            "RETURNING p.id, p.name, p.category, p.status, p.active";
+
+    private static final RowMapper<ProductChangedEvent> EVENT_MAPPER = (rs, rowNum) ->
+            ProductChangedEvent.rating(rs.getLong("id"), rs.getString("name"), rs.getString("category"),
+                    "APPROVED".equals(rs.getString("status")) && rs.getBoolean("active"));
+
+    private final ProductRatingAggregateRepository aggregateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Productos con products.rating/reviews pendientes de escribir
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Agregado del producto (lectura por clave), vacío si aún no tiene
+     */
+    public Optional<ProductRatingAggregate> find(Long productId) {
+        return aggregateRepository.findById(productId);
+    }
+
+    /**
+     * Agregados de varios productos en una sola consulta (los que no tienen, no aparecen)
+     */
+    public List<ProductRatingAggregate> findAll(Collection<Long> productIds) {
+        return aggregateRepository.findAllById(productIds);
+    }
+
+    /**
+     * Garantiza que el agregado existe antes de tocar las reseñas del producto
+     */
+    public void prepare(Long productId) {
+        aggregateRepository.ensureAggregate(productId);
+    }
+
+    public void recordCreated(Long productId, int rating) {
+        apply(productId, 1, rating, rating, 1);
+    }
+
+    public void recordUpdated(Long productId, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        long[] histogram = new long[6];
+        histogram[stars(oldRating)] -= 1;
+        histogram[stars(newRating)] += 1;
+        aggregateRepository.applyDelta(productId, 0, newRating - oldRating,
+                histogram[1], histogram[2], histogram[3], histogram[4], histogram[5]);
+        markDirty(productId);
+    }
+
+    public void recordDeleted(Long productId, int rating) {
+        apply(productId, -1, -rating, rating, -1);
+    }
+
+    /**
+     * Write-behind: escribe en un solo UPDATE la valoración de los productos marcados
+     */
+    public synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(dirty);
+        dirty.removeAll(productIds);
+
+        List<ProductChangedEvent> events;
+        try {
+            events = new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.query(SYNC_SQL,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray())),
+                    EVENT_MAPPER));
+        } catch (RuntimeException e) {
+            // Se reintenta en el siguiente ciclo
+            dirty.addAll(productIds);
+            log.warn("No se pudo escribir la valoración de {} productos: {}", productIds.size(), e.getMessage());
+            return;
+        }
+
+        events.forEach(eventPublisher::publishEvent);
+        log.debug("Valoración escrita para {} productos", events.size());
+    }
+
+    /**
+     * Al arrancar: crea los agregados que falten y corrige los productos desfasados
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        try {
+            List<ProductChangedEvent> events = new TransactionTemplate(transactionManager).execute(status -> {
+                int created = aggregateRepository.backfillMissing();
+                if (created > 0) {
+                    log.info("✅ Agregados de valoración creados para {} productos", created);
+                }
+                return jdbcTemplate.query(RECONCILE_SQL, EVENT_MAPPER);
+            });
+            if (!events.isEmpty()) {
+                log.warn("Valoración corregida en {} productos desfasados", events.size());
+                events.forEach(eventPublisher::publishEvent);
+            }
+        } catch (RuntimeException e) {
+            log.error("❌ Error reconciliando agregados de valoración", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void apply(Long productId, int count, int sum, int rating, int histogramDelta) {
+        long[] histogram = new long[6];
+        histogram[stars(rating)] = histogramDelta;
+        aggregateRepository.applyDelta(productId, count, sum,
+                histogram[1], histogram[2], histogram[3], histogram[4], histogram[5]);
+        markDirty(productId);
+    }
+
+    private void markDirty(Long productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.add(productId);
+                }
+            });
+        } else {
+            dirty.add(productId);
+        }
+    }
+
+    private static int stars(int rating) {
+        if (rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("La valoración debe estar entre 1 y 5");
+        }
+        return rating;
+    }
+}
@@ -0,0 +1,145 @@
+package com.otakushop.service;
+
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.repository.StockReservationRepository;
+import com.otakushop.util.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Vencimiento de reservas de stock en su expiresAt exacto (con resolución de un tick).
+ *
+ * - Cada reserva creada se programa en una {@link TimingWheel} en memoria
+ * - Cada tick se borran en bloque (DELETE ... WHERE id IN) las reservas vencidas; el borrado
+ *   devuelve producto y cantidad para descontarlas de product_reservation_totals y devolverlas
+ *   al ledger de ventas flash
+ * - Al arrancar, la rueda se rehidrata con las reservas pendientes (por idx_res_expires)
+ *
+ * Cada instancia solo programa las reservas que crea ella; las de otras instancias (o las que se
+ * pierdan) las recoge el barrido de respaldo de StockReservationScheduler.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationExpiryService {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final StockReservationRepository stockReservationRepository;
+    private final ProductReservationTotalRepository reservationTotalRepository;
+    private final FlashSaleStockLedger flashSaleLedger;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.reservations.wheel.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${app.reservations.wheel.size:1024}")
+    private int wheelSize;
+
+    private TimingWheel<Long> wheel;
+
+    @PostConstruct
+    void init() {
+        wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Programa el vencimiento de una reserva
+     */
+    public void track(Long reservationId, LocalDateTime expiresAt) {
+        wheel.schedule(reservationId, toMillis(expiresAt));
+    }
+
+    /**
+     * Carga en la rueda las reservas pendientes (las ya vencidas salen en el primer tick)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        List<Object[]> pending = stockReservationRepository.findPendingExpiries();
+        for (Object[] row : pending) {
+            track((Long) row[0], (LocalDateTime) row[1]);
+        }
+        log.info("✅ Rueda de vencimientos rehidratada: {} reservas pendientes", pending.size());
+    }
+
+    /**
+     * Avanza la rueda y libera las reservas vencidas
+     */
+    @Scheduled(fixedDelayString = "${app.reservations.wheel.tick-ms:1000}")
+    public void tick() {
+        List<Long> expired = wheel.advance(System.currentTimeMillis());
+        if (expired.isEmpty()) {
+            return;
+        }
+        try {
+            int released = new TransactionTemplate(transactionManager).execute(status -> {
+                int count = 0;
+                LocalDateTime now = LocalDateTime.now();
+                for (int from = 0; from < expired.size(); from += DELETE_BATCH_SIZE) {
+                    List<Long> batch = expired.subList(from, Math.min(from + DELETE_BATCH_SIZE, expired.size()));
+                    count += release(stockReservationRepository.deleteExpiredByIds(batch, now));
+                }
+                return count;
+            });
+            if (released > 0) {
+                log.info("✅ Liberadas {} reservas de stock vencidas", released);
+            }
+        } catch (RuntimeException e) {
+            // Se reintenta en unos segundos; el DELETE es idempotente
+            long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+            expired.forEach(id -> wheel.schedule(id, retryAt));
+            log.error("❌ Error liberando {} reservas vencidas, se reintentará", expired.size(), e);
+        }
+    }
+
+    /**
+     * Barrido completo de reservas vencidas en un solo DELETE (respaldo de la rueda).
+     * Debe llamarse dentro de una transacción.
+     */
+    public int sweepExpired() {
+        return release(stockReservationRepository.deleteAllExpired(LocalDateTime.now()));
+    }
+
+    /**
+     * Pendientes en la rueda (para monitoreo)
+     */
+    public int pending() {
+        return wheel.size();
+    }
+
+    /**
+     * Descuenta de los contadores las unidades de las reservas borradas y las devuelve al ledger
+     * de ventas flash (tras el commit). Los contadores se actualizan en orden de producto para que
+     * dos liberaciones concurrentes no se bloqueen en orden cruzado.
+     */
+    private int release(List<Object[]> deleted) {
+        Map<Long, Integer> unitsByProduct = new TreeMap<>();
+        for (Object[] row : deleted) {
+            unitsByProduct.merge(((Number) row[0]).longValue(), ((Number) row[1]).intValue(), Integer::sum);
+        }
+        unitsByProduct.forEach((productId, units) -> {
+            reservationTotalRepository.release(productId, units);
+            flashSaleLedger.releaseReservation(productId, units);
+        });
+        return deleted.size();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
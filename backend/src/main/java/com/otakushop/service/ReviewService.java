@@ -2,12 +2,14 @@ package com.otakushop.service;
 
 import com.otakushop.dto.*;
 import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductRatingAggregate;
 import com.otakushop.entity.Review;
 import com.otakushop.entity.User;
 import com.otakushop.exception.BadRequestException;
 import com.otakushop.exception.ResourceNotFoundException;
 import com.otakushop.repository.ProductRepository;
 import com.otakushop.repository.ReviewRepository;
+import com.otakushop.repository.ReviewRepository.RatingCount;
 import com.otakushop.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -17,8 +19,13 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +35,7 @@ public class ReviewService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final RatingAggregateService ratingAggregateService;
     
     @Transactional
     public ReviewResponse createReview(Long userId, ReviewRequest request) {
@@ -51,7 +59,9 @@ public class ReviewService {
         // TODO: Verificar si el usuario compró el producto (verified = true)
         // review.setVerified(orderService.hasUserPurchasedProduct(userId, productId));
         
+        ratingAggregateService.prepare(product.getId());
         Review savedReview = reviewRepository.save(review);
+        ratingAggregateService.recordCreated(product.getId(), savedReview.getRating());
         
         // Notificar al vendedor del producto
         if (product.getVendor() != null) {
@@ -76,10 +86,15 @@ public class ReviewService {
             throw new BadRequestException("No tienes permiso para editar esta reseña");
         }
         
+        Long productId = review.getProduct().getId();
+        int previousRating = review.getRating();
+        ratingAggregateService.prepare(productId);
+        
         review.setRating(request.getRating());
         review.setComment(request.getComment());
         
         Review updatedReview = reviewRepository.save(review);
+        ratingAggregateService.recordUpdated(productId, previousRating, updatedReview.getRating());
         return mapToResponse(updatedReview);
     }
     
@@ -92,38 +107,102 @@ public class ReviewService {
             throw new BadRequestException("No tienes permiso para eliminar esta reseña");
         }
         
+        Long productId = review.getProduct().getId();
+        ratingAggregateService.prepare(productId);
         reviewRepository.delete(review);
+        ratingAggregateService.recordDeleted(productId, review.getRating());
     }
     
     public Page<ReviewResponse> getProductReviews(Long productId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        return reviewRepository.findByProductId(productId, pageable)
-                .map(this::mapToResponse);
+        return reviewRepository.findResponsesByProductId(productId, pageable);
     }
     
     public Page<ReviewResponse> getUserReviews(Long userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        return reviewRepository.findByUserId(userId, pageable)
-                .map(this::mapToResponse);
+        return reviewRepository.findResponsesByUserId(userId, pageable);
     }
     
+    /**
+     * Estadísticas de valoración desde el agregado mantenido (una lectura por clave).
+     * Sin agregado (producto aún no migrado), un único GROUP BY sobre sus reseñas.
+     */
     public ProductRatingStats getProductRatingStats(Long productId) {
-        if (!productRepository.existsById(productId)) {
-            throw new ResourceNotFoundException("Producto no encontrado");
+        ProductRatingAggregate aggregate = ratingAggregateService.find(productId).orElse(null);
+        if (aggregate != null) {
+            return toStats(aggregate);
         }
         
-        Double avgRating = reviewRepository.getAverageRatingByProductId(productId);
-        Long totalReviews = reviewRepository.countByProductId(productId);
+        List<RatingCount> counts = reviewRepository.countRatingsByProductId(productId);
+        if (counts.isEmpty() && !productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Producto no encontrado");
+        }
+        return toStats(histogram(counts));
+    }
+    
+    /**
+     * Estadísticas de varios productos (grillas del catálogo): una consulta de agregados y,
+     * solo para los que no tengan, un GROUP BY conjunto. Los ids sin reseñas vuelven en cero.
+     */
+    public Map<Long, ProductRatingStats> getProductRatingStats(Collection<Long> productIds) {
+        Map<Long, ProductRatingStats> result = new LinkedHashMap<>();
+        if (productIds.isEmpty()) {
+            return result;
+        }
         
+        Map<Long, ProductRatingAggregate> aggregates = ratingAggregateService.findAll(productIds).stream()
+            .collect(Collectors.toMap(ProductRatingAggregate::getProductId, aggregate -> aggregate));
+        Set<Long> missing = productIds.stream()
+            .filter(id -> !aggregates.containsKey(id))
+            .collect(Collectors.toSet());
+        
+        Map<Long, List<RatingCount>> countsByProduct = missing.isEmpty()
+            ? Map.of()
+            : reviewRepository.countRatingsByProductIds(missing).stream()
+                .collect(Collectors.groupingBy(RatingCount::getProductId));
+        
+        for (Long productId : productIds) {
+            ProductRatingAggregate aggregate = aggregates.get(productId);
+            result.put(productId, aggregate != null
+                ? toStats(aggregate)
+                : toStats(histogram(countsByProduct.getOrDefault(productId, List.of()))));
+        }
+        return result;
+    }
+    
+    /**
+     * Histograma indexado por estrellas (posiciones 1-5)
+     */
+    private long[] histogram(List<RatingCount> counts) {
+        long[] histogram = new long[6];
+        for (RatingCount count : counts) {
+            if (count.getRating() != null && count.getRating() >= 1 && count.getRating() <= 5) {
+                histogram[count.getRating()] += count.getTotal();
+            }
+        }
+        return histogram;
+    }
+    
+    private ProductRatingStats toStats(ProductRatingAggregate aggregate) {
+        long[] histogram = new long[6];
+        for (int i = 1; i <= 5; i++) {
+            histogram[i] = aggregate.countFor(i);
+        }
+        return toStats(histogram);
+    }
+    
+    private ProductRatingStats toStats(long[] histogram) {
+        long total = 0;
+        long sum = 0;
         Map<Integer, Long> distribution = new HashMap<>();
         for (int i = 1; i <= 5; i++) {
-            Long count = reviewRepository.countByProductIdAndRating(productId, i);
-            distribution.put(i, count);
+            distribution.put(i, histogram[i]);
+            total += histogram[i];
+            sum += i * histogram[i];
         }
-        
         return new ProductRatingStats(
-            avgRating != null ? avgRating : 0.0,
-            totalReviews,
+            total > 0 ? (double) sum / total : 0.0,
+            total,
             distribution
         );
     }
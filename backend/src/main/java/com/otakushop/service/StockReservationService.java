@@ -1,7 +1,9 @@
 package com.otakushop.service;
 
+import com.otakushop.dto.StockAvailabilityDTO;
 import com.otakushop.entity.StockReservation;
 import com.otakushop.entity.Product;
+import com.otakushop.repository.ProductReservationTotalRepository;
 import com.otakushop.repository.StockReservationRepository;
 import com.otakushop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
@@ -9,7 +11,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio de reserva temporal de stock usando base de datos.
@@ -17,8 +22,10 @@ import java.util.List;
  * Funcionalidad:
  * - Reserva temporal de stock por 15 minutos cuando se agrega al carrito
  * - Prevención de oversell (vender más de lo disponible)
- * - Liberación automática de reservas expiradas (job schedulado)
+ * - Liberación automática de reservas expiradas en su vencimiento (ReservationExpiryService)
  * - Soporta usuarios logeados (user_id) y anónimos (session_id)
+ * - Las unidades reservadas por producto se mantienen en product_reservation_totals, así que
+ *   las consultas de disponibilidad son una lectura por clave en lugar de un SUM de reservas
  */
 @Service
 @RequiredArgsConstructor
@@ -28,6 +35,9 @@ public class StockReservationService {
     
     private final StockReservationRepository stockReservationRepository;
     private final ProductRepository productRepository;
+    private final ProductReservationTotalRepository reservationTotalRepository;
+    private final FlashSaleStockLedger flashSaleLedger;
+    private final ReservationExpiryService reservationExpiryService;
     
     /**
      * Reserva stock para un producto.
@@ -53,8 +63,22 @@ public class StockReservationService {
         Product product = productRepository.findById(productId)
             .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado"));
         
-        // Verificar disponibilidad ANTES de crear reserva
-        if (!isStockAvailable(productId, quantity, product.getStock())) {
+        reservationTotalRepository.ensureRow(productId);
+        
+        // Venta flash: la reserva descuenta del ledger en memoria y el contador solo se acumula
+        if (flashSaleLedger.isActive(productId)) {
+            if (!flashSaleLedger.tryReserve(productId, quantity)) {
+                throw new IllegalArgumentException(
+                    String.format("Stock insuficiente. Disponible: %d, Solicitado: %d",
+                        flashSaleLedger.available(productId), quantity)
+                );
+            }
+            reservationTotalRepository.add(productId, quantity);
+        } else if (reservationTotalRepository.tryReserve(productId, quantity) == 0) {
+            // El contador solo se incrementa si stock - reservado alcanza (UPDATE condicional)
+            if (flashSaleLedger.isHeldElsewhere(productId)) {
+                throw new IllegalStateException("El producto " + productId + " está en venta flash en otra instancia");
+            }
             Integer available = getAvailableStock(productId, product.getStock());
             throw new IllegalArgumentException(
                 String.format("Stock insuficiente. Disponible: %d, Solicitado: %d", 
@@ -72,6 +96,8 @@ public class StockReservationService {
         
         @SuppressWarnings("null")
         StockReservation saved = stockReservationRepository.save(reservation);
+        // Si la transacción hace rollback, el DELETE del vencimiento simplemente no encuentra la fila
+        reservationExpiryService.track(saved.getId(), saved.getExpiresAt());
         
         log.info("Stock reservado: productId={}, quantity={}, userId={}, sessionId={}, expiresAt={}", 
             productId, quantity, userId, sessionId, saved.getExpiresAt());
@@ -86,6 +112,7 @@ public class StockReservationService {
         
         List<StockReservation> reservations = stockReservationRepository
             .findByProductAndUserAndNotExpired(productId, userId);
+        int requested = quantityToRemove;
         
         for (StockReservation res : reservations) {
             if (res.getQuantity() <= quantityToRemove) {
@@ -103,9 +130,51 @@ public class StockReservationService {
             if (quantityToRemove == 0) break;
         }
         
+        int released = requested - quantityToRemove;
+        if (released > 0) {
+            reservationTotalRepository.release(productId, released);
+            flashSaleLedger.releaseReservation(productId, released);
+        }
+        
         log.debug("Reduced reservations for productId={}, userId={}", productId, userId);
     }
     
+    /**
+     * Unidades reservadas del producto (lectura por clave del contador)
+     */
+    @Transactional(readOnly = true)
+    public int getReservedQuantity(Long productId) {
+        return reservationTotalRepository.findReservedByProductId(productId).orElse(0);
+    }
+    
+    /**
+     * Crea, a partir de stock_reservations, los contadores de productos con reservas pendientes que no tienen fila
+     *
+     * @return contadores creados
+     */
+    public int createMissingReservedTotals() {
+        return reservationTotalRepository.createMissingRows();
+    }
+
+    /**
+     * Recalcula el contador de un producto a partir de stock_reservations.
+     * Bloquea la fila del contador, así que no se cruza con reservas ni liberaciones en curso.
+     *
+     * @return diferencia corregida (0 si el contador estaba bien)
+     */
+    public int reconcileReservedQuantity(Long productId) {
+        Integer counted = reservationTotalRepository.lockReserved(productId).orElse(null);
+        if (counted == null) {
+            return 0;
+        }
+        int actual = stockReservationRepository.sumPendingQuantityByProduct(productId);
+        if (actual != counted) {
+            reservationTotalRepository.setReserved(productId, actual);
+            log.warn("Contador de reservas corregido: productId={}, contador={}, real={}", productId, counted, actual);
+        }
+        return actual - counted;
+    }
+    
     /**
      * Verifica si hay stock disponible considerando reservas no expiradas
      * 
@@ -114,11 +183,9 @@ public class StockReservationService {
      * @param currentStock Stock actual en products.stock
      * @return true si hay stock suficiente
      */
+    @Transactional(readOnly = true)
     public boolean isStockAvailable(Long productId, Integer requestedQuantity, Integer currentStock) {
-        Integer reservedQuantity = stockReservationRepository
-            .sumQuantityByProductAndNotExpired(productId);
-        
-        reservedQuantity = reservedQuantity == null ? 0 : reservedQuantity;
+        int reservedQuantity = getReservedQuantity(productId);
         Integer available = currentStock - reservedQuantity;
         boolean isAvailable = available >= requestedQuantity;
         
@@ -135,11 +202,9 @@ public class StockReservationService {
      * @param currentStock Stock actual en products.stock
      * @return Cantidad disponible
      */
+    @Transactional(readOnly = true)
     public Integer getAvailableStock(Long productId, Integer currentStock) {
-        Integer reservedQuantity = stockReservationRepository
-            .sumQuantityByProductAndNotExpired(productId);
-        
-        reservedQuantity = reservedQuantity == null ? 0 : reservedQuantity;
+        int reservedQuantity = getReservedQuantity(productId);
         Integer available = Math.max(0, currentStock - reservedQuantity);
         
         log.debug("getAvailableStock: productId={}, currentStock={}, reserved={}, available={}", 
@@ -148,6 +213,42 @@ public class StockReservationService {
         return available;
     }
     
+    /**
+     * Disponibilidad de varios productos en una sola consulta (stock de products + contador de reservas).
+     * A diferencia de la consulta individual, el stock se toma del servidor y no del cliente.
+     *
+     * @param requestedByProduct cantidad solicitada por producto (en el orden de la respuesta)
+     * @return disponibilidad por producto; los inexistentes vuelven con found=false
+     */
+    @Transactional(readOnly = true)
+    public List<StockAvailabilityDTO> getBulkAvailability(Map<Long, Integer> requestedByProduct) {
+        Map<Long, Integer> availableByProduct = new HashMap<>();
+        if (!requestedByProduct.isEmpty()) {
+            for (Object[] row : reservationTotalRepository.findStockAndReservedByProductIds(requestedByProduct.keySet())) {
+                Long productId = ((Number) row[0]).longValue();
+                int available = flashSaleLedger.isActive(productId)
+                    ? (int) flashSaleLedger.available(productId)
+                    : ((Number) row[1]).intValue() - ((Number) row[2]).intValue();
+                availableByProduct.put(productId, Math.max(0, available));
+            }
+        }
+        
+        List<StockAvailabilityDTO> result = new ArrayList<>(requestedByProduct.size());
+        requestedByProduct.forEach((productId, requested) -> {
+            Integer available = availableByProduct.get(productId);
+            result.add(StockAvailabilityDTO.builder()
+                .productId(productId)
+                .requestedQuantity(requested)
+                .availableStock(available != null ? available : 0)
+                .isAvailable(available != null && available >= requested)
+                .found(available != null)
+                .build());
+        });
+        
+        log.debug("getBulkAvailability: {} productos, {} encontrados", requestedByProduct.size(), availableByProduct.size());
+        return result;
+    }
+    
     /**
      * Obtiene todas las reservas de una orden
      */
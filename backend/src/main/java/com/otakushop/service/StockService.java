@@ -0,0 +1,102 @@
+package com.otakushop.service;
+
+import com.otakushop.entity.Product;
+import com.otakushop.event.ProductChangedEvent;
+import com.otakushop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Único camino de modificación del stock de productos.
+ *
+ * Cada cambio es un UPDATE condicional atómico (stock = stock - n WHERE stock >= n) y el número
+ * de filas afectadas indica si hubo stock suficiente. No se lee ni se bloquea la fila antes:
+ * el bloqueo de PostgreSQL dura solo desde el UPDATE hasta el commit.
+ *
+ * Requiere READ COMMITTED (por defecto): con REPEATABLE_READ un UPDATE concurrente sobre la
+ * misma fila falla por serialización en lugar de reevaluar la condición.
+ *
+ * Nota: no se modifica Product.stock en memoria; la entidad cargada en la transacción queda con
+ * el valor anterior. Usar {@link #currentStock(Long)} si se necesita el valor actualizado.
+ *
+ * Los productos en venta flash no tocan la fila: se delegan a {@link FlashSaleStockLedger}. Si la
+ * venta flash la atiende otra instancia, el descuento se rechaza con IllegalStateException.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class StockService {
+
+    private final ProductRepository productRepository;
+    private final FlashSaleStockLedger flashSaleLedger;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Descuenta stock si hay suficiente
+     *
+     * @return false si el stock disponible era menor que la cantidad pedida
+     */
+    public boolean tryDecrement(Product product, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+        if (flashSaleLedger.isActive(product.getId())) {
+            // El evento de stock lo publica el ledger al escribir el lote
+            return flashSaleLedger.tryAllocateStock(product.getId(), quantity);
+        }
+        boolean decremented = productRepository.decrementStock(product.getId(), quantity) == 1;
+        if (decremented) {
+            eventPublisher.publishEvent(ProductChangedEvent.stock(product));
+            log.debug("Stock descontado: productId={}, cantidad={}", product.getId(), quantity);
+        } else if (flashSaleLedger.isHeldElsewhere(product.getId())) {
+            throw new IllegalStateException("El producto " + product.getName() + " está en venta flash en otra instancia");
+        }
+        return decremented;
+    }
+
+    /**
+     * Descuenta stock o lanza IllegalArgumentException con el stock disponible
+     */
+    public void decrement(Product product, int quantity) {
+        if (!tryDecrement(product, quantity)) {
+            int available = currentStock(product.getId());
+            log.warn("Stock insuficiente: productId={}, disponible={}, solicitado={}",
+                    product.getId(), available, quantity);
+            throw new IllegalArgumentException(
+                String.format("Stock insuficiente para %s. Disponible: %d, Solicitado: %d",
+                    product.getName(), available, quantity)
+            );
+        }
+    }
+
+    /**
+     * Devuelve stock (carrito vaciado, item eliminado, orden cancelada)
+     */
+    public void increment(Product product, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        // Si el producto salió de venta flash entre medias, el stock vuelve por BD
+        if (flashSaleLedger.releaseStock(product.getId(), quantity)) {
+            return;
+        }
+        productRepository.incrementStock(product.getId(), quantity);
+        eventPublisher.publishEvent(ProductChangedEvent.stock(product));
+        log.debug("Stock restaurado: productId={}, cantidad={}", product.getId(), quantity);
+    }
+
+    /**
+     * Stock actual en base de datos (incluye los cambios de la transacción en curso).
+     * En venta flash devuelve las unidades asignables del ledger.
+     */
+    public int currentStock(Long productId) {
+        if (flashSaleLedger.isActive(productId)) {
+            return (int) flashSaleLedger.available(productId);
+        }
+        return productRepository.findStockById(productId).orElse(0);
+    }
+}
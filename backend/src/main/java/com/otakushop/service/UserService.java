@@ -1,5 +1,6 @@
 package com.otakushop.service;
 
+import com.otakushop.cache.UserStateCache;
 import com.otakushop.dto.UserResponse;
 import com.otakushop.entity.User;
 import com.otakushop.entity.Role;
@@ -17,6 +18,7 @@ import java.util.stream.Collectors;
 public class UserService {
     private final UserRepository userRepository;
     private final SecurityUtil securityUtil;
+    private final UserStateCache userStateCache;
 
     public List<UserResponse> getAllUsers() {
         List<User> allUsers = userRepository.findAll();
@@ -80,6 +82,7 @@ public class UserService {
         // Hacer el cambio
         targetUser.setRole(newRole);
         targetUser = userRepository.save(targetUser);
+        userStateCache.evict(id);
         return convertToResponse(targetUser);
     }
 
@@ -102,6 +105,7 @@ public class UserService {
         // SOFT DELETE: Marcar como deshabilitado en lugar de eliminar
         userToDelete.setEnabled(false);
         userRepository.save(userToDelete);
+        userStateCache.evict(id);
     }
 
     @Transactional
@@ -111,6 +115,7 @@ public class UserService {
         
         user.setEnabled(false);
         user = userRepository.save(user);
+        userStateCache.evict(id);
         return convertToResponse(user);
     }
 
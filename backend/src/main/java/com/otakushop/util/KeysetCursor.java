@@ -0,0 +1,42 @@
+package com.otakushop.util;
+
+import com.otakushop.exception.BadRequestException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para paginación keyset (seek) sobre (created_at, id).
+ *
+ * Se serializa como Base64 URL-safe de "createdAt|id" para que el cliente
+ * lo reenvíe tal cual sin interpretarlo.
+ */
+@Value
+public class KeysetCursor {
+    LocalDateTime createdAt;
+    Long id;
+
+    public String encode() {
+        String raw = createdAt.toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep <= 0) {
+                throw new BadRequestException("Cursor de paginación inválido");
+            }
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, sep)),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Cursor de paginación inválido", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.otakushop.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice en memoria para autocompletado por prefijo.
+ *
+ * Cada etiqueta (nombre de producto, categoría...) se indexa desde el inicio de cada una de sus palabras
+ * ya normalizadas, así "Figura Goku SSJ" responde a "fig", "goku" y "goku s". Las claves viven en un
+ * {@link ConcurrentSkipListMap} ordenado, así que una consulta es un recorrido de rango sin bloqueos.
+ *
+ * Las escrituras (alta/baja de un producto) son incrementales y se serializan; las lecturas no bloquean.
+ * Una etiqueta compartida por varios productos (p. ej. una categoría) se devuelve una sola vez y pesa
+ * según cuántos productos la contienen.
+ */
+public final class PrefixIndex {
+
+    // Palabras iniciales por etiqueta que se indexan (acota la memoria con descripciones largas)
+    private static final int MAX_TOKENS_PER_LABEL = 8;
+    // Entradas máximas recorridas por consulta (acota la latencia con prefijos muy cortos)
+    private static final int MAX_SCAN = 2000;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Map<Long, List<String>> keysByOwner = new HashMap<>();
+
+    /**
+     * Indexa (o reemplaza) la etiqueta de un propietario, p. ej. el nombre del producto con ese id
+     */
+    public synchronized void put(Long ownerId, String label) {
+        remove(ownerId);
+        List<String> tokens = TextNormalizer.tokenize(label);
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>();
+        int indexed = Math.min(tokens.size(), MAX_TOKENS_PER_LABEL);
+        for (int i = 0; i < indexed; i++) {
+            String key = String.join(" ", tokens.subList(i, tokens.size())) + KEY_SEPARATOR + label;
+            entries.computeIfAbsent(key, k -> new Entry(label)).owners.add(ownerId);
+            keys.add(key);
+        }
+        keysByOwner.put(ownerId, keys);
+    }
+
+    /**
+     * Quita del índice todo lo aportado por un propietario
+     */
+    public synchronized void remove(Long ownerId) {
+        List<String> keys = keysByOwner.remove(ownerId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.owners.remove(ownerId);
+                if (entry.owners.isEmpty()) {
+                    entries.remove(key, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Etiquetas que contienen una palabra que empieza por el prefijo, ordenadas por número de
+     * propietarios (desc) y luego por longitud y orden alfabético
+     */
+    public List<String> search(String prefix, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(prefix);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String from = String.join(" ", tokens);
+        // El separador (\u0000) es menor que cualquier carácter de un token, por eso el rango empieza en "from"
+        String to = from + Character.MAX_VALUE;
+
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        int scanned = 0;
+        for (Entry entry : entries.subMap(from, true, to, false).values()) {
+            if (++scanned > MAX_SCAN) {
+                break;
+            }
+            int weight = entry.owners.size();
+            if (weight > 0) {
+                weights.merge(entry.label, weight, Math::max);
+            }
+        }
+
+        return weights.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                        .thenComparingInt(e -> e.getKey().length())
+                        .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Número de propietarios indexados
+     */
+    public synchronized int size() {
+        return keysByOwner.size();
+    }
+
+    private static final class Entry {
+        private final String label;
+        private final Set<Long> owners = ConcurrentHashMap.newKeySet();
+
+        private Entry(String label) {
+            this.label = label;
+        }
+    }
+}
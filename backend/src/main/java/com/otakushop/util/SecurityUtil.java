@@ -1,6 +1,7 @@
 package com.otakushop.util;
 
 import com.otakushop.security.JwtTokenProvider;
+import com.otakushop.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -17,7 +18,8 @@ public class SecurityUtil {
     private final HttpServletRequest httpServletRequest;
     
     /**
-     * Obtiene el ID del usuario autenticado desde el JWT
+     * Obtiene el ID del usuario autenticado desde el principal (ya resuelto por el filtro JWT);
+     * solo si el principal no lo trae se vuelve a parsear el JWT
      */
     public Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -27,6 +29,10 @@ public class SecurityUtil {
             throw new SecurityException("Usuario no autenticado");
         }
         
+        if (authentication.getPrincipal() instanceof UserPrincipal principal && principal.getId() != null) {
+            return principal.getId();
+        }
+        
         // Obtener el JWT del header
         String jwt = getJwtFromRequest();
         if (StringUtils.hasText(jwt)) {
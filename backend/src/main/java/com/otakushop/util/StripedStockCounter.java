@@ -0,0 +1,112 @@
+package com.otakushop.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contador de unidades repartido en franjas (stripes) para asignación concurrente sin bloqueos.
+ *
+ * Cada hilo empieza en una franja aleatoria y descuenta con CAS; así cientos de compradores
+ * simultáneos no compiten por la misma posición de memoria. Si ninguna franja tiene suficiente
+ * por sí sola (cola de la venta o cantidades grandes), una ruta lenta serializada junta unidades
+ * de varias franjas. El total nunca baja de cero.
+ */
+public final class StripedStockCounter {
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * @param initial unidades iniciales
+     * @param stripes número de franjas (se redondea a potencia de 2)
+     */
+    public StripedStockCounter(long initial, int stripes) {
+        if (initial < 0) {
+            throw new IllegalArgumentException("El stock inicial no puede ser negativo");
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+
+        long share = initial / size;
+        for (int i = 0; i < size; i++) {
+            slots.set(i, share);
+        }
+        slots.addAndGet(0, initial - share * size);
+    }
+
+    /**
+     * Intenta tomar n unidades
+     *
+     * @return false si no hay unidades suficientes
+     */
+    public boolean tryAcquire(long n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+        int start = ThreadLocalRandom.current().nextInt() & mask;
+        for (int i = 0; i <= mask; i++) {
+            int index = (start + i) & mask;
+            long current;
+            while ((current = slots.get(index)) >= n) {
+                if (slots.compareAndSet(index, current, current - n)) {
+                    return true;
+                }
+            }
+        }
+        return acquireAcrossStripes(n);
+    }
+
+    /**
+     * Devuelve n unidades
+     */
+    public void release(long n) {
+        if (n <= 0) {
+            return;
+        }
+        slots.addAndGet(ThreadLocalRandom.current().nextInt() & mask, n);
+    }
+
+    /**
+     * Total de unidades disponibles (aproximado si hay operaciones en curso)
+     */
+    public long sum() {
+        long total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += slots.get(i);
+        }
+        return total;
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    /**
+     * Ruta lenta: toma unidades de varias franjas; si no alcanza, devuelve lo tomado
+     */
+    private synchronized boolean acquireAcrossStripes(long n) {
+        long[] taken = new long[mask + 1];
+        long remaining = n;
+        for (int index = 0; index <= mask && remaining > 0; index++) {
+            long current;
+            while ((current = slots.get(index)) > 0) {
+                long take = Math.min(current, remaining);
+                if (slots.compareAndSet(index, current, current - take)) {
+                    taken[index] = take;
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        for (int index = 0; index <= mask; index++) {
+            if (taken[index] > 0) {
+                slots.addAndGet(index, taken[index]);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package com.otakushop.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de texto para búsqueda: minúsculas y sin diacríticos
+ * ("Pokémon Edición" -> "pokemon edicion", "Shōnen" -> "shonen").
+ *
+ * Debe mantenerse equivalente a la función SQL otaku_fold (migración V9__product_search_vector.sql):
+ * ambas descomponen en NFD y eliminan la misma clase de marcas combinantes ({@link #COMBINING_MARK_CLASS}).
+ * Si la clase cambia, la función se redefine en una migración nueva.
+ */
+public final class TextNormalizer {
+
+    /**
+     * Bloques Unicode de marcas combinantes (tildes, diéresis, macrones...). Los escapes de la clase
+     * los entienden tanto java.util.regex como las expresiones regulares de PostgreSQL
+     */
+    public static final String COMBINING_MARK_CLASS =
+        "[\\u0300-\\u036f\\u1ab0-\\u1aff\\u1dc0-\\u1dff\\u20d0-\\u20ff\\ufe20-\\ufe2f]";
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile(COMBINING_MARK_CLASS + "+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Pasa a minúsculas y elimina diacríticos
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide el texto normalizado en tokens alfanuméricos
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Construye una consulta tsquery de PostgreSQL con prefijos en AND ("naru shipp" -> "naru:* & shipp:*").
+     * Los tokens solo contienen [a-z0-9], así que no hay operadores inyectables.
+     *
+     * @return null si el texto no contiene tokens buscables
+     */
+    public static String toPrefixTsQuery(String text) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String token : tokens) {
+            if (query.length() > 0) {
+                query.append(" & ");
+            }
+            query.append(token).append(":*");
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.otakushop.util;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Rueda de tiempo (hashed timing wheel) para vencimientos en memoria.
+ *
+ * El tiempo se divide en ticks de tickMillis; cada vencimiento va al bucket de su tick
+ * (tick % tamaño de la rueda). Avanzar la rueda solo recorre los buckets de los ticks
+ * transcurridos: el coste es proporcional a lo que vence, no al total programado.
+ * Los vencimientos más allá de una vuelta se quedan en su bucket hasta que llega su tick.
+ *
+ * Thread-safe; el reloj lo aporta quien llama (facilita las pruebas).
+ */
+public final class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final ArrayDeque<Entry<T>>[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis resolución de la rueda
+     * @param wheelSize  número de buckets (se redondea a potencia de 2)
+     * @param nowMillis  instante inicial
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("El tick debe ser mayor a 0");
+        }
+        int length = Integer.highestOneBit(Math.max(1, wheelSize - 1) << 1);
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayDeque[length];
+        for (int i = 0; i < length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = length - 1;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    /**
+     * Programa un elemento para vencer en deadlineMillis (redondeado al tick siguiente).
+     * Si ya venció, sale en el próximo avance.
+     */
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        buckets[(int) (deadlineTick & mask)].add(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Avanza la rueda hasta nowMillis y devuelve los elementos vencidos
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (targetTick <= currentTick) {
+            return List.of();
+        }
+        // Tras una pausa de más de una vuelta basta con recorrer cada bucket una vez
+        long steps = Math.min(targetTick - currentTick, buckets.length);
+        List<T> expired = new ArrayList<>();
+        for (long tick = currentTick + 1; tick <= currentTick + steps; tick++) {
+            Iterator<Entry<T>> it = buckets[(int) (tick & mask)].iterator();
+            while (it.hasNext()) {
+                Entry<T> entry = it.next();
+                if (entry.deadlineTick <= targetTick) {
+                    expired.add(entry.item);
+                    it.remove();
+                }
+            }
+        }
+        currentTick = targetTick;
+        size -= expired.size();
+        return expired;
+    }
+
+    /**
+     * Elementos programados pendientes
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        private Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
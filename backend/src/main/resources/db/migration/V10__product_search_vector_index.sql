@@ -0,0 +1,5 @@
+-- Índice GIN de products.search_vector (columna creada en V9). CONCURRENTLY no bloquea las escrituras
+-- en products y no puede ir en una transacción: Flyway ejecuta esta migración fuera de transacción
+-- porque solo contiene sentencias CONCURRENTLY. El DROP limpia un índice INVALID de un intento fallido.
+DROP INDEX CONCURRENTLY IF EXISTS idx_products_search_vector;
+CREATE INDEX CONCURRENTLY idx_products_search_vector ON products USING GIN (search_vector);
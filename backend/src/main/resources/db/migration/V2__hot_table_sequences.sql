@@ -0,0 +1,8 @@
+-- Secuencias con bloques de 50 para las tablas de inserción intensiva (ids pooled de Hibernate,
+-- que permiten agrupar los INSERT en batch). V2 porque baselineOnMigrate marca el esquema
+-- existente como versión 1. La alineación con el MAX(id) actual la hace IdSequenceInitializer
+-- al arrancar, en todos los perfiles.
+CREATE SEQUENCE IF NOT EXISTS order_items_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS notifications_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stock_reservations_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cart_items_seq INCREMENT BY 50;
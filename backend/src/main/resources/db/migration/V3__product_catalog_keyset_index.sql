@@ -0,0 +1,3 @@
+-- Índice de la paginación keyset del catálogo público (ver Product). En dev lo crea Hibernate
+-- con ddl-auto=update; en prod (validate) solo existe si lo crea esta migración.
+CREATE INDEX IF NOT EXISTS idx_product_catalog_keyset ON products (active, status, created_at, id);
@@ -0,0 +1,11 @@
+-- Ventas flash (ver FlashSale y FlashSaleStockLedger): foto de referencia para reconstruir el
+-- stock e instancia dueña del ledger con su lease.
+CREATE TABLE IF NOT EXISTS flash_sales (
+    product_id BIGINT PRIMARY KEY REFERENCES products (id) ON DELETE CASCADE,
+    baseline_stock INTEGER NOT NULL,
+    baseline_cart_units BIGINT NOT NULL,
+    baseline_order_units BIGINT NOT NULL,
+    enabled_at TIMESTAMP(6) NOT NULL,
+    owner_node VARCHAR(100) NOT NULL,
+    lease_until TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,12 @@
+-- Unidades reservadas por producto (ver ProductReservationTotal), con los contadores iniciales
+-- calculados desde las reservas pendientes que ya existían.
+CREATE TABLE IF NOT EXISTS product_reservation_totals (
+    product_id BIGINT PRIMARY KEY,
+    reserved INTEGER NOT NULL
+);
+
+INSERT INTO product_reservation_totals (product_id, reserved)
+SELECT sr.product_id, SUM(sr.quantity) FROM stock_reservations sr
+WHERE sr.order_id IS NULL
+GROUP BY sr.product_id
+ON CONFLICT (product_id) DO NOTHING;
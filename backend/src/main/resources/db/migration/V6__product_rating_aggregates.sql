@@ -0,0 +1,12 @@
+-- Agregados de valoración por producto (ver ProductRatingAggregate). Los de productos con reseñas
+-- previas los crea RatingAggregateService al arrancar.
+CREATE TABLE IF NOT EXISTS product_rating_aggregates (
+    product_id BIGINT PRIMARY KEY,
+    review_count BIGINT NOT NULL,
+    rating_sum BIGINT NOT NULL,
+    rating_1 BIGINT NOT NULL,
+    rating_2 BIGINT NOT NULL,
+    rating_3 BIGINT NOT NULL,
+    rating_4 BIGINT NOT NULL,
+    rating_5 BIGINT NOT NULL
+);
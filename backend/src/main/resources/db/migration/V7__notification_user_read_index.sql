@@ -0,0 +1,4 @@
+-- Índice compuesto para contar no leídas y listar notificaciones por usuario (ver Notification).
+-- Sustituye al índice sobre is_read, poco selectivo y sin uso tras este cambio.
+DROP INDEX IF EXISTS idx_read_status;
+CREATE INDEX IF NOT EXISTS idx_notification_user_read_created ON notifications (user_id, is_read, created_at);
@@ -0,0 +1,16 @@
+-- Archivo de notificaciones leídas antiguas (ver NotificationArchive). Conserva el id que tenían
+-- en notifications, así que no usa secuencia.
+CREATE TABLE IF NOT EXISTS notifications_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    message TEXT,
+    type VARCHAR(50) NOT NULL,
+    read_at TIMESTAMP(6),
+    metadata TEXT,
+    created_at TIMESTAMP(6) NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_notification_archive_user_created ON notifications_archive (user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_notification_archive_archived ON notifications_archive (archived_at);
@@ -0,0 +1,18 @@
+-- Búsqueda full-text de productos (ver ProductRepository.searchApprovedRanked y ProductRepositoryImpl).
+--
+-- otaku_fold: NFD + sin marcas combinantes + minúsculas, igual que TextNormalizer.fold (la clase de
+-- marcas es TextNormalizer.COMBINING_MARK_CLASS). normalize() requiere PostgreSQL 13+ y BD en UTF8.
+-- Un cambio posterior de la función va en una migración nueva que también regenere search_vector.
+CREATE OR REPLACE FUNCTION otaku_fold(text) RETURNS text AS $fold$
+SELECT lower(regexp_replace(normalize($1, NFD), '[\u0300-\u036f\u1ab0-\u1aff\u1dc0-\u1dff\u20d0-\u20ff\ufe20-\ufe2f]', '', 'g'))
+$fold$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+-- Columna generada con pesos: nombre (A), categoría (B), descripción (C). Se recrea por si la creó el
+-- antiguo inicializador de arranque con otra versión de otaku_fold; las dos sentencias van en la misma
+-- transacción, así que ninguna consulta ve la tabla sin la columna.
+ALTER TABLE products DROP COLUMN IF EXISTS search_vector;
+ALTER TABLE products ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', otaku_fold(coalesce(name, ''))), 'A') ||
+    setweight(to_tsvector('simple', otaku_fold(coalesce(category, ''))), 'B') ||
+    setweight(to_tsvector('simple', otaku_fold(coalesce(description, ''))), 'C')
+) STORED;
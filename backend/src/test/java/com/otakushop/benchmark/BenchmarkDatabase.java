@@ -0,0 +1,38 @@
+package com.otakushop.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Conexiones a la base PostgreSQL de los benchmarks de integración.
+ *
+ * Los benchmarks son opcionales y solo informan de sus cifras en el log; no fallan por tiempos. Las
+ * comprobaciones de corrección viven en los tests que corren siempre. Para ejecutarlos:
+ *
+ *   mvn test -Dtest=<Benchmark> -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/otaku_shop \
+ *       -Dbenchmark.db.user=postgres -Dbenchmark.db.password=123
+ */
+final class BenchmarkDatabase {
+
+    static final String URL_PROPERTY = "benchmark.db.url";
+
+    private BenchmarkDatabase() {
+    }
+
+    static Connection connect() throws SQLException {
+        return connect(new Properties());
+    }
+
+    /**
+     * Conexión con propiedades extra del driver (p. ej. reWriteBatchedInserts)
+     */
+    static Connection connect(Properties driverProperties) throws SQLException {
+        Properties properties = new Properties();
+        properties.putAll(driverProperties);
+        properties.setProperty("user", System.getProperty("benchmark.db.user", "postgres"));
+        properties.setProperty("password", System.getProperty("benchmark.db.password", ""));
+        return DriverManager.getConnection(System.getProperty(URL_PROPERTY), properties);
+    }
+}
@@ -0,0 +1,17 @@
+package com.otakushop.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Activa un benchmark de integración solo si se indica una base PostgreSQL (ver {@link BenchmarkDatabase})
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@EnabledIfSystemProperty(named = BenchmarkDatabase.URL_PROPERTY, matches = ".+")
+@interface EnabledIfBenchmarkDatabase {
+}
@@ -0,0 +1,190 @@
+package com.otakushop.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark de concurrencia: agregar al carrito sobre un único producto "caliente".
+ *
+ * Compara el camino anterior (SELECT ... FOR UPDATE + lectura-modificación-escritura en REPEATABLE READ)
+ * con el UPDATE condicional atómico de StockService (READ COMMITTED, filas afectadas = éxito).
+ * Ambos insertan además el item de carrito en la misma transacción, como CartService.addItem.
+ *
+ * Informa del throughput, las ventas y el stock final de cada camino; que el descuento atómico nunca
+ * sobrevende lo comprueba StockServiceTest. Hilos e intentos con -Dbenchmark.threads (64) y
+ * -Dbenchmark.attempts (200). Ver {@link BenchmarkDatabase}.
+ */
+@EnabledIfBenchmarkDatabase
+@Slf4j
+class HotSkuStockBenchmark {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 64);
+    private static final int ATTEMPTS_PER_THREAD = Integer.getInteger("benchmark.attempts", 200);
+    // Menos stock que intentos: también se mide el rechazo por falta de stock
+    private static final int INITIAL_STOCK = THREADS * ATTEMPTS_PER_THREAD / 2;
+
+    @Test
+    void testAtomicDecrementVersusPessimisticLock() throws Exception {
+        try (Connection admin = BenchmarkDatabase.connect()) {
+            try {
+                Result locked = run(admin, this::addWithRowLock);
+                Result atomic = run(admin, this::addWithConditionalUpdate);
+
+                log.info("FOR UPDATE + REPEATABLE READ: {} ops/s (vendidos={}, errores={}, stock final={})",
+                        locked.throughput(), locked.sold, locked.errors, locked.finalStock);
+                log.info("UPDATE condicional atómico:   {} ops/s (vendidos={}, errores={}, stock final={})",
+                        atomic.throughput(), atomic.sold, atomic.errors, atomic.finalStock);
+            } finally {
+                try (Statement statement = admin.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS bench_cart_items");
+                    statement.execute("DROP TABLE IF EXISTS bench_stock");
+                }
+            }
+        }
+    }
+
+    private interface AddToCart {
+        boolean add(Connection connection, long userId) throws SQLException;
+    }
+
+    private static final class Result {
+        long elapsedNanos;
+        int attempts;
+        int sold;
+        int errors;
+        int finalStock;
+
+        String throughput() {
+            return String.format("%,.0f", attempts / (elapsedNanos / 1_000_000_000.0));
+        }
+    }
+
+    private Result run(Connection admin, AddToCart strategy) throws Exception {
+        reset(admin);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            long userId = t;
+            futures.add(pool.submit(() -> {
+                try (Connection connection = BenchmarkDatabase.connect()) {
+                    connection.setAutoCommit(false);
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        try {
+                            if (strategy.add(connection, userId)) {
+                                sold.incrementAndGet();
+                            }
+                        } catch (SQLException e) {
+                            // Fallos de serialización / deadlock: el cliente tendría que reintentar
+                            connection.rollback();
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        Result result = new Result();
+        result.elapsedNanos = System.nanoTime() - begin;
+        pool.shutdown();
+
+        result.attempts = THREADS * ATTEMPTS_PER_THREAD;
+        result.sold = sold.get();
+        result.errors = errors.get();
+        try (Statement statement = admin.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT stock FROM bench_stock WHERE id = 1")) {
+            rs.next();
+            result.finalStock = rs.getInt(1);
+        }
+        return result;
+    }
+
+    /**
+     * Camino anterior: bloquear la fila, leer, validar y escribir el nuevo valor
+     */
+    private boolean addWithRowLock(Connection connection, long userId) throws SQLException {
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        int stock;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT stock FROM bench_stock WHERE id = 1 FOR UPDATE");
+             ResultSet rs = select.executeQuery()) {
+            rs.next();
+            stock = rs.getInt(1);
+        }
+        if (stock < 1) {
+            connection.rollback();
+            return false;
+        }
+        try (PreparedStatement update = connection.prepareStatement("UPDATE bench_stock SET stock = ? WHERE id = 1")) {
+            update.setInt(1, stock - 1);
+            update.executeUpdate();
+        }
+        insertCartItem(connection, userId);
+        connection.commit();
+        return true;
+    }
+
+    /**
+     * Camino nuevo: item de carrito y UPDATE condicional al final; 0 filas = sin stock
+     */
+    private boolean addWithConditionalUpdate(Connection connection, long userId) throws SQLException {
+        connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        insertCartItem(connection, userId);
+        int updated;
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE bench_stock SET stock = stock - ? WHERE id = 1 AND stock >= ?")) {
+            update.setInt(1, 1);
+            update.setInt(2, 1);
+            updated = update.executeUpdate();
+        }
+        if (updated == 0) {
+            connection.rollback();
+            return false;
+        }
+        connection.commit();
+        return true;
+    }
+
+    private void insertCartItem(Connection connection, long userId) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_cart_items (user_id, product_id, quantity) VALUES (?, 1, 1)")) {
+            insert.setLong(1, userId);
+            insert.executeUpdate();
+        }
+    }
+
+    private void reset(Connection admin) throws SQLException {
+        try (Statement statement = admin.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_cart_items");
+            statement.execute("DROP TABLE IF EXISTS bench_stock");
+            statement.execute("CREATE TABLE bench_stock (id BIGINT PRIMARY KEY, stock INTEGER NOT NULL)");
+            statement.execute("CREATE TABLE bench_cart_items (id BIGSERIAL PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "product_id BIGINT NOT NULL, quantity INTEGER NOT NULL)");
+            statement.execute("INSERT INTO bench_stock (id, stock) VALUES (1, " + INITIAL_STOCK + ")");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.otakushop.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Benchmark de inserción de órdenes y notificaciones antes y después del perfil de persistencia.
+ *
+ * - IDENTITY: lo que hace Hibernate con GenerationType.IDENTITY, un INSERT ... RETURNING id por fila
+ *   (no puede agrupar porque necesita el id de cada fila al momento)
+ * - Secuencia pooled + batch: ids de una secuencia INCREMENT BY 50 (un nextval cada 50 filas, como el
+ *   optimizador pooled), INSERT en batch y reWriteBatchedInserts=true en el driver
+ *
+ * Órdenes: una transacción por orden con ITEMS_PER_ORDER líneas (checkout). Notificaciones: lotes de
+ * NOTIFICATION_BATCH por transacción (avisos masivos). Informa de filas/s de cada modo; que los ids por
+ * bloques no se solapan lo comprueba EntityIdAllocatorTest y que el batch guarda todas las líneas,
+ * CheckoutServiceTest. Tamaño con -Dbenchmark.orders (2000) y -Dbenchmark.notifications (50000).
+ * Ver {@link BenchmarkDatabase}.
+ */
+@EnabledIfBenchmarkDatabase
+@Slf4j
+class InsertBatchingBenchmark {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 2000);
+    private static final int NOTIFICATIONS = Integer.getInteger("benchmark.notifications", 50_000);
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int NOTIFICATION_BATCH = 500;
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Test
+    void testSequenceBatchingVersusIdentityInserts() throws Exception {
+        try (Connection identity = connect(false); Connection batched = connect(true)) {
+            try {
+                reset(identity);
+
+                long identityOrders = measure(() -> insertOrdersIdentity(identity));
+                long batchedOrders = measure(() -> insertOrdersBatched(batched));
+                long identityNotifications = measure(() -> insertNotificationsIdentity(identity));
+                long batchedNotifications = measure(() -> insertNotificationsBatched(batched));
+
+                log.info("{} órdenes de {} líneas, {} notificaciones en lotes de {}",
+                        ORDERS, ITEMS_PER_ORDER, NOTIFICATIONS, NOTIFICATION_BATCH);
+                log.info("Órdenes IDENTITY:                 {}", rate(ORDERS, identityOrders, "órdenes"));
+                log.info("Órdenes secuencia + batch:        {}", rate(ORDERS, batchedOrders, "órdenes"));
+                log.info("Notificaciones IDENTITY:          {}", rate(NOTIFICATIONS, identityNotifications, "filas"));
+                log.info("Notificaciones secuencia + batch: {}", rate(NOTIFICATIONS, batchedNotifications, "filas"));
+            } finally {
+                dropTables(identity);
+            }
+        }
+    }
+
+    private interface Work {
+        void run() throws SQLException;
+    }
+
+    private long measure(Work work) throws SQLException {
+        long begin = System.nanoTime();
+        work.run();
+        return System.nanoTime() - begin;
+    }
+
+    private String rate(int rows, long nanos, String unit) {
+        return String.format("%,.0f %s/s", rows / (nanos / 1e9), unit);
+    }
+
+    private void insertOrdersIdentity(Connection connection) throws SQLException {
+        try (PreparedStatement order = connection.prepareStatement(
+                     "INSERT INTO bench_id_orders (user_id, total, created_at) VALUES (?, ?, now()) RETURNING id");
+             PreparedStatement item = connection.prepareStatement(
+                     "INSERT INTO bench_id_order_items (order_id, product_id, quantity) VALUES (?, ?, 1) RETURNING id")) {
+            for (int o = 0; o < ORDERS; o++) {
+                order.setLong(1, o % 100);
+                order.setInt(2, 100);
+                long orderId = returnedId(order);
+                for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                    item.setLong(1, orderId);
+                    item.setLong(2, i + 1);
+                    returnedId(item);
+                }
+                connection.commit();
+            }
+        }
+    }
+
+    private void insertOrdersBatched(Connection connection) throws SQLException {
+        PooledIds orderIds = new PooledIds(connection, "bench_seq_orders_seq");
+        PooledIds itemIds = new PooledIds(connection, "bench_seq_order_items_seq");
+        try (PreparedStatement order = connection.prepareStatement(
+                     "INSERT INTO bench_seq_orders (id, user_id, total, created_at) VALUES (?, ?, ?, now())");
+             PreparedStatement item = connection.prepareStatement(
+                     "INSERT INTO bench_seq_order_items (id, order_id, product_id, quantity) VALUES (?, ?, ?, 1)")) {
+            for (int o = 0; o < ORDERS; o++) {
+                long orderId = orderIds.next();
+                order.setLong(1, orderId);
+                order.setLong(2, o % 100);
+                order.setInt(3, 100);
+                order.executeUpdate();
+                for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                    item.setLong(1, itemIds.next());
+                    item.setLong(2, orderId);
+                    item.setLong(3, i + 1);
+                    item.addBatch();
+                }
+                item.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+
+    private void insertNotificationsIdentity(Connection connection) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_id_notifications (user_id, title, type, is_read, created_at) " +
+                        "VALUES (?, ?, 'PRODUCT_BACK_IN_STOCK', false, now()) RETURNING id")) {
+            for (int n = 0; n < NOTIFICATIONS; n++) {
+                insert.setLong(1, n);
+                insert.setString(2, "Vuelve a haber stock");
+                returnedId(insert);
+                if ((n + 1) % NOTIFICATION_BATCH == 0) {
+                    connection.commit();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private void insertNotificationsBatched(Connection connection) throws SQLException {
+        PooledIds ids = new PooledIds(connection, "bench_seq_notifications_seq");
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_seq_notifications (id, user_id, title, type, is_read, created_at) " +
+                        "VALUES (?, ?, ?, 'PRODUCT_BACK_IN_STOCK', false, now())")) {
+            for (int n = 0; n < NOTIFICATIONS; n++) {
+                insert.setLong(1, ids.next());
+                insert.setLong(2, n);
+                insert.setString(3, "Vuelve a haber stock");
+                insert.addBatch();
+                if ((n + 1) % NOTIFICATION_BATCH == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private long returnedId(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Optimizador pooled: un nextval de una secuencia INCREMENT BY 50 reserva 50 ids
+     */
+    private static final class PooledIds {
+        private final PreparedStatement nextval;
+        private long next;
+        private long hi;
+
+        PooledIds(Connection connection, String sequence) throws SQLException {
+            this.nextval = connection.prepareStatement("SELECT nextval('" + sequence + "')");
+        }
+
+        long next() throws SQLException {
+            if (next >= hi) {
+                try (ResultSet rs = nextval.executeQuery()) {
+                    rs.next();
+                    hi = rs.getLong(1);
+                }
+                next = hi - ALLOCATION_SIZE;
+            }
+            return ++next;
+        }
+    }
+
+    private void reset(Connection connection) throws SQLException {
+        dropTables(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE bench_id_orders (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                    "user_id BIGINT NOT NULL, total INTEGER NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE bench_id_order_items (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                    "order_id BIGINT NOT NULL, product_id BIGINT NOT NULL, quantity INTEGER NOT NULL)");
+            statement.execute("CREATE TABLE bench_id_notifications (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                    "user_id BIGINT NOT NULL, title VARCHAR(255) NOT NULL, type VARCHAR(50) NOT NULL, " +
+                    "is_read BOOLEAN NOT NULL, created_at TIMESTAMP NOT NULL)");
+
+            statement.execute("CREATE TABLE bench_seq_orders (id BIGINT PRIMARY KEY, " +
+                    "user_id BIGINT NOT NULL, total INTEGER NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE bench_seq_order_items (id BIGINT PRIMARY KEY, " +
+                    "order_id BIGINT NOT NULL, product_id BIGINT NOT NULL, quantity INTEGER NOT NULL)");
+            statement.execute("CREATE TABLE bench_seq_notifications (id BIGINT PRIMARY KEY, " +
+                    "user_id BIGINT NOT NULL, title VARCHAR(255) NOT NULL, type VARCHAR(50) NOT NULL, " +
+                    "is_read BOOLEAN NOT NULL, created_at TIMESTAMP NOT NULL)");
+            for (String table : new String[] {"bench_seq_orders", "bench_seq_order_items", "bench_seq_notifications"}) {
+                // START WITH 50: el primer bloque es 1-50
+                statement.execute("CREATE SEQUENCE " + table + "_seq START WITH " + ALLOCATION_SIZE +
+                        " INCREMENT BY " + ALLOCATION_SIZE);
+            }
+        }
+        connection.commit();
+    }
+
+    private void dropTables(Connection connection) throws SQLException {
+        connection.rollback();
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] {"orders", "order_items", "notifications"}) {
+                statement.execute("DROP TABLE IF EXISTS bench_id_" + table);
+                statement.execute("DROP TABLE IF EXISTS bench_seq_" + table);
+                statement.execute("DROP SEQUENCE IF EXISTS bench_seq_" + table + "_seq");
+            }
+        }
+        connection.commit();
+    }
+
+    private Connection connect(boolean rewriteBatchedInserts) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("reWriteBatchedInserts", String.valueOf(rewriteBatchedInserts));
+        Connection connection = BenchmarkDatabase.connect(properties);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+}
@@ -0,0 +1,110 @@
+package com.otakushop.benchmark;
+
+import com.otakushop.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark JMH de verificación de JWT (tokens verificados por segundo).
+ *
+ * - legacy: clave y JwtParser nuevos en cada verificación (JwtTokenProvider anterior)
+ * - sharedParser: clave precalculada y parser compartido, sin caché de verificados
+ * - cached: JwtTokenProvider actual; un mismo token se repite entre peticiones y solo cuesta un hash
+ *
+ * Solo informa de las cifras (tabla de JMH y log); la corrección de la caché la comprueba
+ * JwtTokenProviderTest. Se ejecuta solo si se pide explícitamente:
+ *
+ *   mvn test -Dtest=JwtVerificationBenchmark -Dbenchmark.jmh=true
+ *
+ * Corre dentro de la JVM de surefire (forks=0) para no depender del classpath del fork.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark.jmh", matches = "true")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "otakushop-secret-key-very-long-and-secure-for-production-use-only";
+    // Usuarios activos distintos: todos caben en la caché de verificados
+    private static final int TOKENS = 1000;
+
+    private String[] tokens;
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider cached;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        uncached = new JwtTokenProvider(SECRET, 3_600_000, 0, new SimpleMeterRegistry());
+        cached = new JwtTokenProvider(SECRET, 3_600_000, 50_000, new SimpleMeterRegistry());
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = cached.generateToken((long) i, "user" + i + "@otakushop.com", "CLIENTE");
+        }
+    }
+
+    @Benchmark
+    public Claims legacy() {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(nextToken())
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return uncached.parseClaims(nextToken());
+    }
+
+    @Benchmark
+    public Claims cached() {
+        return cached.parseClaims(nextToken());
+    }
+
+    private String nextToken() {
+        return tokens[(next.getAndIncrement() & Integer.MAX_VALUE) % TOKENS];
+    }
+
+    @Test
+    void testVerifiedTokensPerSecond() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getName() + "\\.")
+                .forks(0)
+                .build()).run();
+
+        for (RunResult result : results) {
+            String label = result.getParams().getBenchmark();
+            log.info("{}: {} tokens/s", label.substring(label.lastIndexOf('.') + 1),
+                    String.format("%,.0f", result.getPrimaryResult().getScore()));
+        }
+    }
+}
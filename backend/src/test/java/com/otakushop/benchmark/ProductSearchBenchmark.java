@@ -0,0 +1,121 @@
+package com.otakushop.benchmark;
+
+import com.otakushop.util.TextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Benchmark de integración: búsqueda full-text (search_vector + GIN) vs ILIKE con comodín inicial.
+ *
+ * Crea su propia tabla products en un esquema bench_search y le aplica las migraciones V9 y V10 (otaku_fold,
+ * search_vector e índice GIN), así que mide el DDL real sin tocar datos. El esquema se borra al terminar.
+ * Informa de p50/p99 de cada consulta; el tamaño se ajusta con -Dbenchmark.products (500000 por defecto).
+ * Ver {@link BenchmarkDatabase}.
+ */
+@EnabledIfBenchmarkDatabase
+@Slf4j
+class ProductSearchBenchmark {
+
+    private static final String SCHEMA = "bench_search";
+    private static final String TABLE = SCHEMA + ".products";
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 500_000);
+    private static final int ITERATIONS = 200;
+    private static final List<String> QUERIES = List.of("naruto", "pokémon", "sailor moo", "titan edicion", "figura goku");
+
+    private static final String ILIKE_SQL =
+        "SELECT id FROM " + TABLE + " WHERE active = true AND status = 'APPROVED' " +
+        "AND (name ILIKE ? OR description ILIKE ?) ORDER BY created_at DESC, id DESC LIMIT 20";
+
+    private static final String FULL_TEXT_SQL =
+        "SELECT p.id FROM (SELECT c.id, ts_rank_cd(c.search_vector, query) AS rank " +
+        "FROM " + TABLE + " c, to_tsquery('simple', ?) query " +
+        "WHERE c.search_vector @@ query AND c.active = true AND c.status = 'APPROVED' LIMIT 2000) ranked " +
+        "JOIN " + TABLE + " p ON p.id = ranked.id ORDER BY ranked.rank DESC, p.created_at DESC, p.id DESC LIMIT 20";
+
+    @Test
+    void testFullTextVersusIlike() throws Exception {
+        try (Connection connection = BenchmarkDatabase.connect()) {
+            try {
+                seed(connection);
+
+                long[] ilike = measure(connection, ILIKE_SQL, query -> {
+                    String pattern = "%" + query + "%";
+                    return new String[] {pattern, pattern};
+                });
+                long[] fullText = measure(connection, FULL_TEXT_SQL,
+                        query -> new String[] {TextNormalizer.toPrefixTsQuery(query)});
+
+                log.info("ILIKE     ({} productos): p50={} ms, p99={} ms",
+                        PRODUCTS, percentile(ilike, 50), percentile(ilike, 99));
+                log.info("Full-text ({} productos): p50={} ms, p99={} ms",
+                        PRODUCTS, percentile(fullText, 50), percentile(fullText, 99));
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+                }
+            }
+        }
+    }
+
+    private void seed(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            // Las migraciones usan nombres sin esquema: se crean dentro de bench_search
+            statement.execute("SET search_path TO " + SCHEMA);
+            statement.execute("CREATE TABLE " + TABLE + " (" +
+                    "id BIGSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, description TEXT, " +
+                    "category VARCHAR(255) NOT NULL, active BOOLEAN NOT NULL DEFAULT true, " +
+                    "status VARCHAR(50) NOT NULL DEFAULT 'APPROVED', created_at TIMESTAMP NOT NULL DEFAULT now())");
+            statement.execute("INSERT INTO " + TABLE + " (name, description, category, created_at) " +
+                    "SELECT 'Figura ' || (ARRAY['Goku','Naruto','Luffy','Pokémon Pikachu','Sailor Moon'," +
+                    "'Evangelion','Attack on Titan','Demon Slayer'])[1 + g % 8] || ' edición ' || g, " +
+                    "'Figura coleccionable original importada de Japón, lote ' || g, " +
+                    "(ARRAY['figuras','manga','ropa','accesorios'])[1 + g % 4], " +
+                    "now() - (g || ' seconds')::interval " +
+                    "FROM generate_series(1, " + PRODUCTS + ") g");
+        }
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V9__product_search_vector.sql"));
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V10__product_search_vector_index.sql"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE " + TABLE);
+        }
+    }
+
+    private long[] measure(Connection connection, String sql,
+                           Function<String, String[]> binder) throws Exception {
+        long[] samples = new long[ITERATIONS];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                String[] params = binder.apply(QUERIES.get(i % QUERIES.size()));
+                for (int p = 0; p < params.length; p++) {
+                    statement.setString(p + 1, params[p]);
+                }
+                long start = System.nanoTime();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getLong(1);
+                    }
+                }
+                samples[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private String percentile(long[] sortedNanos, int percentile) {
+        int index = Math.min(sortedNanos.length - 1, (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1);
+        return String.format("%.2f", sortedNanos[Math.max(index, 0)] / 1_000_000.0);
+    }
+}
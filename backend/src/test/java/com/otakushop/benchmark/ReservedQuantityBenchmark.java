@@ -0,0 +1,97 @@
+package com.otakushop.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmark de consultas de disponibilidad con muchas reservas vivas.
+ *
+ * Compara el SUM sobre stock_reservations (por idx_res_product, filtrando no expiradas) que hacía
+ * StockReservationService en cada consulta con la lectura por clave de product_reservation_totals.
+ * Informa de consultas/s de cada una; que el contador coincide con el SUM lo comprueba
+ * StockReservationServiceTest. Tamaño con -Dbenchmark.reservations (100000) y -Dbenchmark.lookups (5000).
+ * Ver {@link BenchmarkDatabase}.
+ */
+@EnabledIfBenchmarkDatabase
+@Slf4j
+class ReservedQuantityBenchmark {
+
+    private static final int RESERVATIONS = Integer.getInteger("benchmark.reservations", 100_000);
+    private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 5000);
+    // Pocos productos: cada uno acumula miles de reservas, como un lanzamiento
+    private static final int PRODUCTS = 20;
+
+    private static final String SUM_SQL = "SELECT COALESCE(SUM(quantity), 0) FROM bench_reservations " +
+            "WHERE product_id = ? AND order_id IS NULL AND expires_at > now()";
+    private static final String COUNTER_SQL = "SELECT reserved FROM bench_reservation_totals WHERE product_id = ?";
+
+    @Test
+    void testCounterLookupVersusSumQuery() throws Exception {
+        try (Connection connection = BenchmarkDatabase.connect()) {
+            try {
+                reset(connection);
+
+                // Calentamiento de caché de páginas y planes
+                measure(connection, SUM_SQL, LOOKUPS / 10);
+                measure(connection, COUNTER_SQL, LOOKUPS / 10);
+
+                long sumNanos = measure(connection, SUM_SQL, LOOKUPS);
+                long counterNanos = measure(connection, COUNTER_SQL, LOOKUPS);
+
+                log.info("{} reservas vivas en {} productos, {} consultas", RESERVATIONS, PRODUCTS, LOOKUPS);
+                log.info("SUM de reservas:    {}", rate(sumNanos));
+                log.info("Contador por clave: {}", rate(counterNanos));
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS bench_reservation_totals");
+                    statement.execute("DROP TABLE IF EXISTS bench_reservations");
+                }
+            }
+        }
+    }
+
+    private long measure(Connection connection, String sql, int lookups) throws SQLException {
+        long begin = System.nanoTime();
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            for (int i = 0; i < lookups; i++) {
+                select.setLong(1, ThreadLocalRandom.current().nextLong(1, PRODUCTS + 1));
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private String rate(long nanos) {
+        return String.format("%,.0f consultas/s (%.3f ms/consulta)", LOOKUPS / (nanos / 1e9), nanos / 1e6 / LOOKUPS);
+    }
+
+    private void reset(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_reservation_totals");
+            statement.execute("DROP TABLE IF EXISTS bench_reservations");
+            statement.execute("CREATE TABLE bench_reservations (id BIGSERIAL PRIMARY KEY, product_id BIGINT NOT NULL, " +
+                    "quantity INTEGER NOT NULL, order_id BIGINT, expires_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE bench_reservation_totals (product_id BIGINT PRIMARY KEY, " +
+                    "reserved INTEGER NOT NULL)");
+
+            statement.execute("INSERT INTO bench_reservations (product_id, quantity, expires_at) " +
+                    "SELECT 1 + (g % " + PRODUCTS + "), 1 + (g % 3), now() + interval '15 minutes' " +
+                    "FROM generate_series(1, " + RESERVATIONS + ") g");
+            statement.execute("CREATE INDEX idx_bench_res_product ON bench_reservations (product_id)");
+            statement.execute("CREATE INDEX idx_bench_res_expires ON bench_reservations (expires_at)");
+            statement.execute("INSERT INTO bench_reservation_totals (product_id, reserved) " +
+                    "SELECT product_id, SUM(quantity) FROM bench_reservations GROUP BY product_id");
+            statement.execute("ANALYZE bench_reservations");
+            statement.execute("ANALYZE bench_reservation_totals");
+        }
+    }
+}
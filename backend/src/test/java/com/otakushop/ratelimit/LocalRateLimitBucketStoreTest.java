@@ -0,0 +1,51 @@
+package com.otakushop.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimitBucketStoreTest {
+
+    @Test
+    void testBucketIsKeptForThePolicyPeriod() {
+        // Sin margen propio: solo el periodo de la política retiene el bucket
+        LocalRateLimitBucketStore store = new LocalRateLimitBucketStore(100, 0);
+        RateLimitPolicy policy = policy(2, Duration.ofHours(1));
+        String key = policy.bucketKey("1.2.3.4", null);
+
+        Bucket bucket = store.resolve(key, policy::getConfiguration);
+        assertTrue(bucket.tryConsume(2), "Fresh bucket should allow its capacity");
+
+        assertFalse(store.resolve(key, policy::getConfiguration).tryConsume(1),
+                "Exhausted bucket should not be recreated full before its period ends");
+    }
+
+    @Test
+    void testIdleTimeIsAtLeastTheRefillPeriod() {
+        Duration idle = Duration.ofSeconds(120);
+        RateLimitPolicy hourly = policy(5, Duration.ofHours(1));
+        RateLimitPolicy perMinute = policy(60, Duration.ofMinutes(1));
+
+        assertEquals(Duration.ofHours(1).toNanos(),
+                new RetainedBucket(null, hourly.getConfiguration(), idle).idleNanos(),
+                "Policies with a long period should keep their buckets for the whole period");
+        assertEquals(idle.toNanos(),
+                new RetainedBucket(null, perMinute.getConfiguration(), idle).idleNanos(),
+                "Short periods should keep the configured idle expiry");
+    }
+
+    private static RateLimitPolicy policy(long capacity, Duration period) {
+        return RateLimitPolicy.compile(RateLimitPolicyDefinition.builder()
+                .name("login")
+                .methods(List.of("POST"))
+                .paths(List.of("/auth/login"))
+                .capacity(capacity)
+                .period(period)
+                .key(RateLimitKey.IP)
+                .build());
+    }
+}
@@ -0,0 +1,96 @@
+package com.otakushop.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitPolicyRegistryTest {
+
+    private static final List<RateLimitPolicy> POLICIES = RateLimitPolicyRegistry.compileAll(List.of(
+            definition("auth", List.of(), List.of("/auth/login", "/auth/register"), 5, RateLimitKey.IP),
+            definition("checkout", List.of("POST"), List.of("/checkout/process"), 10, RateLimitKey.USER),
+            definition("upload", List.of("POST"), List.of("/upload/**"), 20, RateLimitKey.USER_AND_IP),
+            definition("writes", List.of("POST", "put", "DELETE"), List.of("/**"), 60, RateLimitKey.USER),
+            definition("reads", List.of(), List.of("/**"), 300, RateLimitKey.USER)));
+
+    @Test
+    void testFirstMatchingPolicyWins() {
+        assertEquals("auth", RateLimitPolicyRegistry.match(POLICIES, "POST", "/auth/login").getName());
+        assertEquals("checkout", RateLimitPolicyRegistry.match(POLICIES, "POST", "/checkout/process").getName());
+        assertEquals("upload", RateLimitPolicyRegistry.match(POLICIES, "POST", "/upload/image").getName());
+        assertEquals("writes", RateLimitPolicyRegistry.match(POLICIES, "POST", "/cart/items").getName(),
+                "Unlisted write should fall into the write budget");
+    }
+
+    @Test
+    void testMethodFilterSeparatesReadsFromWrites() {
+        assertEquals("reads", RateLimitPolicyRegistry.match(POLICIES, "GET", "/checkout/process").getName(),
+                "GET should not consume the checkout budget");
+        assertEquals("writes", RateLimitPolicyRegistry.match(POLICIES, "PUT", "/products/5").getName(),
+                "Methods should match case-insensitively");
+        assertEquals("reads", RateLimitPolicyRegistry.match(POLICIES, "GET", "/products/5").getName());
+    }
+
+    @Test
+    void testFallbackPolicyAlwaysMatches() {
+        List<RateLimitPolicy> onlyFallback = RateLimitPolicyRegistry.compileAll(List.of());
+
+        RateLimitPolicy policy = RateLimitPolicyRegistry.match(onlyFallback, "GET", "/anything/here");
+        assertEquals("default", policy.getName());
+        assertEquals(100, policy.getCapacity());
+    }
+
+    @Test
+    void testBucketKeyStrategies() {
+        RateLimitPolicy auth = RateLimitPolicyRegistry.match(POLICIES, "POST", "/auth/login");
+        RateLimitPolicy checkout = RateLimitPolicyRegistry.match(POLICIES, "POST", "/checkout/process");
+        RateLimitPolicy upload = RateLimitPolicyRegistry.match(POLICIES, "POST", "/upload/image");
+
+        assertEquals(auth.bucketKey("1.2.3.4", 7L), auth.bucketKey("1.2.3.4", 8L),
+                "IP-keyed policy should ignore the user");
+        assertNotEquals(checkout.bucketKey("1.2.3.4", 7L), checkout.bucketKey("1.2.3.4", 8L),
+                "User-keyed policy should give each user its own bucket");
+        assertEquals(checkout.bucketKey("1.2.3.4", 7L), checkout.bucketKey("5.6.7.8", 7L),
+                "User-keyed policy should follow the user across IPs");
+        assertTrue(checkout.bucketKey("1.2.3.4", null).endsWith("ip:1.2.3.4"),
+                "Anonymous requests should fall back to the IP");
+        assertNotEquals(upload.bucketKey("1.2.3.4", 7L), upload.bucketKey("5.6.7.8", 7L),
+                "User-and-IP policy should split the same user across IPs");
+    }
+
+    @Test
+    void testBucketKeyChangesWithLimit() {
+        RateLimitPolicy before = RateLimitPolicy.compile(
+                definition("search", List.of("GET"), List.of("/products/search"), 60, RateLimitKey.IP));
+        RateLimitPolicy after = RateLimitPolicy.compile(
+                definition("search", List.of("GET"), List.of("/products/search"), 30, RateLimitKey.IP));
+
+        assertNotEquals(before.bucketKey("1.2.3.4", null), after.bucketKey("1.2.3.4", null),
+                "Reloaded policy with a new limit should not reuse old buckets");
+    }
+
+    @Test
+    void testInvalidDefinitionsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RateLimitPolicy.compile(definition("bad", List.of(), List.of("/**"), 0, RateLimitKey.IP)));
+        assertThrows(IllegalArgumentException.class,
+                () -> RateLimitPolicy.compile(definition("bad", List.of(), List.of(), 10, RateLimitKey.IP)));
+        assertThrows(IllegalArgumentException.class,
+                () -> RateLimitPolicy.compile(definition(" ", List.of(), List.of("/**"), 10, RateLimitKey.IP)));
+    }
+
+    private static RateLimitPolicyDefinition definition(String name, List<String> methods, List<String> paths,
+                                                        long capacity, RateLimitKey key) {
+        return RateLimitPolicyDefinition.builder()
+                .name(name)
+                .methods(methods)
+                .paths(paths)
+                .capacity(capacity)
+                .period(Duration.ofMinutes(1))
+                .key(key)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.otakushop.repository;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.entity.Notification;
+import com.otakushop.entity.Notification.NotificationType;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los ids de los INSERT a mano comparten el bloque pooled que Hibernate usa en persist()
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+class EntityIdAllocatorTest {
+
+    @Autowired private EntityIdAllocator idAllocator;
+    @Autowired private EntityManager entityManager;
+
+    @Test
+    void testIdsAreConsecutiveAcrossBlocks() {
+        Long[] ids = idAllocator.nextIds(Notification.class, 120);
+
+        for (int i = 1; i < ids.length; i++) {
+            assertEquals(ids[0] + i, ids[i], "Ids should not skip a block per row");
+        }
+    }
+
+    @Test
+    void testPersistContinuesAfterAllocatedIds() {
+        User user = User.builder()
+                .email("client@otakushop.com")
+                .password("x")
+                .name("client")
+                .phone("999999999")
+                .role(Role.CLIENTE)
+                .build();
+        entityManager.persist(user);
+
+        Long[] ids = idAllocator.nextIds(Notification.class, 3);
+        Notification notification = Notification.builder()
+                .user(user)
+                .title("Reposición")
+                .type(NotificationType.PRODUCT_BACK_IN_STOCK)
+                .build();
+        entityManager.persist(notification);
+
+        assertEquals(ids[2] + 1, notification.getId(), "Entity inserts should draw from the same block");
+    }
+}
@@ -0,0 +1,155 @@
+package com.otakushop.repository;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.dto.ProductFilter;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import com.otakushop.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Consultas del catálogo público: paginación keyset sobre (created_at, id), conteo acotado y
+ * listado de aprobados, contra el esquema real de las entidades.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+class ProductCatalogRepositoryTest {
+
+    private static final LocalDateTime TIED = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private EntityManager entityManager;
+
+    private User vendor;
+
+    @BeforeEach
+    void setUp() {
+        vendor = User.builder()
+                .email("vendor@otakushop.com")
+                .password("x")
+                .name("vendor")
+                .phone("999999999")
+                .role(Role.VENDEDOR)
+                .build();
+        entityManager.persist(vendor);
+    }
+
+    @Test
+    void testKeysetPagesCoverTiedCreatedAtOnce() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            expected.add(product("Figura " + i, "figuras", ProductStatus.APPROVED, true, TIED));
+        }
+        // Más antiguo que todos los empatados: debe salir al final
+        Long older = product("Póster", "posters", ProductStatus.APPROVED, true, TIED.minusDays(1));
+        expected.sort(Comparator.reverseOrder());
+        expected.add(older);
+
+        List<Long> seen = new ArrayList<>();
+        KeysetCursor after = null;
+        for (int pages = 0; pages < 10; pages++) {
+            List<Product> page = productRepository.findApprovedByFilter(null, after, 3);
+            page.forEach(product -> seen.add(product.getId()));
+            if (page.size() < 3) {
+                break;
+            }
+            Product last = page.get(page.size() - 1);
+            after = KeysetCursor.decode(new KeysetCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+
+        assertEquals(expected, seen, "Pages should follow (created_at, id) DESC without gaps or repeats");
+    }
+
+    @Test
+    void testKeysetAppliesFilters() {
+        Long figure = product("Figura", "figuras", ProductStatus.APPROVED, true, TIED);
+        product("Póster", "posters", ProductStatus.APPROVED, true, TIED);
+        product("Figura pendiente", "figuras", ProductStatus.PENDING, true, TIED);
+        product("Figura inactiva", "figuras", ProductStatus.APPROVED, false, TIED);
+
+        List<Product> page = productRepository.findApprovedByFilter(
+                ProductFilter.builder().category("figuras").build(), null, 10);
+
+        assertEquals(List.of(figure), page.stream().map(Product::getId).toList(),
+                "Only active approved products of the category should be listed");
+    }
+
+    @Test
+    void testCappedCountStopsAtCap() {
+        for (int i = 0; i < 5; i++) {
+            product("Figura " + i, "figuras", ProductStatus.APPROVED, true, TIED);
+        }
+        product("Figura pendiente", "figuras", ProductStatus.PENDING, true, TIED);
+
+        assertEquals(3, productRepository.countApprovedByFilter(null, 3), "Count should stop at the cap");
+        assertEquals(5, productRepository.countApprovedByFilter(null, 1000), "Count below the cap should be exact");
+        assertEquals(5, productRepository.countApprovedByFilter(null), "Uncapped count should match");
+    }
+
+    @Test
+    void testSearchFallsBackToLikeWithoutSearchVector() {
+        Long goku = product("Figura Goku SSJ", "figuras", ProductStatus.APPROVED, true, TIED);
+        product("Póster Naruto", "posters", ProductStatus.APPROVED, true, TIED);
+        product("Figura Goku pendiente", "figuras", ProductStatus.PENDING, true, TIED);
+
+        List<Product> page = productRepository.findApprovedByFilter(
+                ProductFilter.builder().search("  GOKU ").build(), 0, 10);
+
+        assertEquals(List.of(goku), page.stream().map(Product::getId).toList(),
+                "Without search_vector the search should match approved names case-insensitively");
+        assertEquals(1, productRepository.countApprovedByFilter(ProductFilter.builder().search("goku").build()),
+                "Count should apply the same search predicate");
+    }
+
+    @Test
+    void testFindApprovedActiveSkipsHiddenProducts() {
+        Long newer = product("Figura nueva", "figuras", ProductStatus.APPROVED, true, TIED);
+        Long older = product("Figura vieja", "figuras", ProductStatus.APPROVED, true, TIED.minusDays(1));
+        product("Figura pendiente", "figuras", ProductStatus.PENDING, true, TIED);
+        product("Figura rechazada", "figuras", ProductStatus.REJECTED, true, TIED);
+        product("Figura inactiva", "figuras", ProductStatus.APPROVED, false, TIED);
+
+        assertEquals(List.of(newer, older), productRepository.findApprovedActive().stream().map(Product::getId).toList(),
+                "Only active approved products should be returned, newest first");
+    }
+
+    private Long product(String name, String category, ProductStatus status, boolean active, LocalDateTime createdAt) {
+        Product product = Product.builder()
+                .name(name)
+                .price(new BigDecimal("19.90"))
+                .category(category)
+                .vendor(vendor)
+                .status(status)
+                .active(active)
+                .build();
+        entityManager.persist(product);
+        entityManager.flush();
+        // @PrePersist pone la hora actual; se fija para poder provocar empates
+        entityManager.createNativeQuery("UPDATE products SET created_at = :createdAt WHERE id = :id")
+                .setParameter("createdAt", Timestamp.valueOf(createdAt))
+                .setParameter("id", product.getId())
+                .executeUpdate();
+        entityManager.clear();
+        vendor = entityManager.find(User.class, vendor.getId());
+        return product.getId();
+    }
+}
@@ -0,0 +1,161 @@
+package com.otakushop.repository;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.dto.ReviewResponse;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Review;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sentencias SQL por página de reseñas (regresión del N+1 de ReviewService).
+ *
+ * Compara la carga de entidades Review con producto y usuario perezosos (mapToResponse tocaba
+ * ambas asociaciones: hasta 40 SELECT extra por página de 20) con la proyección a ReviewResponse
+ * de ReviewRepository, que debe costar exactamente una consulta más el COUNT.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+class ReviewRepositoryStatementsTest {
+
+    private static final int PAGE_SIZE = 20;
+    // Más reseñas que una página, para que Spring Data no se salte el COUNT
+    private static final int REVIEWS = 50;
+
+    @Autowired private ReviewRepository reviewRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long productId;
+    private Long authorId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        User vendor = user("vendor", Role.VENDEDOR);
+        entityManager.persist(vendor);
+        Product product = Product.builder()
+                .name("Figura de prueba")
+                .price(new BigDecimal("99.90"))
+                .category("Figuras")
+                .vendor(vendor)
+                .status(ProductStatus.APPROVED)
+                .build();
+        entityManager.persist(product);
+
+        for (int i = 0; i < REVIEWS; i++) {
+            User author = user("client" + i, Role.CLIENTE);
+            entityManager.persist(author);
+            Review review = new Review();
+            review.setProduct(product);
+            review.setUser(author);
+            review.setRating(1 + i % 5);
+            review.setComment("Reseña " + i);
+            entityManager.persist(review);
+            authorId = author.getId();
+        }
+        productId = product.getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testProductReviewPageCostsOneQueryPlusCount() {
+        // Desempate por id: las reseñas sembradas pueden compartir createdAt
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("createdAt").descending().and(Sort.by("id").descending()));
+
+        long[] legacyStatements = new long[1];
+        List<String> legacy = countStatements(legacyStatements, () -> loadEntities(productId));
+
+        long[] projectedStatements = new long[1];
+        Page<ReviewResponse> page = countStatements(projectedStatements,
+                () -> reviewRepository.findResponsesByProductId(productId, pageable));
+
+        assertEquals(REVIEWS, page.getTotalElements(), "Count query should report every review");
+        assertEquals(legacy, page.getContent().stream().map(ReviewRepositoryStatementsTest::describe).toList(),
+                "Projection should return the same page as the entity mapping");
+        assertEquals(2, projectedStatements[0], "Review page should cost one query plus one count");
+        assertTrue(legacyStatements[0] > projectedStatements[0],
+                "Entity mapping should need more statements than the projection");
+    }
+
+    @Test
+    void testUserReviewPageCostsOneQuery() {
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("createdAt").descending());
+
+        long[] statements = new long[1];
+        Page<ReviewResponse> page = countStatements(statements,
+                () -> reviewRepository.findResponsesByUserId(authorId, pageable));
+
+        assertEquals(1, page.getTotalElements(), "Author should have a single review");
+        assertEquals("client" + (REVIEWS - 1), page.getContent().get(0).getUserName(),
+                "Projection should carry the author name");
+        // Con menos filas que el tamaño de página Spring Data calcula el total sin COUNT
+        assertEquals(1, statements[0], "Single-page user reviews should cost one query");
+    }
+
+    /**
+     * Flujo anterior: página de entidades, COUNT y mapToResponse sobre producto y usuario perezosos
+     */
+    private List<String> loadEntities(Long productId) {
+        List<Review> reviews = entityManager.createQuery(
+                        "SELECT r FROM Review r WHERE r.product.id = :productId ORDER BY r.createdAt DESC, r.id DESC", Review.class)
+                .setParameter("productId", productId)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+        entityManager.createQuery("SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId", Long.class)
+                .setParameter("productId", productId)
+                .getSingleResult();
+        return reviews.stream()
+                .map(review -> review.getId() + ":" + review.getProduct().getName() + ":" + review.getUser().getName())
+                .toList();
+    }
+
+    private static String describe(ReviewResponse response) {
+        return response.getId() + ":" + response.getProductName() + ":" + response.getUserName();
+    }
+
+    private <T> T countStatements(long[] statements, Supplier<T> work) {
+        entityManager.clear();
+        statistics.clear();
+        T result = work.get();
+        statements[0] = statistics.getPrepareStatementCount();
+        return result;
+    }
+
+    private User user(String name, Role role) {
+        return User.builder()
+                .email(name + "@otakushop.com")
+                .password("x")
+                .name(name)
+                .phone("999999999")
+                .role(role)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.otakushop.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * La caché de tokens verificados devuelve lo mismo que verificar la firma y nunca acepta un token
+ * que la verificación rechazaría.
+ */
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "otakushop-secret-key-very-long-and-secure-for-production-use-only";
+
+    @Test
+    void testCachedClaimsMatchVerifiedClaims() {
+        JwtTokenProvider uncached = provider(SECRET, 3_600_000, 0);
+        JwtTokenProvider cached = provider(SECRET, 3_600_000, 100);
+        String token = cached.generateToken(42L, "user42@otakushop.com", "CLIENTE");
+
+        Claims verified = uncached.parseClaims(token);
+        for (int i = 0; i < 3; i++) {
+            Claims claims = cached.parseClaims(token);
+            assertNotNull(claims, "Valid token should be accepted");
+            assertEquals(verified, claims, "Cached claims should equal the verified claims");
+        }
+        assertEquals(42L, cached.getUserIdFromJWT(token), "User id should come from the cached claims");
+        assertEquals("user42@otakushop.com", cached.getUserEmailFromJWT(token), "Subject should come from the cached claims");
+        assertEquals("CLIENTE", cached.getRoleFromJWT(token), "Role should come from the cached claims");
+    }
+
+    @Test
+    void testTamperedTokenRejectedAfterOriginalIsCached() {
+        JwtTokenProvider cached = provider(SECRET, 3_600_000, 100);
+        String token = cached.generateToken(1L, "user1@otakushop.com", "CLIENTE");
+        assertTrue(cached.validateToken(token), "Original token should be accepted");
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(cached.parseClaims(tampered), "Token with a modified signature should be rejected");
+        assertTrue(cached.validateToken(token), "Original token should still be accepted");
+    }
+
+    @Test
+    void testTokenSignedWithOtherKeyRejected() {
+        String foreign = provider(SECRET.replace("production", "attacker-key"), 3_600_000, 100)
+                .generateToken(1L, "user1@otakushop.com", "ADMIN");
+
+        assertFalse(provider(SECRET, 3_600_000, 100).validateToken(foreign),
+                "Token signed with another key should be rejected");
+    }
+
+    @Test
+    void testCachedTokenRejectedOnceExpired() throws InterruptedException {
+        JwtTokenProvider cached = provider(SECRET, 1000, 100);
+        String token = cached.generateToken(1L, "user1@otakushop.com", "CLIENTE");
+        assertTrue(cached.validateToken(token), "Fresh token should be accepted");
+
+        // exp tiene resolución de segundos: a lo sumo un segundo después ya venció
+        Thread.sleep(1100);
+
+        assertNull(cached.parseClaims(token), "Cache entry should not outlive the token expiration");
+    }
+
+    @Test
+    void testEmptyTokenRejected() {
+        JwtTokenProvider cached = provider(SECRET, 3_600_000, 100);
+
+        assertFalse(cached.validateToken(null), "Null token should be rejected");
+        assertFalse(cached.validateToken(""), "Empty token should be rejected");
+    }
+
+    private static JwtTokenProvider provider(String secret, long expirationMs, long cacheSize) {
+        return new JwtTokenProvider(secret, expirationMs, cacheSize, new SimpleMeterRegistry());
+    }
+}
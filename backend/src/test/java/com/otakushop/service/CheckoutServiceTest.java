@@ -0,0 +1,191 @@
+package com.otakushop.service;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.dto.CheckoutItemDTO;
+import com.otakushop.dto.CheckoutRequest;
+import com.otakushop.dto.ShippingAddressDTO;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import com.otakushop.repository.CartItemRepository;
+import com.otakushop.repository.EntityIdAllocator;
+import com.otakushop.repository.FlashSaleRepository;
+import com.otakushop.repository.OrderItemRepository;
+import com.otakushop.repository.OrderRepository;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checkouts concurrentes de varios productos sobre pocos SKUs con las entidades y el esquema reales.
+ * El servicio se crea a mano (no es un proxy), así que cada checkout se envuelve aquí en su transacción.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int CHECKOUTS = 80;
+    private static final int PRODUCTS = 5;
+    private static final int ITEMS_PER_CHECKOUT = 3;
+    // Menos stock que demanda: parte de los checkouts deben rechazarse
+    private static final int INITIAL_STOCK = CHECKOUTS * ITEMS_PER_CHECKOUT / PRODUCTS / 2;
+    private static final BigDecimal PRICE = new BigDecimal("20000.00");
+
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private FlashSaleRepository flashSaleRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private ProductReservationTotalRepository reservationTotalRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    private CheckoutService checkoutService;
+    private Long userId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User vendor = userRepository.save(User.builder()
+                .email("vendor@otaku.test")
+                .password("x")
+                .name("Vendor")
+                .phone("600000000")
+                .role(Role.VENDEDOR)
+                .build());
+        userId = userRepository.save(User.builder()
+                .email("cliente@otaku.test")
+                .password("x")
+                .name("Cliente")
+                .phone("600000001")
+                .role(Role.CLIENTE)
+                .build()).getId();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(productRepository.save(Product.builder()
+                    .name("Figura " + i)
+                    .price(PRICE)
+                    .category("figuras")
+                    .stock(INITIAL_STOCK)
+                    .vendor(vendor)
+                    .status(ProductStatus.APPROVED)
+                    .build()).getId());
+        }
+        FlashSaleStockLedger ledger = new FlashSaleStockLedger(flashSaleRepository, productRepository,
+                cartItemRepository, orderItemRepository, reservationTotalRepository, jdbcTemplate,
+                transactionManager, eventPublisher, 4, "node-a", 30);
+        checkoutService = new CheckoutService(orderRepository, orderItemRepository, productRepository,
+                userRepository, new StockService(productRepository, ledger, eventPublisher));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] {"order_items", "orders", "products", "users"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testConcurrentCheckoutsConserveStock() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int c = 0; c < CHECKOUTS; c++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    CheckoutRequest request = randomCheckout();
+                    try {
+                        new TransactionTemplate(transactionManager)
+                                .executeWithoutResult(status -> checkoutService.processCheckout(request));
+                        completed.incrementAndGet();
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        // Sin stock al validar o al descontar: el checkout se rechaza completo
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        int stock = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(stock), 0) FROM products", Integer.class);
+        int sold = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM order_items", Integer.class);
+        int orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class);
+
+        assertEquals(CHECKOUTS, completed.get() + rejected.get(), "Every checkout should either complete or be rejected");
+        assertTrue(completed.get() > 0, "Some checkouts should succeed");
+        assertTrue(rejected.get() > 0, "Demand above stock should reject some checkouts");
+        assertEquals(PRODUCTS * INITIAL_STOCK, stock + sold, "Remaining stock plus sold units should equal initial stock");
+        assertEquals(completed.get(), orders, "Rejected checkouts should not leave orders behind");
+        assertEquals(completed.get() * ITEMS_PER_CHECKOUT, sold, "Each completed order should keep all its lines");
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE stock < 0", Integer.class),
+                "No product should be oversold");
+    }
+
+    /**
+     * Productos distintos al azar con cantidad 1 y totales que cuadran con los precios del servidor
+     */
+    private CheckoutRequest randomCheckout() {
+        List<CheckoutItemDTO> items = ThreadLocalRandom.current().ints(0, PRODUCTS)
+                .distinct()
+                .limit(ITEMS_PER_CHECKOUT)
+                .mapToObj(i -> new CheckoutItemDTO(productIds.get(i), "Figura " + i, 1, PRICE, null))
+                .toList();
+        BigDecimal subtotal = PRICE.multiply(new BigDecimal(ITEMS_PER_CHECKOUT));
+        return CheckoutRequest.builder()
+                .userId(userId)
+                .shippingAddress(ShippingAddressDTO.builder()
+                        .street("Calle 1")
+                        .city("Bogotá")
+                        .department("Cundinamarca")
+                        .postalCode("110111")
+                        .build())
+                .paymentMethod("EFECTIVO")
+                .items(items)
+                .subtotal(subtotal)
+                .shipping(BigDecimal.ZERO)
+                .discount(BigDecimal.ZERO)
+                .tax(BigDecimal.ZERO)
+                .total(subtotal)
+                .build();
+    }
+}
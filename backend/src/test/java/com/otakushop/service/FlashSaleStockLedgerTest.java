@@ -0,0 +1,192 @@
+package com.otakushop.service;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.entity.CartItem;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import com.otakushop.repository.CartItemRepository;
+import com.otakushop.repository.EntityIdAllocator;
+import com.otakushop.repository.FlashSaleRepository;
+import com.otakushop.repository.OrderItemRepository;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Propiedad y recuperación del ledger de ventas flash con dos instancias sobre la misma base.
+ * Los ledgers se crean a mano (no son proxies), así que cada operación transaccional se envuelve aquí.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FlashSaleStockLedgerTest {
+
+    @Autowired private FlashSaleRepository flashSaleRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private ProductReservationTotalRepository reservationTotalRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        User vendor = userRepository.save(User.builder()
+                .email("vendor@otaku.test")
+                .password("x")
+                .name("Vendor")
+                .phone("600000000")
+                .role(Role.VENDEDOR)
+                .build());
+        productId = productRepository.save(Product.builder()
+                .name("Figura Shōnen")
+                .price(new BigDecimal("49.90"))
+                .category("figuras")
+                .stock(10)
+                .vendor(vendor)
+                .status(ProductStatus.APPROVED)
+                .build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] {"cart_items", "flash_sales", "product_reservation_totals", "products", "users"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testOnlyOwnerLoadsLedger() {
+        FlashSaleStockLedger nodeA = node("node-a");
+        FlashSaleStockLedger nodeB = node("node-b");
+
+        inTransaction(() -> nodeA.enable(productId));
+        nodeB.recover();
+
+        assertTrue(nodeA.isActive(productId), "Enabling node should own the ledger");
+        assertFalse(nodeB.isActive(productId), "Other nodes should not load a ledger while the lease is valid");
+        assertTrue(nodeB.isHeldElsewhere(productId), "Other nodes should see the sale as held elsewhere");
+        assertThrows(IllegalStateException.class, () -> nodeB.tryAllocateStock(productId, 1),
+                "Non-owner should refuse to allocate from a ledger");
+    }
+
+    @Test
+    void testDisableFromOtherNodeRequiresExpiredLease() {
+        FlashSaleStockLedger nodeA = node("node-a");
+        FlashSaleStockLedger nodeB = node("node-b");
+        inTransaction(() -> nodeA.enable(productId));
+
+        assertThrows(IllegalStateException.class, () -> inTransaction(() -> {
+            nodeB.disable(productId);
+            return null;
+        }), "Only the owner should disable while its lease is valid");
+        assertTrue(flashSaleRepository.existsById(productId), "Flash sale should still exist");
+    }
+
+    @Test
+    void testExpiredLeaseIsTakenOverWithReconciledStock() {
+        FlashSaleStockLedger nodeA = node("node-a");
+        FlashSaleStockLedger nodeB = node("node-b");
+        inTransaction(() -> nodeA.enable(productId));
+
+        // Node A sells 3 units and dies before flushing its delta
+        inTransaction(() -> {
+            assertTrue(nodeA.tryAllocateStock(productId, 3), "Allocation should succeed");
+            return cartItemRepository.save(CartItem.builder()
+                    .sessionId("session-1")
+                    .product(productRepository.getReferenceById(productId))
+                    .quantity(3)
+                    .build());
+        });
+        expireLease();
+
+        nodeB.renewLeases();
+        assertTrue(nodeB.isActive(productId), "Node B should take over the orphaned flash sale");
+        assertEquals(7, nodeB.available(productId), "Takeover should rebuild the ledger from persisted carts");
+        assertEquals(7, stock(), "Takeover should rewrite the reconciled stock");
+
+        nodeA.renewLeases();
+        nodeA.flush();
+        assertFalse(nodeA.isActive(productId), "Previous owner should drop the ledger it lost");
+        assertEquals(7, stock(), "Previous owner should not write its stale delta");
+    }
+
+    @Test
+    void testRestartWithSameNodeIdRecoversOwnSale() {
+        inTransaction(() -> node("node-a").enable(productId));
+
+        FlashSaleStockLedger restarted = node("node-a");
+        FlashSaleStockLedger other = node("node-b");
+        restarted.recover();
+        other.recover();
+
+        assertTrue(restarted.isActive(productId), "Restarted owner should reload its sale without waiting for the lease");
+        assertEquals(10, restarted.available(productId), "Recovered ledger should hold the full stock");
+        assertFalse(other.isActive(productId), "Other nodes should still not load it");
+    }
+
+    @Test
+    void testReleaseAfterDisableFallsBackToDatabase() {
+        FlashSaleStockLedger nodeA = node("node-a");
+        inTransaction(() -> nodeA.enable(productId));
+
+        // The sale is disabled between the release and the commit of the releasing transaction
+        inTransaction(() -> {
+            assertTrue(nodeA.releaseStock(productId, 2), "Release should be accepted by the active ledger");
+            CompletableFuture.runAsync(() -> inTransaction(() -> {
+                nodeA.disable(productId);
+                return null;
+            })).join();
+            return null;
+        });
+
+        assertFalse(nodeA.isActive(productId), "Ledger should be gone after disable");
+        assertEquals(12, stock(), "Released units should reach the database instead of being lost");
+        assertFalse(nodeA.releaseStock(productId, 1), "Releases after disable should be left to the database path");
+    }
+
+    private FlashSaleStockLedger node(String nodeId) {
+        return new FlashSaleStockLedger(flashSaleRepository, productRepository, cartItemRepository,
+                orderItemRepository, reservationTotalRepository, jdbcTemplate, transactionManager, eventPublisher,
+                4, nodeId, 30);
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private void expireLease() {
+        jdbcTemplate.update("UPDATE flash_sales SET lease_until = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP)");
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
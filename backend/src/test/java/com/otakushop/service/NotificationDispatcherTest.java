@@ -0,0 +1,175 @@
+package com.otakushop.service;
+
+import com.otakushop.entity.Notification.NotificationType;
+import com.otakushop.event.NotificationRequestedEvent;
+import com.otakushop.repository.EntityIdAllocator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTest {
+
+    @Test
+    void testFullQueueDropsInsteadOfBlockingCaller() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(null, null, null, null, null, null, registry, 3, 500, 0);
+
+        long begin = System.nanoTime();
+        dispatcher.onNotificationRequested(new NotificationRequestedEvent(
+                List.of(1L, 2L, 3L, 4L, 5L), "Reposición", "Vuelve a haber stock", NotificationType.PRODUCT_BACK_IN_STOCK));
+        long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+        assertEquals(3, registry.get("otaku.notifications.queue.size").gauge().value(), "Queue should hold its capacity");
+        assertEquals(3, registry.get("otaku.notifications.enqueued").counter().count(), "Accepted notifications should be counted");
+        assertEquals(2, registry.get("otaku.notifications.dropped").tag("reason", "overflow").counter().count(),
+                "Overflow should be counted as dropped");
+        assertTrue(elapsedMs < 100, "Enqueue without timeout should never block the caller");
+    }
+
+    @Test
+    void testEnqueueTimeoutAppliesBackpressure() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(null, null, null, null, null, null, registry, 1, 500, 50);
+
+        long begin = System.nanoTime();
+        dispatcher.onNotificationRequested(new NotificationRequestedEvent(
+                List.of(1L, 2L), "Reposición", "Vuelve a haber stock", NotificationType.PRODUCT_BACK_IN_STOCK));
+        long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+        assertEquals(1, registry.get("otaku.notifications.dropped").tag("reason", "overflow").counter().count(),
+                "Notification should be dropped once the timeout expires");
+        assertTrue(elapsedMs >= 50, "Producer should wait up to the enqueue timeout when the queue is full");
+    }
+
+    @Test
+    void testFailingRowIsIsolatedAndDroppedAfterMaxAttempts() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FakeNotificationJdbc jdbc = new FakeNotificationJdbc(666L);
+        NotificationDispatcher dispatcher = new NotificationDispatcher(jdbc, new NoOpTransactionManager(),
+                new SimpMessagingTemplate((message, timeout) -> true), null, null, new SequentialIdAllocator(),
+                registry, 100, 500, 0);
+        dispatcher.onNotificationRequested(new NotificationRequestedEvent(
+                List.of(1L, 666L, 2L), "Reposición", "Vuelve a haber stock", NotificationType.PRODUCT_BACK_IN_STOCK));
+
+        dispatcher.flush();
+
+        assertEquals(2, registry.get("otaku.notifications.persisted").counter().count(),
+                "Rows next to the failing one should still be written");
+        assertEquals(1, registry.get("otaku.notifications.queue.size").gauge().value(),
+                "Only the failing row should go back to the queue");
+
+        for (int flush = 1; flush < NotificationDispatcher.MAX_WRITE_ATTEMPTS; flush++) {
+            dispatcher.flush();
+        }
+
+        assertEquals(0, registry.get("otaku.notifications.queue.size").gauge().value(),
+                "Failing row should leave the queue once its attempts are exhausted");
+        assertEquals(1, registry.get("otaku.notifications.dropped").tag("reason", "error").counter().count(),
+                "Exhausted row should be counted as dropped");
+        assertEquals(1 + NotificationDispatcher.MAX_WRITE_ATTEMPTS, jdbc.writes.get(666L),
+                "Failing row should be tried in its batch and then alone once per attempt");
+        assertEquals(2, jdbc.writes.get(1L), "Written rows should not be retried (batch + one row)");
+    }
+
+    /**
+     * INSERT de notificaciones simulado: falla el lote entero si contiene al usuario envenenado
+     */
+    private static final class FakeNotificationJdbc extends JdbcTemplate {
+        final Map<Long, Integer> writes = new HashMap<>();
+        private final Long poisonedUserId;
+
+        FakeNotificationJdbc(Long poisonedUserId) {
+            this.poisonedUserId = poisonedUserId;
+        }
+
+        @Override
+        public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+            List<Object[]> arrays = new ArrayList<>();
+            Connection connection = proxy(Connection.class, (method, args) -> {
+                arrays.add((Object[]) args[1]);
+                return null;
+            });
+            try {
+                pss.setValues(proxy(PreparedStatement.class,
+                        (method, args) -> method.equals("getConnection") ? connection : null));
+                Long[] userIds = (Long[]) arrays.get(1);
+                for (Long userId : userIds) {
+                    writes.merge(userId, 1, Integer::sum);
+                }
+                if (List.of(userIds).contains(poisonedUserId)) {
+                    throw new DataIntegrityViolationException("fila inválida");
+                }
+                List<T> rows = new ArrayList<>();
+                for (int i = 0; i < userIds.length; i++) {
+                    Map<String, Object> columns = Map.of(
+                            "id", arrays.get(0)[i], "user_id", userIds[i], "title", arrays.get(2)[i],
+                            "message", arrays.get(3)[i], "type", arrays.get(4)[i],
+                            "created_at", new Timestamp(System.currentTimeMillis()), "email", userIds[i] + "@otaku.test");
+                    rows.add(rowMapper.mapRow(proxy(ResultSet.class, (method, args) -> columns.get((String) args[0])), i));
+                }
+                return rows;
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (instance, method, args) -> answer.answer(method.getName(), args)));
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    private static final class SequentialIdAllocator extends EntityIdAllocator {
+        private final AtomicLong next = new AtomicLong(1);
+
+        @Override
+        public Long[] nextIds(Class<?> entityClass, int count) {
+            Long[] ids = new Long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = next.getAndIncrement();
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.otakushop.service;
+
+import com.otakushop.cache.CacheInvalidationBus;
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import com.otakushop.event.ProductChangedEvent;
+import com.otakushop.repository.EntityIdAllocator;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El índice de autocompletado de cada nodo sigue los cambios confirmados en otro nodo
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+class ProductSuggestServiceTest {
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+
+    private ProductSuggestService nodeA;
+    private ProductSuggestService nodeB;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        User vendor = userRepository.save(User.builder()
+                .email("vendor@otakushop.com")
+                .password("x")
+                .name("vendor")
+                .phone("999999999")
+                .role(Role.VENDEDOR)
+                .build());
+        product = productRepository.save(Product.builder()
+                .name("Figura Goku")
+                .price(new BigDecimal("49.90"))
+                .category("figuras")
+                .vendor(vendor)
+                .status(ProductStatus.APPROVED)
+                .build());
+
+        LinkedBus busA = new LinkedBus();
+        LinkedBus busB = new LinkedBus();
+        busA.peer = busB;
+        busB.peer = busA;
+        nodeA = node(busA);
+        nodeB = node(busB);
+    }
+
+    @Test
+    void testRenameOnOtherNodeReachesIndex() {
+        product.setName("Figura Vegeta");
+        productRepository.saveAndFlush(product);
+        nodeA.onProductChanged(ProductChangedEvent.of(product));
+
+        assertEquals(List.of("Figura Vegeta"), names(nodeB, "veg"), "Other node should index the new name");
+        assertTrue(names(nodeB, "goku").isEmpty(), "Other node should drop the old name");
+    }
+
+    @Test
+    void testHiddenProductLeavesOtherNodeIndex() {
+        product.setActive(false);
+        productRepository.saveAndFlush(product);
+        nodeA.onProductChanged(ProductChangedEvent.of(product));
+
+        assertTrue(names(nodeA, "goku").isEmpty(), "Publishing node should drop the product");
+        assertTrue(names(nodeB, "goku").isEmpty(), "Other node should drop the product");
+    }
+
+    @Test
+    void testStockOnlyChangeIsNotBroadcast() {
+        LinkedBus bus = new LinkedBus();
+        ProductSuggestService node = node(bus);
+
+        node.onProductChanged(ProductChangedEvent.stock(product));
+
+        assertEquals(0, bus.published, "Stock changes should not reach other nodes' indexes");
+    }
+
+    private ProductSuggestService node(LinkedBus bus) {
+        ProductSuggestService service = new ProductSuggestService(productRepository, bus);
+        service.subscribe();
+        service.rebuild();
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(ProductSuggestService service, String query) {
+        return (List<String>) service.suggest(query, 10).get("names");
+    }
+
+    /**
+     * Bus en memoria entre dos nodos: lo publicado en uno llega a los receptores del otro
+     */
+    private static final class LinkedBus implements CacheInvalidationBus {
+        final List<BiConsumer<String, String>> listeners = new ArrayList<>();
+        LinkedBus peer;
+        int published;
+
+        @Override
+        public void publish(String cacheName, String key) {
+            published++;
+            if (peer != null) {
+                peer.listeners.forEach(listener -> listener.accept(cacheName, key));
+            }
+        }
+
+        @Override
+        public void subscribe(BiConsumer<String, String> listener) {
+            listeners.add(listener);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.otakushop.service;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductReservationTotal;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.StockReservation;
+import com.otakushop.entity.User;
+import com.otakushop.repository.CartItemRepository;
+import com.otakushop.repository.EntityIdAllocator;
+import com.otakushop.repository.FlashSaleRepository;
+import com.otakushop.repository.OrderItemRepository;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.repository.StockReservationRepository;
+import com.otakushop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El contador product_reservation_totals coincide con el SUM de las reservas pendientes que sustituye.
+ * El servicio se crea a mano (no es un proxy), así que cada operación se envuelve aquí en su transacción.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationServiceTest {
+
+    @Autowired private StockReservationRepository stockReservationRepository;
+    @Autowired private ProductReservationTotalRepository reservationTotalRepository;
+    @Autowired private FlashSaleRepository flashSaleRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    private StockReservationService reservationService;
+    private Product product;
+    private User customer;
+
+    @BeforeEach
+    void setUp() {
+        User vendor = userRepository.save(User.builder()
+                .email("vendor@otaku.test")
+                .password("x")
+                .name("Vendor")
+                .phone("600000000")
+                .role(Role.VENDEDOR)
+                .build());
+        customer = userRepository.save(User.builder()
+                .email("cliente@otaku.test")
+                .password("x")
+                .name("Cliente")
+                .phone("600000001")
+                .role(Role.CLIENTE)
+                .build());
+        product = productRepository.save(Product.builder()
+                .name("Figura Shōnen")
+                .price(new BigDecimal("49.90"))
+                .category("figuras")
+                .stock(20)
+                .vendor(vendor)
+                .status(ProductStatus.APPROVED)
+                .build());
+        FlashSaleStockLedger ledger = new FlashSaleStockLedger(flashSaleRepository, productRepository,
+                cartItemRepository, orderItemRepository, reservationTotalRepository, jdbcTemplate,
+                transactionManager, eventPublisher, 4, "node-a", 30);
+        reservationService = new StockReservationService(stockReservationRepository, productRepository,
+                reservationTotalRepository, ledger,
+                new ReservationExpiryService(stockReservationRepository, reservationTotalRepository, ledger,
+                        transactionManager));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] {"stock_reservations", "product_reservation_totals", "products", "users"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testReduceUserReservationKeepsCounterEqualToSum() {
+        reserve(customer, 2, null);
+        reserve(customer, 3, null);
+        reserve(null, 4, null);
+        reserve(customer, 5, 99L);  // Confirmada en una orden: ya no cuenta como reservada
+        reservationTotalRepository.save(new ProductReservationTotal(product.getId(), 9));
+        assertCounterMatchesSum();
+
+        inTransaction(() -> {
+            reservationService.reduceUserReservation(product.getId(), customer.getId(), 4);
+            return null;
+        });
+
+        assertEquals(5, reservationService.getReservedQuantity(product.getId()), "Counter should drop by the released units");
+        assertCounterMatchesSum();
+        assertTrue(reservationService.isStockAvailable(product.getId(), 15, product.getStock()),
+                "Availability should read stock minus the counter");
+        assertFalse(reservationService.isStockAvailable(product.getId(), 16, product.getStock()),
+                "Availability should not exceed stock minus the counter");
+    }
+
+    @Test
+    void testReconcileRestoresCounterFromReservations() {
+        reserve(customer, 2, null);
+        reserve(null, 4, null);
+        reservationTotalRepository.save(new ProductReservationTotal(product.getId(), 11));
+
+        int corrected = inTransaction(() -> reservationService.reconcileReservedQuantity(product.getId()));
+
+        assertEquals(-5, corrected, "Reconcile should report the corrected drift");
+        assertCounterMatchesSum();
+        assertEquals(0, inTransaction(() -> reservationService.reconcileReservedQuantity(product.getId())),
+                "A matching counter should be left untouched");
+    }
+
+    private void reserve(User user, int quantity, Long orderId) {
+        stockReservationRepository.save(StockReservation.builder()
+                .product(product)
+                .user(user)
+                .sessionId(user == null ? "sesion-anonima" : null)
+                .quantity(quantity)
+                .orderId(orderId)
+                .build());
+    }
+
+    private void assertCounterMatchesSum() {
+        assertEquals(stockReservationRepository.sumPendingQuantityByProduct(product.getId()),
+                reservationService.getReservedQuantity(product.getId()),
+                "Counter should match the pending reservations it replaces");
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+}
@@ -0,0 +1,150 @@
+package com.otakushop.service;
+
+import com.otakushop.config.ProductSearchSchemaProbe;
+import com.otakushop.entity.Product;
+import com.otakushop.entity.ProductStatus;
+import com.otakushop.entity.Role;
+import com.otakushop.entity.User;
+import com.otakushop.repository.CartItemRepository;
+import com.otakushop.repository.EntityIdAllocator;
+import com.otakushop.repository.FlashSaleRepository;
+import com.otakushop.repository.OrderItemRepository;
+import com.otakushop.repository.ProductRepository;
+import com.otakushop.repository.ProductReservationTotalRepository;
+import com.otakushop.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Descuento atómico de stock con varias transacciones concurrentes sobre un único producto.
+ * El servicio se crea a mano (no es un proxy), así que cada descuento se envuelve aquí en su transacción.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.search.fulltext.enabled=false"
+})
+@Import({ProductSearchSchemaProbe.class, EntityIdAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+    // Menos stock que intentos: parte de los descuentos deben rechazarse
+    private static final int INITIAL_STOCK = THREADS * ATTEMPTS_PER_THREAD / 2;
+
+    @Autowired private FlashSaleRepository flashSaleRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private ProductReservationTotalRepository reservationTotalRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    private StockService stockService;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        User vendor = userRepository.save(User.builder()
+                .email("vendor@otaku.test")
+                .password("x")
+                .name("Vendor")
+                .phone("600000000")
+                .role(Role.VENDEDOR)
+                .build());
+        product = productRepository.save(Product.builder()
+                .name("Figura Shōnen")
+                .price(new BigDecimal("49.90"))
+                .category("figuras")
+                .stock(INITIAL_STOCK)
+                .vendor(vendor)
+                .status(ProductStatus.APPROVED)
+                .build());
+        FlashSaleStockLedger ledger = new FlashSaleStockLedger(flashSaleRepository, productRepository,
+                cartItemRepository, orderItemRepository, reservationTotalRepository, jdbcTemplate,
+                transactionManager, eventPublisher, 4, "node-a", 30);
+        stockService = new StockService(productRepository, ledger, eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[] {"products", "users"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testConcurrentDecrementsNeverOversell() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        if (inTransaction(() -> stockService.tryDecrement(product, 1))) {
+                            sold.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(INITIAL_STOCK, sold.get(), "Exactly the available stock should be sold");
+        assertEquals(0, stock(), "Stock should end at zero, never below");
+    }
+
+    @Test
+    void testDecrementRejectsWithoutChangingStock() {
+        assertFalse(inTransaction(() -> stockService.tryDecrement(product, INITIAL_STOCK + 1)),
+                "Decrement above the stock should be rejected");
+        assertEquals(INITIAL_STOCK, stock(), "Rejected decrement should leave the stock untouched");
+
+        inTransaction(() -> {
+            stockService.increment(product, 3);
+            return null;
+        });
+        assertEquals(INITIAL_STOCK + 3, stock(), "Increment should return units to the row");
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
@@ -0,0 +1,39 @@
+package com.otakushop.util;
+
+import com.otakushop.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000), 42L);
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()), "Decoding should restore createdAt and id");
+    }
+
+    @Test
+    void testEncodedCursorIsUrlSafe() {
+        String encoded = new KeysetCursor(LocalDateTime.of(2024, 3, 1, 12, 30), Long.MAX_VALUE).encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), "Cursor should be URL-safe without padding: " + encoded);
+    }
+
+    @Test
+    void testMalformedCursorIsBadRequest() {
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode("%%%"), "Non-Base64 cursor");
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(raw("2024-03-01T12:30")), "Missing id");
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(raw("ayer|5")), "Invalid date");
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(raw("2024-03-01T12:30|x")), "Invalid id");
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
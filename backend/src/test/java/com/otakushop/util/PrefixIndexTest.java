@@ -0,0 +1,67 @@
+package com.otakushop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    @Test
+    void testMatchesPrefixOfAnyWord() {
+        PrefixIndex index = new PrefixIndex();
+        index.put(1L, "Figura Goku SSJ");
+        index.put(2L, "Manga Naruto Tomo 1");
+
+        assertEquals(List.of("Figura Goku SSJ"), index.search("gok", 10), "Should match a word in the middle");
+        assertEquals(List.of("Figura Goku SSJ"), index.search("figura go", 10), "Should match across words");
+        assertEquals(List.of("Manga Naruto Tomo 1"), index.search("NARU", 10), "Should be case insensitive");
+        assertTrue(index.search("xyz", 10).isEmpty(), "Unknown prefix should return nothing");
+    }
+
+    @Test
+    void testIgnoresAccents() {
+        PrefixIndex index = new PrefixIndex();
+        index.put(1L, "Pokémon Edición Especial");
+
+        assertEquals(List.of("Pokémon Edición Especial"), index.search("pokemon edi", 10),
+                "Query without accents should match accented label");
+    }
+
+    @Test
+    void testSharedLabelRankedByOwners() {
+        PrefixIndex index = new PrefixIndex();
+        index.put(1L, "figuras");
+        index.put(2L, "figuras");
+        index.put(3L, "figuras de accion");
+
+        List<String> results = index.search("fig", 10);
+        assertEquals(List.of("figuras", "figuras de accion"), results,
+                "Label shared by more products should come first and appear once");
+    }
+
+    @Test
+    void testIncrementalUpdateAndRemove() {
+        PrefixIndex index = new PrefixIndex();
+        index.put(1L, "Figura Goku");
+        index.put(1L, "Figura Vegeta");
+
+        assertTrue(index.search("goku", 10).isEmpty(), "Old label should be replaced");
+        assertEquals(List.of("Figura Vegeta"), index.search("veg", 10), "New label should be indexed");
+
+        index.remove(1L);
+        assertTrue(index.search("figura", 10).isEmpty(), "Removed owner should not be suggested");
+        assertEquals(0, index.size(), "Index should be empty after removal");
+    }
+
+    @Test
+    void testLimit() {
+        PrefixIndex index = new PrefixIndex();
+        for (long i = 1; i <= 30; i++) {
+            index.put(i, "Manga tomo " + i);
+        }
+
+        assertEquals(5, index.search("manga", 5).size(), "Should respect the limit");
+    }
+}
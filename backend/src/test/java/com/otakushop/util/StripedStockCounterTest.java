@@ -0,0 +1,70 @@
+package com.otakushop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTest {
+
+    @Test
+    void testSpreadsInitialStockAcrossStripes() {
+        StripedStockCounter counter = new StripedStockCounter(103, 10);
+
+        assertEquals(16, counter.stripes(), "Stripe count should round up to a power of two");
+        assertEquals(103, counter.sum(), "All initial units should be available");
+    }
+
+    @Test
+    void testAcquiresAcrossStripesWhenNoSingleStripeHasEnough() {
+        StripedStockCounter counter = new StripedStockCounter(8, 8);
+
+        assertTrue(counter.tryAcquire(5), "Should gather units from several stripes");
+        assertEquals(3, counter.sum());
+        assertFalse(counter.tryAcquire(4), "Should reject when total is not enough");
+        assertEquals(3, counter.sum(), "Failed acquire should give back partial units");
+
+        counter.release(2);
+        assertTrue(counter.tryAcquire(5), "Released units should be allocatable again");
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    void testNeverOversellsUnderContention() throws Exception {
+        int stock = 1000;
+        int threads = 16;
+        StripedStockCounter counter = new StripedStockCounter(stock, 8);
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int quantity = t % 3 + 1;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    if (counter.tryAcquire(quantity)) {
+                        sold.addAndGet(quantity);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(stock, sold.get() + counter.sum(), "Sold plus remaining should equal initial stock");
+        assertTrue(counter.sum() < 3, "Stock should be exhausted down to less than the largest request");
+    }
+}
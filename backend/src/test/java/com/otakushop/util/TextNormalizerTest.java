@@ -0,0 +1,73 @@
+package com.otakushop.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextNormalizerTest {
+
+    @Test
+    void testFoldRemovesAccentsAndLowercases() {
+        assertEquals("pokemon edicion espanola", TextNormalizer.fold("Pokémon Edición Española"),
+                "Should strip Spanish diacritics");
+    }
+
+    @Test
+    void testFoldRemovesMacrons() {
+        assertEquals("shonen jump ryuko", TextNormalizer.fold("Shōnen Jūmp RYŪKŌ"),
+                "Should strip macrons used in romanized Japanese titles");
+    }
+
+    @Test
+    void testSqlFoldStripsSameMarks() throws Exception {
+        // La definición vigente de otaku_fold es la de la migración más reciente que la crea
+        String latest = null;
+        int latestVersion = -1;
+        for (Resource migration : new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*.sql")) {
+            String sql = migration.getContentAsString(StandardCharsets.UTF_8);
+            String name = migration.getFilename();
+            int version = Integer.parseInt(name.substring(1, name.indexOf("__")));
+            if (sql.contains("FUNCTION otaku_fold") && version > latestVersion) {
+                latest = sql;
+                latestVersion = version;
+            }
+        }
+
+        assertNotNull(latest, "A migration should define otaku_fold");
+        assertTrue(latest.contains(TextNormalizer.COMBINING_MARK_CLASS),
+                "otaku_fold should strip the same combining marks as fold()");
+    }
+
+    @Test
+    void testFoldNull() {
+        assertEquals("", TextNormalizer.fold(null), "Null should fold to empty string");
+    }
+
+    @Test
+    void testTokenizeSplitsOnPunctuation() {
+        assertEquals(List.of("figura", "goku", "ssj", "30cm"), TextNormalizer.tokenize("Figura Goku (SSJ) - 30cm!"),
+                "Should split on non-alphanumeric characters");
+    }
+
+    @Test
+    void testPrefixTsQuery() {
+        assertEquals("naru:* & figu:*", TextNormalizer.toPrefixTsQuery("Naru  figu"),
+                "Should AND prefix terms");
+    }
+
+    @Test
+    void testPrefixTsQueryStripsOperators() {
+        assertEquals("goku:* & vegeta:*", TextNormalizer.toPrefixTsQuery("goku | !vegeta & :*"),
+                "Should never pass tsquery operators through");
+    }
+
+    @Test
+    void testPrefixTsQueryWithoutTokens() {
+        assertNull(TextNormalizer.toPrefixTsQuery("  !!! "), "Should return null when nothing is searchable");
+    }
+}
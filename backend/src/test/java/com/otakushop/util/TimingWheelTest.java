@@ -0,0 +1,52 @@
+package com.otakushop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testExpiresAtDeadlineNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 0);
+        wheel.schedule("a", 1500);
+        wheel.schedule("b", 2000);
+
+        assertTrue(wheel.advance(1999).isEmpty(), "Nothing should expire before its deadline");
+        assertEquals(List.of("a", "b"), wheel.advance(2000), "Both should expire at the deadline tick");
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testPastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 10_000);
+        wheel.schedule("late", 5_000);
+
+        assertEquals(List.of("late"), wheel.advance(11_000), "Already expired item should come out on next advance");
+    }
+
+    @Test
+    void testDeadlineBeyondOneRotation() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 0);
+        wheel.schedule("far", 20_000);
+
+        for (long now = 1000; now < 20_000; now += 1000) {
+            assertTrue(wheel.advance(now).isEmpty(), "Should stay in its bucket across rotations");
+        }
+        assertEquals(List.of("far"), wheel.advance(20_000));
+    }
+
+    @Test
+    void testLongPauseReleasesEverythingDue() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(100, 16, 0);
+        for (int i = 1; i <= 50; i++) {
+            wheel.schedule(i, i * 100L);
+        }
+        wheel.schedule(999, 1_000_000);
+
+        assertEquals(50, wheel.advance(60_000).size(), "All due items should expire after a long pause");
+        assertEquals(1, wheel.size(), "Future item should remain scheduled");
+    }
+}